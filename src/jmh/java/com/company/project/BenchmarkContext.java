@@ -0,0 +1,129 @@
+package com.company.project;
+
+import com.company.project.model.User;
+import com.company.project.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repositories, caches and services wired against an in-memory H2 database in PostgreSQL
+ * mode, created from schema.sql and schema-h2.sql and seeded with synthetic managers and users.
+ */
+public final class BenchmarkContext {
+
+    public static final int MANAGER_COUNT = 50;
+
+    private BenchmarkContext() {
+    }
+
+    public static AnnotationConfigApplicationContext start(int userCount) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Config.class);
+        seed(context, userCount);
+        return context;
+    }
+
+    public static UUID managerId(int index) {
+        return new UUID(0xBE_0000L, index);
+    }
+
+    public static UUID userId(int index) {
+        return new UUID(0xBE_1111L, index);
+    }
+
+    public static String mobNum(long index) {
+        return Long.toString(6_000_000_000L + index);
+    }
+
+    /**
+     * Inserts {@link #MANAGER_COUNT} managers and the given number of users through the
+     * context's JdbcTemplate and UserRepository.
+     */
+    public static void seed(ApplicationContext context, int userCount) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        for (int i = 0; i < MANAGER_COUNT; i++) {
+            jdbcTemplate.update("INSERT INTO managers (manager_id, full_name, email, is_active, created_at) VALUES (?, ?, ?, true, CURRENT_TIMESTAMP)",
+                    managerId(i), "Manager " + i, "manager" + i + "@example.com");
+        }
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<User> batch = new ArrayList<>(1000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setUserId(userId(i));
+            user.setManagerId(managerId(i % MANAGER_COUNT));
+            user.setFullName("Benchmark User " + i);
+            user.setMobNum(mobNum(i));
+            user.setPanNum("ABCDE" + String.format("%04d", i % 10000) + "F");
+            user.setCreatedAt(new Timestamp(now + i));
+            user.setIsActive(true);
+            user.setPersonId(user.getUserId());
+            user.setValidFrom(user.getCreatedAt());
+            batch.add(user);
+            if (batch.size() == 1000) {
+                userRepository.createUsers(batch);
+                batch.clear();
+            }
+        }
+        userRepository.createUsers(batch);
+    }
+
+    // Deliberately not @Configuration: the application's own component scan covers this package
+    // and must not pick these beans up when a benchmark starts the full application.
+    @ComponentScan({"com.company.project.repository", "com.company.project.cache",
+            "com.company.project.validation", "com.company.project.service"})
+    static class Config {
+
+        // Pooled like the application, so connection setup is not part of each call.
+        @Bean(destroyMethod = "close")
+        public HikariDataSource dataSource() {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            dataSource.setUsername("sa");
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                    new ClassPathResource("schema-h2.sql")), dataSource);
+            return dataSource;
+        }
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public ObjectMapper objectMapper() {
+            return Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule()).build();
+        }
+
+        // Lets @Value fields bind durations such as "5m", as they do under Spring Boot.
+        @Bean
+        public ConversionService conversionService() {
+            return ApplicationConversionService.getSharedInstance();
+        }
+    }
+}
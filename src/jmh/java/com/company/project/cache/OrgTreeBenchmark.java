@@ -0,0 +1,103 @@
+package com.company.project.cache;
+
+import com.company.project.BenchmarkContext;
+import com.company.project.dto.OrgTreeResponse;
+import com.company.project.model.User;
+import com.company.project.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subtree queries against the org tree index versus a recursive CTE on the embedded database.
+ * Users form a tree with {@code fanout} reports per node under manager 0, each user's id acting
+ * as the manager_id of the next level; the team lead is a node three levels down.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrgTreeBenchmark {
+
+    private static final String SUBTREE_SQL = "WITH RECURSIVE tree (user_id, depth) AS ("
+            + " SELECT user_id, 1 FROM users WHERE manager_id = ? AND is_active = true"
+            + " UNION ALL SELECT u.user_id, t.depth + 1 FROM users u JOIN tree t ON u.manager_id = t.user_id WHERE u.is_active = true"
+            + ") SELECT COUNT(*), MAX(depth) FROM tree";
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"10"})
+    private int fanout;
+
+    private AnnotationConfigApplicationContext context;
+    private OrgTreeIndex index;
+    private JdbcTemplate jdbcTemplate;
+    private UUID root;
+    private UUID teamLead;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(0);
+        root = BenchmarkContext.managerId(0);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<User> batch = new ArrayList<>(1000);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < users; i++) {
+            // Node i reports to node (i - 1) / fanout; the first level reports to the manager.
+            UUID managerId = i < fanout ? root : BenchmarkContext.userId((i - fanout) / fanout);
+            batch.add(new User(BenchmarkContext.userId(i), managerId, "Org User " + i, BenchmarkContext.mobNum(i),
+                    "ABCDE1234F", new Timestamp(now + i), null, true, BenchmarkContext.userId(i), new Timestamp(now + i), null));
+            if (batch.size() == 1000) {
+                userRepository.createUsers(batch);
+                batch.clear();
+            }
+        }
+        userRepository.createUsers(batch);
+
+        index = context.getBean(OrgTreeIndex.class);
+        index.rebuild();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        teamLead = BenchmarkContext.userId(fanout + fanout * fanout);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrgTreeResponse indexTeamLead() {
+        return index.subtree(teamLead, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public OrgTreeResponse indexWholeTree() {
+        return index.subtree(root, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public Object[] recursiveQueryTeamLead() {
+        return jdbcTemplate.queryForObject(SUBTREE_SQL, (rs, row) -> new Object[]{rs.getLong(1), rs.getInt(2)}, teamLead);
+    }
+}
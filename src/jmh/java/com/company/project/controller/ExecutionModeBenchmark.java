@@ -0,0 +1,147 @@
+package com.company.project.controller;
+
+import com.company.project.BenchmarkContext;
+import com.company.project.UserManagementApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for users.execution.mode: the whole application on a random port, 128 client
+ * threads calling /get_users by manager_id (not cached, so every call takes a connection).
+ * Each connection checkout sleeps {@code dbLatencyMs} to stand in for the network round trip
+ * to a remote PostgreSQL, and Tomcat gets fewer worker threads than the pool has connections,
+ * which is where platform mode saturates. Add {@code -p mode=virtual} on Java 21.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(128)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    @Param({"platform", "async"})
+    private String mode;
+
+    @Param({"8"})
+    private int tomcatThreads;
+
+    @Param({"32"})
+    private int poolSize;
+
+    @Param({"50"})
+    private int dbLatencyMs;
+
+    @Param({"500"})
+    private int users;
+
+    private ConfigurableApplicationContext context;
+    private URL getUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Keep client connections alive across calls from every benchmark thread.
+        System.setProperty("http.maxConnections", "256");
+
+        SpringApplication application = new SpringApplication(UserManagementApplication.class);
+        application.addInitializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource ? new LatentDataSource((DataSource) bean, dbLatencyMs) : bean;
+            }
+        }));
+        context = application.run(
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--spring.datasource.url=jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.sql.init.mode=always",
+                "--users.execution.mode=" + mode,
+                "--users.jdbc.slow-query-threshold=0",
+                "--logging.level.root=WARN");
+        BenchmarkContext.seed(context, users);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        getUsers = new URL("http://localhost:" + port + "/get_users");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getUsersByManager() throws IOException {
+        String body = "{\"manager_id\":\"" + BenchmarkContext.managerId(ThreadLocalRandom.current().nextInt(BenchmarkContext.MANAGER_COUNT)) + "\"}";
+        HttpURLConnection connection = (HttpURLConnection) getUsers.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = connection.getResponseCode();
+        if (status != 200) {
+            throw new IllegalStateException("/get_users returned " + status);
+        }
+        // Drain the body so the connection goes back to the keep-alive cache.
+        int bytes = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                bytes += read;
+            }
+        }
+        return bytes;
+    }
+
+    // Holds each checked-out connection for the configured latency before the query runs.
+    static class LatentDataSource extends DelegatingDataSource {
+        private final long latencyMs;
+
+        LatentDataSource(DataSource target, long latencyMs) {
+            super(target);
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.company.project.dto;
+
+import com.company.project.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON cost per request: the old Map payloads and reflective User serialization against the
+ * typed DTOs with pre-built readers/writers and Afterburner. Run with -prof gc to compare
+ * allocation as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<Map<String, Object>>() {
+    };
+
+    @Param({"100"})
+    private int users;
+
+    private byte[] createBody;
+    private List<User> userModels;
+    private ObjectMapper plainMapper;
+    private ObjectReader mapReader;
+    private ObjectReader createUserReader;
+    private ObjectWriter userListWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        createBody = ("{\"full_name\":\"Jane Doe\",\"mob_num\":\"+91 98765 43210\",\"pan_num\":\"abcde1234f\","
+                + "\"manager_id\":\"11111111-1111-1111-1111-111111111111\"}").getBytes(StandardCharsets.UTF_8);
+        userModels = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            UUID userId = UUID.randomUUID();
+            Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+            userModels.add(new User(userId, UUID.randomUUID(), "User " + i, "98765" + String.format("%05d", i),
+                    "ABCDE1234F", createdAt, null, true, userId, createdAt, null));
+        }
+
+        plainMapper = Jackson2ObjectMapperBuilder.json().build();
+        mapReader = plainMapper.readerFor(MAP);
+        ObjectMapper tunedMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule()).build();
+        createUserReader = tunedMapper.readerFor(CreateUserRequest.class);
+        userListWriter = tunedMapper.writerFor(GetUsersResponse.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> readMapPayload() throws IOException {
+        return mapReader.readValue(createBody);
+    }
+
+    @Benchmark
+    public CreateUserRequest readTypedPayload() throws IOException {
+        return createUserReader.readValue(createBody);
+    }
+
+    @Benchmark
+    public byte[] writeUserModels() throws IOException {
+        return plainMapper.writeValueAsBytes(Collections.singletonMap("users", userModels));
+    }
+
+    @Benchmark
+    public byte[] writeUserDtos() throws IOException {
+        List<UserDto> dtos = new ArrayList<>(userModels.size());
+        for (User user : userModels) {
+            dtos.add(UserDto.from(user));
+        }
+        GetUsersResponse response = new GetUsersResponse();
+        response.setUsers(dtos);
+        return userListWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,103 @@
+package com.company.project.repository;
+
+import com.company.project.BenchmarkContext;
+import com.company.project.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end repository calls against the embedded database, including statement
+ * preparation, execution and row mapping.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private AnnotationConfigApplicationContext context;
+    private UserRepository userRepository;
+    private ManagerRepository managerRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(users);
+        userRepository = context.getBean(UserRepository.class);
+        managerRepository = context.getBean(ManagerRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private int randomUser() {
+        return ThreadLocalRandom.current().nextInt(users);
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userRepository.getUserById(BenchmarkContext.userId(randomUser()));
+    }
+
+    @Benchmark
+    public User getUserByMob() {
+        return userRepository.getUserByMob(BenchmarkContext.mobNum(randomUser()));
+    }
+
+    @Benchmark
+    public List<User> getUsersByManagerId() {
+        return userRepository.getUsersByManagerId(BenchmarkContext.managerId(randomUser() % BenchmarkContext.MANAGER_COUNT));
+    }
+
+    @Benchmark
+    public List<User> getUsersPage() {
+        return userRepository.getUsersPage(null, null, 100);
+    }
+
+    @Benchmark
+    public Object getManagerById() {
+        return managerRepository.getManagerById(BenchmarkContext.managerId(randomUser() % BenchmarkContext.MANAGER_COUNT));
+    }
+
+    @Benchmark
+    public int createUser() {
+        long n = users + sequence.incrementAndGet();
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+        user.setManagerId(BenchmarkContext.managerId((int) (n % BenchmarkContext.MANAGER_COUNT)));
+        user.setFullName("Created User " + n);
+        user.setMobNum(BenchmarkContext.mobNum(n));
+        user.setPanNum("ABCDE1234F");
+        user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        user.setIsActive(true);
+        user.setPersonId(user.getUserId());
+        user.setValidFrom(user.getCreatedAt());
+        return userRepository.createUser(user);
+    }
+}
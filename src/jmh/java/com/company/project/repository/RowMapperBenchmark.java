@@ -0,0 +1,82 @@
+package com.company.project.repository;
+
+import com.company.project.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the repository RowMappers over an already materialised, scrollable result set,
+ * so the numbers exclude query execution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmark {
+
+    @Param({"100"})
+    private int rows;
+
+    private AnnotationConfigApplicationContext context;
+    private Connection connection;
+    private ResultSet users;
+    private ResultSet managers;
+    private ManagerRepository managerRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        context = BenchmarkContext.start(rows);
+        managerRepository = context.getBean(ManagerRepository.class);
+        connection = context.getBean(DataSource.class).getConnection();
+        Statement statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        users = statement.executeQuery("SELECT * FROM users");
+        managers = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)
+                .executeQuery("SELECT * FROM managers");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void mapUsers(Blackhole blackhole) throws SQLException {
+        users.beforeFirst();
+        int rowNum = 0;
+        while (users.next()) {
+            blackhole.consume(UserRepository.userRowMapper.mapRow(users, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void mapManagers(Blackhole blackhole) throws SQLException {
+        managers.beforeFirst();
+        int rowNum = 0;
+        while (managers.next()) {
+            blackhole.consume(managerRepository.managerRowMapper.mapRow(managers, rowNum++));
+        }
+    }
+}
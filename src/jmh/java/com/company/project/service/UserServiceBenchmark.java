@@ -0,0 +1,96 @@
+package com.company.project.service;
+
+import com.company.project.BenchmarkContext;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UserService entry points as the controller drives them: request body parsing into a
+ * payload map, then the service call against the embedded database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private AnnotationConfigApplicationContext context;
+    private UserService userService;
+    private ObjectMapper objectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(users);
+        userService = context.getBean(UserService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private <T> T parse(String json, Class<T> type) throws IOException {
+        return objectMapper.readValue(json.getBytes(StandardCharsets.UTF_8), type);
+    }
+
+    private String createBody() {
+        long n = users + sequence.incrementAndGet();
+        return "{\"full_name\":\"Created User " + n + "\",\"mob_num\":\"+91 " + BenchmarkContext.mobNum(n)
+                + "\",\"pan_num\":\"abcde1234f\",\"manager_id\":\"" + BenchmarkContext.managerId((int) (n % BenchmarkContext.MANAGER_COUNT)) + "\"}";
+    }
+
+    @Benchmark
+    public CreateUserRequest parseCreatePayload() throws IOException {
+        return parse(createBody(), CreateUserRequest.class);
+    }
+
+    @Benchmark
+    public CreateUserResponse createUser() throws IOException {
+        return userService.createUser(parse(createBody(), CreateUserRequest.class));
+    }
+
+    @Benchmark
+    public GetUsersResponse getUserById() throws IOException {
+        int n = ThreadLocalRandom.current().nextInt(users);
+        return userService.getUsers(parse("{\"user_id\":\"" + BenchmarkContext.userId(n) + "\"}", GetUsersRequest.class));
+    }
+
+    @Benchmark
+    public UpdateUserResponse updateFullName() throws IOException {
+        int n = ThreadLocalRandom.current().nextInt(users);
+        return userService.updateUser(parse("{\"user_ids\":[\"" + BenchmarkContext.userId(n)
+                + "\"],\"update_data\":{\"full_name\":\"Renamed User " + n + "\"}}", UpdateUserRequest.class));
+    }
+}
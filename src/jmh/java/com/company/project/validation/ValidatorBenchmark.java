@@ -0,0 +1,60 @@
+package com.company.project.validation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link UserValidator} with the regex-based validators it replaced, on the sample
+ * inputs of {@link UserValidatorTest}, which checks that both give the same results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidatorBenchmark {
+
+    private static final String[] MOBILES = UserValidatorTest.MOBILES;
+    private static final String[] PANS = UserValidatorTest.PANS;
+
+    private final UserValidator validator = new UserValidator();
+
+    @Benchmark
+    public void regexMobile(Blackhole blackhole) {
+        for (String mobile : MOBILES) {
+            blackhole.consume(LegacyValidators.mobile(mobile));
+        }
+    }
+
+    @Benchmark
+    public void scanningMobile(Blackhole blackhole) {
+        for (String mobile : MOBILES) {
+            blackhole.consume(validator.validateAndFormatMobile(mobile));
+        }
+    }
+
+    @Benchmark
+    public void regexPan(Blackhole blackhole) {
+        for (String pan : PANS) {
+            blackhole.consume(LegacyValidators.pan(pan));
+        }
+    }
+
+    @Benchmark
+    public void scanningPan(Blackhole blackhole) {
+        for (String pan : PANS) {
+            blackhole.consume(validator.validateAndFormatPan(pan));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.company.project.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and throughput of the measured phase per operation, written as JSON so two builds can
+ * be diffed. Latencies are in milliseconds; each operation also carries its full HdrHistogram
+ * (microseconds, compressed and base64-encoded) for exact comparisons, e.g. with
+ * {@code Histogram.decodeFromCompressedByteBuffer}. Errors are server errors (5xx) and requests
+ * that got no response; 4xx answers are listed under statuses only.
+ */
+final class LatencyReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Map<String, String> settings;
+    private final List<String> applicationArgs;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private Instant startedAt;
+    private long startNanos;
+    private long stopNanos;
+
+    LatencyReport(Map<String, String> settings, List<String> applicationArgs) {
+        this.settings = settings;
+        this.applicationArgs = applicationArgs;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        startNanos = System.nanoTime();
+    }
+
+    void stop() {
+        stopNanos = System.nanoTime();
+    }
+
+    void record(String operation, int status, long latencyNanos) {
+        Operation stats = operations.computeIfAbsent(operation, key -> new Operation());
+        stats.recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        stats.statuses.computeIfAbsent(status, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    void dropped(String operation) {
+        operations.computeIfAbsent(operation, key -> new Operation()).dropped.incrementAndGet();
+    }
+
+    void write(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("started_at", startedAt.toString());
+        report.put("duration_seconds", seconds());
+        report.put("settings", settings);
+        report.put("application_args", applicationArgs);
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        environment.put("cpus", Runtime.getRuntime().availableProcessors());
+        environment.put("max_heap_mb", Runtime.getRuntime().maxMemory() >> 20);
+        report.put("environment", environment);
+        report.put("operations", results());
+        report.put("total", total());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%-16s %9s %8s %9s %9s %9s %9s%n",
+                "operation", "ops/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        Map<String, Result> rows = new LinkedHashMap<>(results());
+        rows.put("total", total());
+        rows.forEach((name, result) -> summary.append(String.format("%-16s %9.1f %8d %9.2f %9.2f %9.2f %9.2f%n",
+                name, result.throughput, result.errors, result.latency.get("p50"), result.latency.get("p99"),
+                result.latency.get("p999"), result.latency.get("max"))));
+        return summary.toString();
+    }
+
+    private double seconds() {
+        return (stopNanos - startNanos) / 1e9;
+    }
+
+    private Map<String, Result> results() {
+        Map<String, Result> results = new TreeMap<>();
+        operations.forEach((name, operation) -> results.put(name,
+                new Result(operation.histogram(), operation.statuses(), operation.dropped.get(), seconds(), true)));
+        return results;
+    }
+
+    private Result total() {
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        Map<Integer, Long> statuses = new TreeMap<>();
+        long dropped = 0;
+        for (Operation operation : operations.values()) {
+            all.add(operation.histogram());
+            operation.statuses().forEach((status, count) -> statuses.merge(status, count, Long::sum));
+            dropped += operation.dropped.get();
+        }
+        return new Result(all, statuses, dropped, seconds(), false);
+    }
+
+    private static final class Operation {
+        final Recorder recorder = new Recorder(MAX_LATENCY_MICROS, 3);
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        final AtomicLong dropped = new AtomicLong();
+        private Histogram histogram;
+
+        // A recorder hands out what was recorded since its last call, so the first snapshot is kept.
+        synchronized Histogram histogram() {
+            if (histogram == null) {
+                histogram = recorder.getIntervalHistogram();
+            }
+            return histogram;
+        }
+
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> snapshot = new TreeMap<>();
+            statuses.forEach((status, count) -> snapshot.put(status, count.get()));
+            return snapshot;
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static final class Result {
+        @JsonProperty
+        final long count;
+        @JsonProperty
+        final double throughput;
+        @JsonProperty
+        final long errors;
+        @JsonProperty
+        final long dropped;
+        @JsonProperty
+        final Map<String, Long> statuses = new LinkedHashMap<>();
+        @JsonProperty("latency_ms")
+        final Map<String, Double> latency = new LinkedHashMap<>();
+        @JsonProperty
+        final String histogram;
+
+        Result(Histogram histogram, Map<Integer, Long> statuses, long dropped, double seconds, boolean withHistogram) {
+            long errors = 0;
+            for (Map.Entry<Integer, Long> entry : statuses.entrySet()) {
+                // 0 is a request that failed without a response.
+                this.statuses.put(entry.getKey() == 0 ? "io_error" : String.valueOf(entry.getKey()), entry.getValue());
+                if (entry.getKey() == 0 || entry.getKey() >= 500) {
+                    errors += entry.getValue();
+                }
+            }
+            this.count = histogram.getTotalCount();
+            this.throughput = count / seconds;
+            this.errors = errors;
+            this.dropped = dropped;
+            latency.put("mean", histogram.getMean() / 1000);
+            latency.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+            latency.put("p90", histogram.getValueAtPercentile(90) / 1000.0);
+            latency.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+            latency.put("p999", histogram.getValueAtPercentile(99.9) / 1000.0);
+            latency.put("max", histogram.getMaxValue() / 1000.0);
+            if (withHistogram) {
+                ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+                int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+                this.histogram = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+            } else {
+                this.histogram = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.company.project.loadtest;
+
+import com.company.project.EmbeddedPostgres;
+import com.company.project.UserManagementApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of the UserController endpoints against an {@link EmbeddedPostgres} server. The
+ * database is created from schema.sql and db/postgresql/indexes.sql and seeded with synthetic
+ * managers and users, then the application is started in this JVM on a random port and driven
+ * by an open workload: requests arrive at a fixed mean rate with exponential gaps, from a seeded
+ * random sequence, whether or not earlier ones have finished. Latency counts from when a request
+ * was due, so time spent queued behind a slow server is included (no coordinated omission).
+ * Results of the measured phase are written by {@link LatencyReport}.
+ * <p>
+ * Settings are key=value arguments; see {@link #DEFAULTS}. Arguments starting with -- are
+ * passed to the application, e.g. --spring.profiles.active=fast-start.
+ */
+public final class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final long USER_PREFIX = 0x10AD_0000L;
+    private static final long MANAGER_PREFIX = 0x10AD_0001L;
+
+    static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("users", "1000000");
+        DEFAULTS.put("managers", "10000");
+        // Mean requests per second, and the mix as operation:weight pairs.
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("mix", "get_by_id:40,get_by_mob:20,get_by_manager:10,create:10,update:15,delete:5");
+        DEFAULTS.put("warmup", "30s");
+        DEFAULTS.put("duration", "60s");
+        // Client connections; requests beyond max-outstanding are dropped and counted.
+        DEFAULTS.put("connections", "64");
+        DEFAULTS.put("max-outstanding", "10000");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("report", "target/loadtest-report.json");
+        DEFAULTS.put("pg-dir", System.getProperty("java.io.tmpdir") + "/users-loadtest");
+        DEFAULTS.put("pg-user", "nobody");
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                applicationArgs.add(arg);
+            } else if (arg.contains("=")) {
+                String key = arg.substring(0, arg.indexOf('='));
+                if (!DEFAULTS.containsKey(key)) {
+                    throw new IllegalArgumentException("Unknown setting " + key + "; known: " + DEFAULTS.keySet());
+                }
+                settings.put(key, arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        logger.info("Load test settings {}", settings);
+        int users = Integer.parseInt(settings.get("users"));
+        int managers = Integer.parseInt(settings.get("managers"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start(Paths.get(settings.get("pg-dir")), settings.get("pg-user"))) {
+            seed(postgres.jdbcUrl(), users, managers);
+
+            List<String> appArgs = new ArrayList<>();
+            appArgs.add("--server.port=0");
+            appArgs.add("--spring.datasource.url=" + postgres.jdbcUrl());
+            appArgs.add("--spring.datasource.username=postgres");
+            appArgs.add("--spring.sql.init.mode=never");
+            appArgs.addAll(applicationArgs);
+            SpringApplication application = new SpringApplication(UserManagementApplication.class);
+            application.setMainApplicationClass(UserManagementApplication.class);
+            ConfigurableApplicationContext context = application.run(appArgs.toArray(new String[0]));
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                Workload workload = new Workload("http://localhost:" + port, settings, users, managers);
+                LatencyReport report = new LatencyReport(settings, applicationArgs);
+                try {
+                    workload.run(parseDuration(settings.get("warmup")), null);
+                    workload.run(parseDuration(settings.get("duration")), report);
+                } finally {
+                    workload.shutdown();
+                }
+                Path file = Paths.get(settings.get("report"));
+                report.write(file);
+                logger.info("Report written to {}\n{}", file.toAbsolutePath(), report.summary());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the schema and inserts the managers and users in bulk on the server, then adds the
+     * production indexes. User i has id {@link #userId}, mobile number 9000000000 + i and reports
+     * to manager i % managers.
+     */
+    static void seed(String jdbcUrl, int users, int managers) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl); Statement statement = connection.createStatement()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            statement.execute("DELETE FROM managers");
+            statement.execute("INSERT INTO managers (manager_id, full_name, email, is_active, created_at) "
+                    + "SELECT " + uuidSql(MANAGER_PREFIX, "i") + ", 'Manager ' || i, 'manager' || i || '@example.com', true, current_timestamp "
+                    + "FROM generate_series(0, " + (managers - 1) + ") AS i");
+            // created_at steps back a second per user, so paging order is fixed.
+            statement.execute("INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, is_active, person_id, valid_from) "
+                    + "SELECT " + uuidSql(USER_PREFIX, "i") + ", " + uuidSql(MANAGER_PREFIX, "i % " + managers) + ", "
+                    + "'Load User ' || i, (9000000000 + i)::text, 'ABCDE' || lpad((i % 10000)::text, 4, '0') || 'F', "
+                    + "timestamp '2020-01-01' - i * interval '1 second', true, " + uuidSql(USER_PREFIX, "i") + ", timestamp '2020-01-01' "
+                    + "FROM generate_series(0, " + (users - 1) + ") AS i");
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/postgresql/indexes.sql"));
+            statement.execute("VACUUM ANALYZE");
+        }
+        logger.info("Seeded {} users and {} managers in {} s", users, managers, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+    }
+
+    static String userId(long index) {
+        return new UUID(USER_PREFIX, index).toString();
+    }
+
+    static String managerId(long index) {
+        return new UUID(MANAGER_PREFIX, index).toString();
+    }
+
+    // The SQL for new UUID(prefix, index).
+    private static String uuidSql(long prefix, String index) {
+        String high = String.format("%016x", prefix);
+        String low = "lpad(to_hex(" + index + "), 16, '0')";
+        return "('" + high.substring(0, 8) + "-" + high.substring(8, 12) + "-" + high.substring(12) + "-' || "
+                + "substr(" + low + ", 1, 4) || '-' || substr(" + low + ", 5))::uuid";
+    }
+
+    static Duration parseDuration(String value) {
+        char unit = value.charAt(value.length() - 1);
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (unit) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            default:
+                throw new IllegalArgumentException("Durations end in s or m: " + value);
+        }
+    }
+
+    /**
+     * The request generator. Operations, keys and arrival times come from one seeded Random on the
+     * dispatching thread, so two runs with the same settings send the same requests in the same order.
+     */
+    static final class Workload {
+        private final String baseUrl;
+        private final double rate;
+        private final String[] operations;
+        private final int[] cumulativeWeights;
+        private final int managers;
+        private final int maxOutstanding;
+        private final Random random;
+        private final ThreadPoolExecutor clients;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        // Deletes take users from the top of the seeded range down; reads and updates stay below.
+        private int liveUsers;
+        private long created;
+        private long updated;
+
+        Workload(String baseUrl, Map<String, String> settings, int users, int managers) {
+            this.baseUrl = baseUrl;
+            this.rate = Double.parseDouble(settings.get("rate"));
+            this.managers = managers;
+            this.liveUsers = users;
+            this.maxOutstanding = Integer.parseInt(settings.get("max-outstanding"));
+            this.random = new Random(Long.parseLong(settings.get("seed")));
+            String[] pairs = settings.get("mix").split(",");
+            operations = new String[pairs.length];
+            cumulativeWeights = new int[pairs.length];
+            int total = 0;
+            for (int i = 0; i < pairs.length; i++) {
+                String[] pair = pairs[i].trim().split(":");
+                operations[i] = pair[0];
+                total += Integer.parseInt(pair[1]);
+                cumulativeWeights[i] = total;
+            }
+            int connections = Integer.parseInt(settings.get("connections"));
+            System.setProperty("http.maxConnections", String.valueOf(connections));
+            clients = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        /**
+         * Sends requests for the given time and waits for the last of them. Without a report
+         * (warm-up) nothing is recorded.
+         */
+        void run(Duration duration, LatencyReport report) throws InterruptedException {
+            long start = System.nanoTime();
+            long end = start + duration.toNanos();
+            long due = start;
+            if (report != null) {
+                report.start();
+            }
+            while (true) {
+                due += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+                if (due >= end) {
+                    break;
+                }
+                String operation = pick();
+                Request request = request(operation);
+                for (long wait; (wait = due - System.nanoTime()) > 0; ) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (outstanding.incrementAndGet() > maxOutstanding) {
+                    outstanding.decrementAndGet();
+                    if (report != null) report.dropped(operation);
+                    continue;
+                }
+                long requestDue = due;
+                clients.execute(() -> {
+                    try {
+                        int status = send(request);
+                        if (report != null) report.record(operation, status, System.nanoTime() - requestDue);
+                    } finally {
+                        outstanding.decrementAndGet();
+                    }
+                });
+            }
+            while (outstanding.get() > 0) {
+                Thread.sleep(10);
+            }
+            if (report != null) {
+                report.stop();
+            }
+        }
+
+        void shutdown() {
+            clients.shutdown();
+        }
+
+        private String pick() {
+            int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; ; i++) {
+                if (draw < cumulativeWeights[i]) return operations[i];
+            }
+        }
+
+        private Request request(String operation) {
+            int user = random.nextInt(Math.max(liveUsers, 1));
+            switch (operation) {
+                case "get_by_id":
+                    return new Request("/get_users", "{\"user_id\":\"" + userId(user) + "\"}");
+                case "get_by_mob":
+                    return new Request("/get_users", "{\"mob_num\":\"" + (9000000000L + user) + "\"}");
+                case "get_by_manager":
+                    return new Request("/get_users", "{\"manager_id\":\"" + managerId(random.nextInt(managers)) + "\"}");
+                case "create":
+                    // Mobile numbers from 8000000000 up never collide with the seeded ones.
+                    long n = created++;
+                    return new Request("/create_user", "{\"full_name\":\"Created User " + n + "\",\"mob_num\":\"" + (8000000000L + n)
+                            + "\",\"pan_num\":\"ABCDE" + String.format("%04d", n % 10000) + "F\",\"manager_id\":\""
+                            + managerId(random.nextInt(managers)) + "\"}");
+                case "update":
+                    return new Request("/update_user", "{\"user_ids\":[\"" + userId(user) + "\"],\"update_data\":{\"full_name\":\"Updated User "
+                            + (updated++) + "\"}}");
+                case "delete":
+                    return new Request("/delete_user", "{\"user_id\":\"" + userId(--liveUsers) + "\"}");
+                default:
+                    throw new IllegalArgumentException("Unknown operation " + operation
+                            + "; use get_by_id, get_by_mob, get_by_manager, create, update or delete");
+            }
+        }
+
+        // Returns the HTTP status, or 0 if the request failed without one.
+        private int send(Request request) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.body);
+                }
+                int status = connection.getResponseCode();
+                // Drain the body so the connection goes back to the keep-alive cache.
+                InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                if (in != null) {
+                    try (InputStream body = in) {
+                        byte[] buffer = new byte[8192];
+                        while (body.read(buffer) > 0) {
+                            // discard
+                        }
+                    }
+                }
+                return status;
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+    }
+
+    static final class Request {
+        final String path;
+        final byte[] body;
+
+        Request(String path, String body) {
+            this.path = path;
+            this.body = body.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.company.project.cache;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups into batched queries, DataLoader style. The first caller to find
+ * no open batch opens one and becomes its leader: it waits up to the batch window for other
+ * callers to add keys, or until the batch is full, then runs one query for all of them on its
+ * own thread while the others wait for their results. A key already queued or being loaded is
+ * not loaded again; later callers share that result (single flight). Callers must treat the
+ * values as shared. After {@link #forgetInFlight} later callers only share loads whose query has
+ * not started yet. Callers wait at most the given timeout for a result.
+ */
+public class BatchLoader<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batchFunction;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchClosed = lock.newCondition();
+    // Guarded by lock: the batch still accepting keys, and the generation loads started in.
+    private Map<K, CompletableFuture<V>> open;
+    private long generation;
+
+    private final ConcurrentHashMap<K, Pending<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong keys = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param batchFunction loads the given keys in one go; keys it leaves out have no value
+     */
+    public BatchLoader(Function<Set<K>, Map<K, V>> batchFunction, Duration window, int maxBatchSize, Duration timeout) {
+        this.batchFunction = batchFunction;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Returns the value for the key, or null if it has none.
+     */
+    public V load(K key) {
+        return loadAll(Collections.singletonList(key)).get(key);
+    }
+
+    /**
+     * Returns the keys that have a value, in the order given; duplicates are looked up once.
+     */
+    public Map<K, V> loadAll(Collection<K> requested) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        List<Map<K, CompletableFuture<V>>> led = new ArrayList<>();
+        lock.lock();
+        try {
+            for (K key : requested) {
+                if (futures.containsKey(key)) {
+                    continue;
+                }
+                // A queued key is always shared: its query has not run yet. A running one only if
+                // nothing was invalidated since it started.
+                CompletableFuture<V> future = open != null ? open.get(key) : null;
+                if (future == null) {
+                    Pending<V> pending = inFlight.get(key);
+                    if (pending != null && pending.generation == generation) {
+                        future = pending.future;
+                    }
+                }
+                if (future != null) {
+                    coalesced.incrementAndGet();
+                    futures.put(key, future);
+                    continue;
+                }
+                future = new CompletableFuture<>();
+                inFlight.put(key, new Pending<>(future, generation));
+                futures.put(key, future);
+                if (open == null) {
+                    open = new LinkedHashMap<>();
+                    led.add(open);
+                }
+                open.put(key, future);
+                if (open.size() >= maxBatchSize) {
+                    // Full: its leader (possibly this thread) runs it now.
+                    open = null;
+                    batchClosed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Map<K, CompletableFuture<V>> batch : led) {
+            awaitWindow(batch);
+            dispatch(batch);
+        }
+
+        Map<K, V> values = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (Map.Entry<K, CompletableFuture<V>> entry : futures.entrySet()) {
+            V value = await(entry.getValue(), deadline);
+            if (value != null) {
+                values.put(entry.getKey(), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stops later callers from joining lookups whose query may already be running, e.g. after a
+     * write that query may not see; they load the key again. Callers already waiting still get
+     * their results, and queued keys stay shared.
+     */
+    public void forgetInFlight() {
+        lock.lock();
+        try {
+            generation++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Leaves the batch open for the window, unless it fills up first, then closes it.
+    private void awaitWindow(Map<K, CompletableFuture<V>> batch) {
+        lock.lock();
+        try {
+            long remaining = windowNanos;
+            while (open == batch && remaining > 0) {
+                remaining = batchClosed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (open == batch) {
+                open = null;
+            }
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch) {
+        batches.incrementAndGet();
+        keys.addAndGet(batch.size());
+        try {
+            Map<K, V> values = batchFunction.apply(batch.keySet());
+            batch.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            // Only this batch's entries; a newer load of the same key keeps its own.
+            batch.forEach((key, future) -> inFlight.computeIfPresent(key,
+                    (k, pending) -> pending.future == future ? null : pending));
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future, long deadline) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Batched lookup did not complete in time");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for a batched lookup");
+        }
+    }
+
+    private static final class Pending<V> {
+        final CompletableFuture<V> future;
+        final long generation;
+
+        Pending(CompletableFuture<V> future, long generation) {
+            this.future = future;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Number of batched queries run.
+     */
+    public AtomicLong batches() {
+        return batches;
+    }
+
+    /**
+     * Number of keys loaded by those queries.
+     */
+    public AtomicLong keys() {
+        return keys;
+    }
+
+    /**
+     * Number of lookups answered by a load of the same key that was already queued or running.
+     */
+    public AtomicLong coalesced() {
+        return coalesced;
+    }
+}
@@ -0,0 +1,104 @@
+package com.company.project.cache;
+
+import com.company.project.model.Manager;
+import com.company.project.repository.ManagerRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bounded, expiring cache in front of {@link ManagerRepository#getManagerById(UUID)}.
+ * Unknown and inactive ids are cached as empty entries with a shorter TTL.
+ * Hit rates are published as cache.gets through {@link MeterBinder}.
+ */
+@Component
+@Profile("!reactive")
+public class ManagerCache implements MeterBinder {
+
+    @Autowired
+    private ManagerRepository managerRepository;
+
+    @Value("${users.manager-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${users.manager-cache.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${users.manager-cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    private LoadingCache<UUID, Optional<Manager>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<UUID, Optional<Manager>>() {
+                    @Override
+                    public long expireAfterCreate(UUID key, Optional<Manager> value, long currentTime) {
+                        return value.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID key, Optional<Manager> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID key, Optional<Manager> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build(managerId -> Optional.ofNullable(managerRepository.getManagerById(managerId)));
+    }
+
+    /**
+     * Returns the active manager with the given id, or null if it does not exist or is inactive.
+     */
+    public Manager getManagerById(UUID managerId) {
+        return cache.get(managerId).orElse(null);
+    }
+
+    /**
+     * Drops the entry for an id, so the next lookup reads the managers table again. Nothing in
+     * this service writes managers; whatever retires one calls this through
+     * {@link ManagerCacheEndpoint} so the id stops being accepted at once rather than after
+     * users.manager-cache.ttl.
+     */
+    public void invalidate(UUID managerId) {
+        cache.invalidate(managerId);
+    }
+
+    /**
+     * Drops every entry, e.g. after managers were changed in bulk.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Hit, miss and eviction counters since startup.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "managers");
+    }
+}
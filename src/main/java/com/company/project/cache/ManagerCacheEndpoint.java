@@ -0,0 +1,40 @@
+package com.company.project.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Actuator endpoint for whatever changes the managers table, which this service only reads:
+ * DELETE /actuator/managercache/{managerId} after retiring or reactivating a manager, DELETE
+ * /actuator/managercache after changes in bulk. Without it a change takes effect once the cached
+ * entry expires (users.manager-cache.ttl, or negative-ttl for unknown ids). Each instance has
+ * its own cache, so the call goes to every instance.
+ */
+@Component
+@Endpoint(id = "managercache")
+public class ManagerCacheEndpoint {
+
+    // One of the two, depending on the stack.
+    @Autowired(required = false)
+    private ManagerCache managerCache;
+
+    @Autowired(required = false)
+    private ReactiveManagerCache reactiveManagerCache;
+
+    @DeleteOperation
+    public void invalidate(@Selector UUID managerId) {
+        if (managerCache != null) managerCache.invalidate(managerId);
+        if (reactiveManagerCache != null) reactiveManagerCache.invalidate(managerId);
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        if (managerCache != null) managerCache.invalidateAll();
+        if (reactiveManagerCache != null) reactiveManagerCache.invalidateAll();
+    }
+}
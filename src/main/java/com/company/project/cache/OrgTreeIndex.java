@@ -0,0 +1,222 @@
+package com.company.project.cache;
+
+import com.company.project.dto.OrgTreeNode;
+import com.company.project.dto.OrgTreeResponse;
+import com.company.project.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory reporting tree: active user -> manager_id, and manager_id -> direct reports.
+ * Loaded at startup with one streaming query and kept current by the user write paths, which
+ * call {@link #put} and {@link #remove} after their writes commit. A manager_id that is also
+ * some user's user_id links that user's own reports into the tree, so subtrees can be deeper
+ * than one level.
+ */
+@Component
+@Profile("!reactive")
+public class OrgTreeIndex implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrgTreeIndex.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.stream.fetch-size:1000}")
+    private int fetchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<UUID, UUID> managerOf = new HashMap<>();
+    private Map<UUID, Set<UUID>> reports = new HashMap<>();
+    // Writes made while a rebuild is loading, as {user_id, manager_id or null}; replayed before the swap.
+    private List<UUID[]> pending;
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the whole index from the users table. Reads keep using the old index until the
+     * new one, including writes made during the load, is swapped in.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<UUID, UUID> newManagerOf = new HashMap<>();
+        Map<UUID, Set<UUID>> newReports = new HashMap<>();
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> userRepository.streamManagerLinks(fetchSize,
+                    (userId, managerId) -> link(newManagerOf, newReports, userId, managerId)));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (UUID[] write : pending) {
+                link(newManagerOf, newReports, write[0], write[1]);
+            }
+            pending = null;
+            managerOf = newManagerOf;
+            reports = newReports;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Org tree index loaded {} reporting line(s) in {} ms", newManagerOf.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Records that an active user reports to the given manager (or to no one, when null).
+     */
+    public void put(UUID userId, UUID managerId) {
+        lock.writeLock().lock();
+        try {
+            link(managerOf, reports, userId, managerId);
+            if (pending != null) {
+                pending.add(new UUID[]{userId, managerId});
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a deleted or deactivated user. Its own reports, if any, stay under its id.
+     */
+    public void remove(UUID userId) {
+        put(userId, null);
+    }
+
+    public boolean hasReports(UUID managerId) {
+        lock.readLock().lock();
+        try {
+            return reports.containsKey(managerId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the subtree under the manager, breadth-first. Head-counts and depth cover the whole
+     * subtree; only the first maxDepth levels are listed. Ids seen twice (a cycle through a
+     * user acting as a manager) are not followed again.
+     */
+    public OrgTreeResponse subtree(UUID managerId, int maxDepth) {
+        List<UUID> ids = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        ids.add(managerId);
+        parents.add(-1);
+        levels.add(0);
+
+        lock.readLock().lock();
+        try {
+            Set<UUID> seen = new HashSet<>();
+            seen.add(managerId);
+            for (int i = 0; i < ids.size(); i++) {
+                for (UUID report : reports.getOrDefault(ids.get(i), Collections.emptySet())) {
+                    if (seen.add(report)) {
+                        ids.add(report);
+                        parents.add(i);
+                        levels.add(levels.get(i) + 1);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int size = ids.size();
+        int[] headcount = new int[size];
+        for (int i = size - 1; i > 0; i--) {
+            headcount[parents.get(i)] += headcount[i] + 1;
+        }
+        OrgTreeNode[] nodes = new OrgTreeNode[size];
+        List<OrgTreeNode> topLevel = new ArrayList<>();
+        int directReports = 0;
+        for (int i = 1; i < size; i++) {
+            int level = levels.get(i);
+            if (level == 1) directReports++;
+            if (level > maxDepth) continue;
+            OrgTreeNode node = new OrgTreeNode(ids.get(i));
+            node.setHeadcount(headcount[i]);
+            nodes[i] = node;
+            (level == 1 ? topLevel : nodes[parents.get(i)].getReports()).add(node);
+        }
+
+        OrgTreeResponse response = new OrgTreeResponse();
+        response.setManagerId(managerId);
+        response.setDirectReports(directReports);
+        response.setHeadcount(headcount[0]);
+        response.setDepth(size > 1 ? levels.get(size - 1) : 0);
+        response.setReports(topLevel);
+        return response;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return managerOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.org_tree.links", this, OrgTreeIndex::size)
+                .description("Active users with a manager in the org tree index")
+                .register(registry);
+    }
+
+    private static void link(Map<UUID, UUID> managerOf, Map<UUID, Set<UUID>> reports, UUID userId, UUID managerId) {
+        UUID previous = managerId != null ? managerOf.put(userId, managerId) : managerOf.remove(userId);
+        if (previous != null && !previous.equals(managerId)) {
+            Set<UUID> siblings = reports.get(previous);
+            siblings.remove(userId);
+            if (siblings.isEmpty()) reports.remove(previous);
+        }
+        if (managerId != null) {
+            reports.computeIfAbsent(managerId, key -> new HashSet<>(4)).add(userId);
+        }
+    }
+}
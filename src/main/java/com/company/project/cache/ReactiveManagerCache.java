@@ -0,0 +1,93 @@
+package com.company.project.cache;
+
+import com.company.project.model.Manager;
+import com.company.project.repository.reactive.ReactiveManagerRepository;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * {@link ManagerCache} for the reactive profile: same sizing and expiry, but loads through R2DBC
+ * and hands out the pending lookup, so concurrent misses for one id share a single query.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveManagerCache implements MeterBinder {
+
+    @Autowired
+    private ReactiveManagerRepository managerRepository;
+
+    @Value("${users.manager-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${users.manager-cache.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${users.manager-cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    private AsyncLoadingCache<UUID, Optional<Manager>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<UUID, Optional<Manager>>() {
+                    @Override
+                    public long expireAfterCreate(UUID key, Optional<Manager> value, long currentTime) {
+                        return value.isPresent() ? ttl.toNanos() : negativeTtl.toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(UUID key, Optional<Manager> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(UUID key, Optional<Manager> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync((managerId, executor) -> managerRepository.getManagerById(managerId)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture());
+    }
+
+    /**
+     * Emits the active manager with the given id, or completes empty if it does not exist or is inactive.
+     */
+    public Mono<Manager> getManagerById(UUID managerId) {
+        return Mono.fromFuture(() -> cache.get(managerId)).flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Drops the entry for an id; see {@link ManagerCache#invalidate(UUID)}.
+     */
+    public void invalidate(UUID managerId) {
+        cache.synchronous().invalidate(managerId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "managers.reactive");
+    }
+}
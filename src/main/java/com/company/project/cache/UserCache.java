@@ -0,0 +1,281 @@
+package com.company.project.cache;
+
+import com.company.project.datasource.ReadRouting;
+import com.company.project.model.User;
+import com.company.project.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of active users keyed by user_id and by mob_num.
+ * Callers must invalidate after every write that touches a user; a load that overlaps
+ * an invalidation is not cached, so a stale row can never be reinserted.
+ * Entries are copied on the way in and out because {@link User} is mutable.
+ * With read replicas configured, a row read from a replica is not cached while either of its
+ * keys was written within users.datasource.replica-max-lag, as the replica may not have it yet.
+ * Misses go through a {@link BatchLoader} per key, so concurrent misses within
+ * users.lookup.batch-window become one query and a key being loaded is not loaded twice.
+ * Hit rates are published as cache.gets through {@link MeterBinder}, batching as users.lookup.*.
+ */
+@Component
+@Profile("!reactive")
+public class UserCache implements MeterBinder {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${users.user-cache.max-size:100000}")
+    private long maxSize;
+
+    @Value("${users.user-cache.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${users.datasource.replicas:}")
+    private List<String> replicas;
+
+    @Value("${users.datasource.replica-max-lag:5s}")
+    private Duration replicaMaxLag;
+
+    // How long the first miss waits for others to share its query, and the most keys per query.
+    @Value("${users.lookup.batch-window:1ms}")
+    private Duration batchWindow;
+
+    @Value("${users.lookup.max-batch-size:500}")
+    private int maxBatchSize;
+
+    // How long a lookup waits for a batch, its own or one it joined, before giving up.
+    @Value("${users.lookup.timeout:30s}")
+    private Duration lookupTimeout;
+
+    private Cache<UUID, User> byId;
+    private Cache<String, User> byMob;
+    private BatchLoader<UUID, User> byIdLoader;
+    private BatchLoader<String, User> byMobLoader;
+
+    // user_ids and mob_nums written within the replica lag window; only kept when replicas are configured.
+    private Cache<Object, Boolean> recentWrites;
+    private volatile long lastInvalidateAllNanos;
+
+    // Bumped on every invalidation; loads that straddle a bump are not cached.
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        byMob = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(replicaMaxLag)
+                .build();
+        lastInvalidateAllNanos = System.nanoTime() - replicaMaxLag.toNanos();
+        byIdLoader = new BatchLoader<>(this::loadByIds, batchWindow, maxBatchSize, lookupTimeout);
+        byMobLoader = new BatchLoader<>(this::loadByMobs, batchWindow, maxBatchSize, lookupTimeout);
+    }
+
+    public User getUserById(UUID userId) {
+        User user = byId.getIfPresent(userId);
+        if (user != null) return copy(user);
+        user = byIdLoader.load(userId);
+        return user != null ? copy(user) : null;
+    }
+
+    public User getUserByMob(String mobNum) {
+        User user = byMob.getIfPresent(mobNum);
+        if (user != null) return copy(user);
+        user = byMobLoader.load(mobNum);
+        return user != null ? copy(user) : null;
+    }
+
+    /**
+     * The active users with the given ids, in the order asked for; ids without one are left out.
+     */
+    public List<User> getUsersByIds(Collection<UUID> userIds) {
+        return getAll(userIds, byId, byIdLoader);
+    }
+
+    /**
+     * The active users with the given mobile numbers, in the order asked for.
+     */
+    public List<User> getUsersByMobs(Collection<String> mobNums) {
+        return getAll(mobNums, byMob, byMobLoader);
+    }
+
+    private static <K> List<User> getAll(Collection<K> keys, Cache<K, User> cache, BatchLoader<K, User> loader) {
+        Map<K, User> found = new HashMap<>(cache.getAllPresent(keys));
+        if (found.size() < keys.size()) {
+            List<K> misses = new ArrayList<>(keys);
+            misses.removeAll(found.keySet());
+            found.putAll(loader.loadAll(misses));
+        }
+        List<User> users = new ArrayList<>(found.size());
+        for (K key : keys) {
+            User user = found.remove(key);
+            if (user != null) users.add(copy(user));
+        }
+        return users;
+    }
+
+    // Batch functions of the loaders. A single key keeps the point query.
+    private Map<UUID, User> loadByIds(Set<UUID> userIds) {
+        long loadGeneration = generation.get();
+        List<User> users = userIds.size() == 1
+                ? singletonOrEmpty(userRepository.getUserById(userIds.iterator().next()))
+                : userRepository.lookupUsersByIds(userIds);
+        Map<UUID, User> loaded = new HashMap<>();
+        for (User user : users) {
+            cache(user, loadGeneration);
+            loaded.put(user.getUserId(), user);
+        }
+        return loaded;
+    }
+
+    private Map<String, User> loadByMobs(Set<String> mobNums) {
+        long loadGeneration = generation.get();
+        List<User> users = mobNums.size() == 1
+                ? singletonOrEmpty(userRepository.getUserByMob(mobNums.iterator().next()))
+                : userRepository.lookupUsersByMobs(mobNums);
+        Map<String, User> loaded = new HashMap<>();
+        for (User user : users) {
+            cache(user, loadGeneration);
+            loaded.put(user.getMobNum(), user);
+        }
+        return loaded;
+    }
+
+    private static List<User> singletonOrEmpty(User user) {
+        return user != null ? Collections.singletonList(user) : Collections.emptyList();
+    }
+
+    private void cache(User user, long loadGeneration) {
+        if (mayBeStale(user)) return;
+        User cached = copy(user);
+        byId.put(cached.getUserId(), cached);
+        byMob.put(cached.getMobNum(), cached);
+        if (generation.get() != loadGeneration) {
+            // A write happened while we were reading; drop what we just stored.
+            byId.invalidate(cached.getUserId());
+            byMob.invalidate(cached.getMobNum());
+        }
+    }
+
+    // A replica read of a recently written user may predate the write.
+    private boolean mayBeStale(User user) {
+        if (replicas.isEmpty() || ReadRouting.pinnedToPrimary()) return false;
+        return System.nanoTime() - lastInvalidateAllNanos < replicaMaxLag.toNanos()
+                || recentWrites.getIfPresent(user.getUserId()) != null
+                || recentWrites.getIfPresent(user.getMobNum()) != null;
+    }
+
+    private void recordWrite(Object key) {
+        if (!replicas.isEmpty() && key != null) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Drops both keys of the given user. Call after the write has been applied.
+     */
+    public void invalidate(User user) {
+        invalidate(user.getUserId(), user.getMobNum());
+    }
+
+    /**
+     * Drops the entries for a user_id and the mob_num it had before the write.
+     */
+    public void invalidate(UUID userId, String mobNum) {
+        generation.incrementAndGet();
+        forgetInFlight();
+        recordWrite(userId);
+        recordWrite(mobNum);
+        User cached = byId.getIfPresent(userId);
+        byId.invalidate(userId);
+        byMob.invalidate(mobNum);
+        if (cached != null) {
+            recordWrite(cached.getMobNum());
+            byMob.invalidate(cached.getMobNum());
+        }
+    }
+
+    /**
+     * Drops every cached user with the given mobile number, for writes keyed by mob_num.
+     */
+    public void invalidateByMob(String mobNum) {
+        generation.incrementAndGet();
+        forgetInFlight();
+        recordWrite(mobNum);
+        byMob.invalidate(mobNum);
+        byId.asMap().values().removeIf(user -> mobNum.equals(user.getMobNum()));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        forgetInFlight();
+        lastInvalidateAllNanos = System.nanoTime();
+        byId.invalidateAll();
+        byMob.invalidateAll();
+    }
+
+    // A lookup joined after a write must not get a row read before it. Any key may be affected:
+    // the user's previous mob_num is not always known here.
+    private void forgetInFlight() {
+        byIdLoader.forgetInFlight();
+        byMobLoader.forgetInFlight();
+    }
+
+    public CacheStats idStats() {
+        return byId.stats();
+    }
+
+    public CacheStats mobStats() {
+        return byMob.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "users.by_id");
+        CaffeineCacheMetrics.monitor(registry, byMob, "users.by_mob");
+        bindLoader(registry, "by_id", byIdLoader);
+        bindLoader(registry, "by_mob", byMobLoader);
+    }
+
+    private static void bindLoader(MeterRegistry registry, String key, BatchLoader<?, ?> loader) {
+        List<Tag> tags = Collections.singletonList(Tag.of("key", key));
+        registry.more().counter("users.lookup.batches", tags, loader.batches());
+        registry.more().counter("users.lookup.keys", tags, loader.keys());
+        registry.more().counter("users.lookup.coalesced", tags, loader.coalesced());
+    }
+
+    private static User copy(User user) {
+        return new User(user.getUserId(), user.getManagerId(), user.getFullName(), user.getMobNum(),
+                user.getPanNum(), user.getCreatedAt(), user.getUpdatedAt(), user.isIsActive(),
+                user.getPersonId(), user.getValidFrom(), user.getValidTo());
+    }
+}
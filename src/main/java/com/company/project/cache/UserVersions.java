@@ -0,0 +1,125 @@
+package com.company.project.cache;
+
+import com.company.project.model.User;
+import com.company.project.model.UserVersion;
+import com.company.project.repository.UserVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Change counters behind the ETags of /get_users reads by user_id, mob_num and manager_id, so
+ * an unchanged answer can be confirmed with one primary-key read instead of the query and its
+ * serialization. Keys are hashed into users.etag.slots rows of user_versions (see
+ * {@link VersionSlots}); keys sharing a slot change together, which costs a full response now
+ * and then but never a wrong 304.
+ * The counters live in the database and the write paths bump them in the transaction of the
+ * change, so a write through any instance, of either stack, changes the ETag everywhere as soon
+ * as it commits. With read replicas configured no ETag is given for a key written within
+ * users.datasource.replica-max-lag, as the replica may not have the write yet; that is measured
+ * against the writer's clock, so instances' clocks must agree to well within the lag.
+ */
+@Component
+@Profile("!reactive")
+public class UserVersions {
+
+    @Autowired
+    private UserVersionRepository userVersionRepository;
+
+    @Value("${users.etag.slots:65536}")
+    private int slotCount;
+
+    @Value("${users.datasource.replicas:}")
+    private List<String> replicas;
+
+    @Value("${users.datasource.replica-max-lag:5s}")
+    private Duration replicaMaxLag;
+
+    private VersionSlots slots;
+
+    @PostConstruct
+    public void init() {
+        slots = new VersionSlots(slotCount);
+    }
+
+    /**
+     * Records a change to the given users: their user_ids, mob_nums and their managers' teams.
+     * Must be called in the transaction of the change.
+     */
+    public void changed(User... users) {
+        changed(Arrays.asList(users));
+    }
+
+    public void changed(Collection<User> users) {
+        SortedSet<Integer> changed = new TreeSet<>();
+        for (User user : users) {
+            slots.add(changed, user);
+        }
+        userVersionRepository.bump(changed, now());
+    }
+
+    /**
+     * Records a change to a user_id, a mob_num and a manager's team; null arguments are skipped.
+     * Must be called in the transaction of the change.
+     */
+    public void changed(UUID userId, String mobNum, UUID managerId) {
+        SortedSet<Integer> changed = new TreeSet<>();
+        slots.add(changed, userId, mobNum, managerId);
+        userVersionRepository.bump(changed, now());
+    }
+
+    /**
+     * Invalidates every ETag handed out so far, e.g. in the transaction of a bulk import.
+     */
+    public void changedAll() {
+        userVersionRepository.bump(Arrays.asList(VersionSlots.ALL), now());
+    }
+
+    public String userEtag(UUID userId) {
+        return etag(VersionSlots.USER, userId);
+    }
+
+    public String mobileEtag(String mobNum) {
+        return etag(VersionSlots.MOBILE, mobNum);
+    }
+
+    public String teamEtag(UUID managerId) {
+        return etag(VersionSlots.TEAM, managerId);
+    }
+
+    // Null when the key cannot be given an ETag yet; the read then answers in full. Read before
+    // the data, so a write in between makes the ETag older than the body, never newer.
+    private String etag(int kind, Object key) {
+        int hash = VersionSlots.hash(kind, key);
+        int slot = slots.slot(hash);
+        long all = 0;
+        long version = 0;
+        for (UserVersion row : userVersionRepository.getVersions(VersionSlots.ALL, slot)) {
+            if (!replicas.isEmpty() && System.currentTimeMillis() - row.getChangedAt().getTime() < replicaMaxLag.toMillis()) {
+                return null;
+            }
+            if (row.getSlot() == VersionSlots.ALL) {
+                all = row.getVersion();
+            } else {
+                version = row.getVersion();
+            }
+        }
+        // The key's hash keeps an ETag of one key from matching another key in the same slot.
+        return "W/\"" + Integer.toHexString(hash) + "-" + Long.toHexString(all) + "-" + Long.toHexString(version) + "\"";
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,65 @@
+package com.company.project.cache;
+
+import com.company.project.model.User;
+
+import java.util.SortedSet;
+import java.util.UUID;
+
+/**
+ * Where a user_id, mob_num or manager team has its row in the user_versions table. Every instance
+ * of either stack must hash keys the same way and use the same users.etag.slots, so this is a
+ * plain class shared by {@link UserVersions} and the reactive writers.
+ */
+public final class VersionSlots {
+
+    /**
+     * The row every ETag includes, bumped by changes that touch users wholesale, e.g. an import.
+     */
+    public static final int ALL = -1;
+
+    static final int USER = 1;
+    static final int MOBILE = 2;
+    static final int TEAM = 3;
+
+    private final int mask;
+
+    public VersionSlots(int slotCount) {
+        mask = (Integer.highestOneBit(Math.max(slotCount - 1, 1)) << 1) - 1;
+    }
+
+    /**
+     * Adds the slots of the user's user_id, mob_num and manager's team to the set.
+     */
+    public void add(SortedSet<Integer> slots, User user) {
+        add(slots, user.getUserId(), user.getMobNum(), user.getManagerId());
+    }
+
+    /**
+     * Adds the slots of a user_id, a mob_num and a manager's team; null arguments are skipped.
+     */
+    public void add(SortedSet<Integer> slots, UUID userId, String mobNum, UUID managerId) {
+        if (userId != null) slots.add(slot(hash(USER, userId)));
+        if (mobNum != null) slots.add(slot(hash(MOBILE, mobNum)));
+        if (managerId != null) slots.add(slot(hash(TEAM, managerId)));
+    }
+
+    int slot(int hash) {
+        return hash & mask;
+    }
+
+    // UUID.hashCode() folds both halves together, which is 0 for ids like 1111...-1111..., so
+    // UUIDs are mixed from their bits.
+    static int hash(int kind, Object key) {
+        long h;
+        if (key instanceof UUID) {
+            UUID uuid = (UUID) key;
+            h = uuid.getMostSignificantBits() * 0x9E3779B97F4A7C15L + uuid.getLeastSignificantBits();
+        } else {
+            h = key.hashCode();
+        }
+        h = (h ^ kind) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (int) h;
+    }
+}
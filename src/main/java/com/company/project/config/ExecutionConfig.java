@@ -0,0 +1,50 @@
+package com.company.project.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * users.execution.mode=virtual: Tomcat runs each request on a new virtual thread, and so does
+ * Spring MVC for streaming bodies. The executor is created reflectively so the project still
+ * builds for Java 8; startup fails with a clear message on a JVM older than 21.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.execution.mode", havingValue = "virtual")
+public class ExecutionConfig implements WebMvcConfigurer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    private final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            protocolHandler.setExecutor(virtualThreads);
+            logger.info("Tomcat requests run on virtual threads");
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreads));
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("users.execution.mode=virtual needs Java 21 or later; running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.company.project.config;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson customisation. Spring Boot registers every Module bean with the shared ObjectMapper.
+ */
+@Configuration
+public class JsonConfig {
+    // Replaces reflective property access with generated bytecode for the request and response types.
+    @Bean
+    public Module afterburnerModule() {
+        return new AfterburnerModule();
+    }
+}
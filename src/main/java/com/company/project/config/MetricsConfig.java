@@ -0,0 +1,41 @@
+package com.company.project.config;
+
+import com.company.project.metrics.SlowQueryDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the application DataSource in a {@link SlowQueryDataSource} when
+ * users.jdbc.slow-query-threshold is positive. Endpoint, pool and cache meters come from
+ * Spring Boot Actuator; see application.properties for histogram settings.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Static so the post-processor is registered before the DataSource is created.
+    @Bean
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(Environment environment,
+                                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        Duration threshold = Binder.get(environment)
+                .bind("users.jdbc.slow-query-threshold", Duration.class)
+                .orElse(Duration.ofMillis(500));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof SlowQueryDataSource)
+                        && !threshold.isZero() && !threshold.isNegative()) {
+                    return new SlowQueryDataSource((DataSource) bean, threshold.toNanos(), meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+}
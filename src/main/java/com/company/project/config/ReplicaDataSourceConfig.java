@@ -0,0 +1,78 @@
+package com.company.project.config;
+
+import com.company.project.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * users.datasource.replicas set: the application DataSource becomes a {@link ReplicaRoutingDataSource}
+ * over the spring.datasource primary and one Hikari pool per replica URL. Replica pools use the
+ * primary's credentials, are read-only and report pool metrics as replica-N. A replica that is down
+ * costs a read at most users.datasource.replica-connection-timeout before it falls back.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.datasource.replicas")
+public class ReplicaDataSourceConfig {
+
+    @Value("${users.datasource.replicas}")
+    private List<String> replicaUrls;
+
+    @Value("${users.datasource.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${users.datasource.replica-connection-timeout:1s}")
+    private Duration replicaConnectionTimeout;
+
+    @Value("${users.datasource.health-check-interval:5s}")
+    private Duration healthCheckInterval;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        // Same result as Spring Boot's own pooled DataSource, including spring.datasource.hikari.*.
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i));
+            replica.setUsername(properties.determineUsername());
+            replica.setPassword(properties.determinePassword());
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // Start even if the replica is down, and give up quickly so a read can fall back to the primary.
+            replica.setInitializationFailTimeout(-1);
+            replica.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+            if (registry != null) {
+                replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, healthCheckInterval);
+        if (registry != null) {
+            routing.bindTo(registry);
+        }
+        return routing;
+    }
+}
@@ -1,19 +1,36 @@
 package com.company.project.config;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
 import springfox.documentation.spi.DocumentationType;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import javax.servlet.Filter;
+
 /**
- * Swagger configuration for API documentation.
+ * Swagger configuration for API documentation. Springfox 2 only documents Spring MVC, so it is
+ * off in the reactive profile, and users.api-docs.enabled=false leaves it out altogether.
+ * With springfox.documentation.auto-startup=false the controllers are scanned on the first
+ * /v2/api-docs request instead of at startup.
  */
 @Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.api-docs.enabled", matchIfMissing = true)
 @EnableSwagger2
 public class SwaggerConfig {
+
+    @Autowired
+    private ObjectProvider<DocumentationPluginsBootstrapper> documentationBootstrapper;
+
     @Bean
     public Docket api() {
         return new Docket(DocumentationType.SWAGGER_2)
@@ -22,4 +39,21 @@ public class SwaggerConfig {
                 .paths(PathSelectors.any())
                 .build();
     }
+
+    // Springfox maps /v2/api-docs with its own handler mapping, so this is a filter rather than an interceptor.
+    @Bean
+    public FilterRegistrationBean<Filter> apiDocsBootstrapFilter() {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>((request, response, chain) -> {
+            DocumentationPluginsBootstrapper bootstrapper = documentationBootstrapper.getObject();
+            // Concurrent first requests wait for the one scan instead of finding no documentation.
+            synchronized (bootstrapper) {
+                if (!bootstrapper.isRunning()) {
+                    bootstrapper.start();
+                }
+            }
+            chain.doFilter(request, response);
+        });
+        registration.addUrlPatterns("/v2/api-docs");
+        return registration;
+    }
 }
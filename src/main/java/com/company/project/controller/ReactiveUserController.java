@@ -0,0 +1,65 @@
+package com.company.project.controller;
+
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.DeleteUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.service.ReactiveUserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link UserController}, active with the reactive profile. /get_users
+ * streams users as NDJSON or server-sent events (or a JSON array) and reads from the
+ * database only as fast as the client consumes.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserService userService;
+
+    @PostMapping("/create_user")
+    public Mono<ResponseEntity<CreateUserResponse>> createUser(@RequestBody CreateUserRequest request) {
+        return userService.createUser(request).map(response -> toResponse(response, response.getError()));
+    }
+
+    // An invalid request is answered with 400 and {"error": ...} before anything is streamed.
+    @PostMapping(value = "/get_users", produces = {"application/x-ndjson", MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> getUsers(@RequestBody(required = false) GetUsersRequest body) {
+        GetUsersRequest request = body != null ? body : new GetUsersRequest();
+        String error = userService.validateGetUsers(request);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(GetUsersResponse.error(error));
+        }
+        return ResponseEntity.ok(userService.getUsers(request));
+    }
+
+    @PostMapping("/delete_user")
+    public Mono<ResponseEntity<DeleteUserResponse>> deleteUser(@RequestBody DeleteUserRequest request) {
+        return userService.deleteUser(request).map(response -> toResponse(response, response.getError()));
+    }
+
+    @PostMapping("/update_user")
+    public Mono<ResponseEntity<UpdateUserResponse>> updateUser(@RequestBody UpdateUserRequest request) {
+        return userService.updateUser(request).map(response -> toResponse(response, response.getError()));
+    }
+
+    private static <T> ResponseEntity<T> toResponse(T response, String error) {
+        if (error != null) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,191 @@
+package com.company.project.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes /get_users responses: answers 304 when the client's If-None-Match still matches, and
+ * gzips JSON bodies of at least users.compression.min-size for clients that accept it. Counts
+ * what both save: for a 304 the bytes and CPU time of the last full response with that ETag,
+ * for compression the bytes before and after and the CPU time spent compressing.
+ */
+@Component
+@Profile("!reactive")
+public class ResponseEncoder implements MeterBinder {
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // ETags whose last full response is remembered for the saved-cost counters.
+    private static final int TRACKED_ETAGS = 10_000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${users.compression.enabled:true}")
+    private boolean compressionEnabled;
+
+    @Value("${users.compression.min-size:2KB}")
+    private DataSize minSize;
+
+    // 1 (fastest) to 9 (smallest).
+    @Value("${users.compression.level:1}")
+    private int level;
+
+    // ETag -> {bytes sent, CPU nanos spent} of its last full response.
+    private Cache<String, long[]> costs;
+
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+    private final AtomicLong savedCpuNanos = new AtomicLong();
+    private final AtomicLong compressed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong compressionCpuNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        costs = Caffeine.newBuilder().maximumSize(TRACKED_ETAGS).build();
+    }
+
+    /**
+     * CPU time of the calling thread so far; pass it to {@link #ok} from the same thread.
+     */
+    public long start() {
+        return cpuNanos();
+    }
+
+    /**
+     * True when an If-None-Match header lists the ETag. ETags are weak, so W/ prefixes are ignored.
+     */
+    public boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        String tag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || stripWeak(candidate).equals(tag)) return true;
+        }
+        return false;
+    }
+
+    public ResponseEntity<?> notModified(String etag) {
+        notModified.incrementAndGet();
+        long[] cost = costs.getIfPresent(etag);
+        if (cost != null) {
+            savedBytes.addAndGet(cost[0]);
+            savedCpuNanos.addAndGet(cost[1]);
+        }
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(varyHeaders()).eTag(etag).build();
+    }
+
+    /**
+     * A 200 with the body as JSON, gzipped if large enough and accepted, and the ETag if not null.
+     */
+    public ResponseEntity<byte[]> ok(Object body, String etag, String acceptEncoding, long startCpu) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        HttpHeaders headers = varyHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (compressionEnabled && json.length >= minSize.toBytes() && acceptsGzip(acceptEncoding)) {
+            long compressStart = cpuNanos();
+            byte[] gzipped = gzip(json);
+            compressionCpuNanos.addAndGet(cpuNanos() - compressStart);
+            compressed.incrementAndGet();
+            bytesIn.addAndGet(json.length);
+            bytesOut.addAndGet(gzipped.length);
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            json = gzipped;
+        }
+        if (etag != null) {
+            headers.setETag(etag);
+            costs.put(etag, new long[]{json.length, cpuNanos() - startCpu});
+        }
+        return new ResponseEntity<>(json, headers, HttpStatus.OK);
+    }
+
+    private HttpHeaders varyHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        if (compressionEnabled) {
+            headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+        }
+        return headers;
+    }
+
+    private byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    // gzip unless the client sent q=0 for it (or for * without naming gzip).
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) return accepted;
+            if (name.equals("*")) wildcard = accepted;
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static long cpuNanos() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.more().counter("users.etag.not_modified", Collections.emptyList(), notModified);
+        registry.more().counter("users.etag.saved.bytes", Collections.emptyList(), savedBytes);
+        seconds(registry, "users.etag.saved.cpu", savedCpuNanos);
+        registry.more().counter("users.compression.responses", Collections.emptyList(), compressed);
+        registry.more().counter("users.compression.bytes.in", Collections.emptyList(), bytesIn);
+        registry.more().counter("users.compression.bytes.out", Collections.emptyList(), bytesOut);
+        seconds(registry, "users.compression.cpu", compressionCpuNanos);
+    }
+
+    private static void seconds(MeterRegistry registry, String name, AtomicLong nanos) {
+        FunctionCounter.builder(name, nanos, value -> value.get() / 1e9).baseUnit("seconds").register(registry);
+    }
+}
@@ -1,64 +1,221 @@
 package com.company.project.controller;
 
 
+import com.company.project.dto.ChangesRequest;
+import com.company.project.dto.ChangesResponse;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.DeleteUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.OrgTreeRequest;
+import com.company.project.dto.OrgTreeResponse;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.execution.RequestExecution;
+import com.company.project.service.IdempotencyService;
+import com.company.project.service.UserCopyService;
+import com.company.project.service.UserEventService;
 import com.company.project.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
- * REST controller exposing user endpoints.
+ * REST controller exposing user endpoints. Handlers return whatever {@link RequestExecution#run}
+ * returns: the ResponseEntity itself, or a CompletableFuture of it in async mode. Single-user
+ * writes accept an Idempotency-Key header; see {@link IdempotencyService}. /get_users answers
+ * carry an ETag where possible and are gzipped when large; see {@link ResponseEncoder}.
  */
 @RestController
+@Profile("!reactive")
 @Api(value = "User Management System", tags = "User API")
 public class UserController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserCopyService userCopyService;
+
+    @Autowired
+    private RequestExecution requestExecution;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserEventService userEventService;
+
+    @Autowired
+    private ResponseEncoder responseEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @ApiOperation(value = "Create a new user")
     @PostMapping("/create_user")
-    public ResponseEntity<?> createUser(@RequestBody Map<String, Object> payload) {
-        Map<String, Object> response = userService.createUser(payload);
-        if (response.containsKey("error")) {
-            return ResponseEntity.badRequest().body(response);
+    public Object createUser(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                             @RequestBody CreateUserRequest request) throws Exception {
+        return requestExecution.run(() -> idempotencyService.run(idempotencyKey, "create_user", request, () -> {
+            CreateUserResponse response = userService.createUser(request);
+            if (response.getError() != null) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        }));
+    }
+
+    @ApiOperation(value = "Create users in bulk from a JSON array or NDJSON stream")
+    @PostMapping(value = "/create_users", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public Object createUsers(HttpServletRequest request, HttpServletResponse servletResponse,
+                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws Exception {
+        if (NDJSON.equalsIgnoreCase(accept)) {
+            // One line per row as its chunk commits, then the summary line; nothing is buffered.
+            return requestExecution.runOnRequestThread(() -> {
+                servletResponse.setContentType(NDJSON);
+                OutputStream out = servletResponse.getOutputStream();
+                Map<String, Object> summary = userService.createUsers(request.getInputStream(), result -> {
+                    out.write(objectMapper.writeValueAsBytes(result));
+                    out.write('\n');
+                });
+                out.write(objectMapper.writeValueAsBytes(summary));
+                out.write('\n');
+                out.flush();
+                return null;
+            });
         }
-        return ResponseEntity.ok(response);
+        return requestExecution.runOnRequestThread(() -> {
+            Map<String, Object> response = userService.createUsers(request.getInputStream());
+            if (response.containsKey("error")) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @ApiOperation(value = "Import users from CSV or NDJSON through PostgreSQL COPY")
+    @PostMapping(value = "/import_users", consumes = {"text/csv", "application/x-ndjson"})
+    public Object importUsers(HttpServletRequest request) throws Exception {
+        return requestExecution.runOnRequestThread(() -> {
+            boolean ndjson = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("application/x-ndjson"));
+            if (request.getCharacterEncoding() == null) {
+                request.setCharacterEncoding("UTF-8");
+            }
+            Map<String, Object> response = userCopyService.importUsers(request.getReader(), ndjson);
+            if (response.containsKey("error")) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @ApiOperation(value = "Export all users as CSV or NDJSON through PostgreSQL COPY")
+    @PostMapping("/export_users")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "csv") String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = requestExecution.limit(out -> userCopyService.exportUsers(ndjson, out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ndjson ? "application/x-ndjson" : "text/csv"))
+                .body(body);
     }
 
     @ApiOperation(value = "Retrieve user(s)")
     @PostMapping("/get_users")
-    public ResponseEntity<?> getUsers(@RequestBody(required = false) Map<String, Object> payload) {
-        if (payload == null) {
-            payload = new java.util.HashMap<>();
+    public Object getUsers(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                           @RequestBody(required = false) GetUsersRequest body) throws Exception {
+        GetUsersRequest request = body != null ? body : new GetUsersRequest();
+        return requestExecution.run(() -> {
+            // An unchanged answer is confirmed with one primary-key read, before and instead of the query.
+            String etag = userService.getUsersEtag(request);
+            if (responseEncoder.matches(ifNoneMatch, etag)) {
+                return responseEncoder.notModified(etag);
+            }
+            long start = responseEncoder.start();
+            GetUsersResponse response = userService.getUsers(request);
+            if (response.getError() != null) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return responseEncoder.ok(response, etag, acceptEncoding, start);
+        });
+    }
+
+    @ApiOperation(value = "User change events after a cursor, for incremental sync")
+    @PostMapping("/get_changes")
+    public Object getChanges(@RequestBody(required = false) ChangesRequest body) throws Exception {
+        ChangesRequest request = body != null ? body : new ChangesRequest();
+        return requestExecution.run(() -> {
+            ChangesResponse response = userEventService.getChanges(request);
+            if (response.getError() != null) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @ApiOperation(value = "Reporting tree, head-counts and depth under a manager")
+    @PostMapping("/get_org_tree")
+    public ResponseEntity<OrgTreeResponse> getOrgTree(@RequestBody OrgTreeRequest request) {
+        // Served from memory, so it does not take a database slot.
+        OrgTreeResponse response = userService.getOrgTree(request);
+        if (response.getError() != null) {
+            return ResponseEntity.badRequest().body(response);
         }
-        Map<String, Object> response = userService.getUsers(payload);
         return ResponseEntity.ok(response);
     }
 
+    @ApiOperation(value = "Stream all users as newline-delimited JSON")
+    @PostMapping(value = "/stream_users", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        StreamingResponseBody body = requestExecution.limit(userService::streamUsers);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @ApiOperation(value = "Delete a user")
     @PostMapping("/delete_user")
-    public ResponseEntity<?> deleteUser(@RequestBody Map<String, Object> payload) {
-        Map<String, Object> response = userService.deleteUser(payload);
-        if (response.containsKey("error")) {
-            return ResponseEntity.badRequest().body(response);
-        }
-        return ResponseEntity.ok(response);
+    public Object deleteUser(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                             @RequestBody DeleteUserRequest request) throws Exception {
+        return requestExecution.run(() -> idempotencyService.run(idempotencyKey, "delete_user", request, () -> {
+            DeleteUserResponse response = userService.deleteUser(request);
+            if (response.getError() != null) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        }));
     }
 
     @ApiOperation(value = "Update user(s)")
     @PostMapping("/update_user")
-    public ResponseEntity<?> updateUser(@RequestBody Map<String, Object> payload) {
-        Map<String, Object> response = userService.updateUser(payload);
-        if (response.containsKey("error")) {
-            return ResponseEntity.badRequest().body(response);
-        }
-        return ResponseEntity.ok(response);
+    public Object updateUser(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                             @RequestBody UpdateUserRequest request) throws Exception {
+        return requestExecution.run(() -> idempotencyService.run(idempotencyKey, "update_user", request, () -> {
+            UpdateUserResponse response = userService.updateUser(request);
+            if (response.getError() != null) {
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.ok(response);
+        }));
     }
 }
@@ -0,0 +1,67 @@
+package com.company.project.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing hints read by {@link ReplicaRoutingDataSource} when a connection is
+ * requested. Replica reads are opted into with {@link ReplicaRead}; {@link #onPrimary} pins
+ * everything it runs to the primary, for reads that must see the caller's own writes.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> REPLICA_READ = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Runs the action with every query on the primary, including {@link ReplicaRead} methods.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        try {
+            return action.get();
+        } finally {
+            PINNED_TO_PRIMARY.set(previous);
+        }
+    }
+
+    /**
+     * Runs the action with connections taken from a replica where possible, e.g. to open a
+     * read-only transaction there.
+     */
+    public static void onReplica(Runnable action) {
+        boolean previous = enterReplicaRead();
+        try {
+            action.run();
+        } finally {
+            exitReplicaRead(previous);
+        }
+    }
+
+    static boolean enterReplicaRead() {
+        boolean previous = REPLICA_READ.get();
+        REPLICA_READ.set(true);
+        return previous;
+    }
+
+    static void exitReplicaRead(boolean previous) {
+        REPLICA_READ.set(previous);
+    }
+
+    /**
+     * True if a connection requested now should come from a replica.
+     */
+    public static boolean replicaPreferred() {
+        return REPLICA_READ.get() && !PINNED_TO_PRIMARY.get();
+    }
+
+    /**
+     * True inside {@link #onPrimary}.
+     */
+    public static boolean pinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get();
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.project.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository read that may be served by a read replica. It only takes effect outside a
+ * transaction and outside {@link ReadRouting#onPrimary}, and only when replicas are configured.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
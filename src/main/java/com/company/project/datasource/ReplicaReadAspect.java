@@ -0,0 +1,25 @@
+package com.company.project.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets the replica hint around {@link ReplicaRead} methods. Inside a transaction the connection
+ * is already bound, so the hint has no effect there.
+ */
+@Aspect
+@Component
+public class ReplicaReadAspect {
+
+    @Around("@annotation(com.company.project.datasource.ReplicaRead)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadRouting.enterReplicaRead();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadRouting.exitReplicaRead(previous);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.company.project.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sends {@link ReadRouting#replicaPreferred() replica-preferred} connection requests round-robin
+ * to the healthy replicas and everything else to the primary. Replicas are probed every
+ * health-check interval and skipped while a probe or a connection attempt fails; with none
+ * healthy, reads fall back to the primary. Unwrapping (e.g. for pool metrics) reaches the primary.
+ * AutoCloseable so that wrappers such as SlowQueryDataSource pass the container's close on to it.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final String PRIMARY = "primary";
+
+    private final List<DataSource> replicas;
+    private final AtomicIntegerArray healthy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Duration healthCheckInterval;
+    private ScheduledExecutorService healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval) {
+        this.replicas = replicas;
+        this.healthy = new AtomicIntegerArray(replicas.size());
+        this.healthCheckInterval = healthCheckInterval;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            healthy.set(i, 1);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        healthChecks = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-health-"));
+        long millis = healthCheckInterval.toMillis();
+        healthChecks.scheduleWithFixedDelay(this::checkReplicas, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the health checks and closes the primary and replica pools.
+     */
+    @Override
+    public void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+        closeQuietly(primary());
+        replicas.forEach(ReplicaRoutingDataSource::closeQuietly);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                logger.warn("Failed to close data source: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!ReadRouting.replicaPreferred()) {
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            int candidate = (start + i) % size;
+            if (healthy.get(candidate) == 1) {
+                return candidate;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary().getConnection();
+        }
+        int replica = (Integer) key;
+        try {
+            return replicas.get(replica).getConnection();
+        } catch (SQLException e) {
+            markUnhealthy(replica, e);
+            return primary().getConnection();
+        }
+    }
+
+    public int healthyReplicas() {
+        int count = 0;
+        for (int i = 0; i < healthy.length(); i++) {
+            count += healthy.get(i);
+        }
+        return count;
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.datasource.replicas.healthy", this, ReplicaRoutingDataSource::healthyReplicas)
+                .description("Read replicas currently receiving reads")
+                .register(registry);
+    }
+
+    private DataSource primary() {
+        return getResolvedDefaultDataSource();
+    }
+
+    private void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean up;
+            try (Connection connection = replicas.get(i).getConnection()) {
+                up = connection.isValid((int) Math.max(1, healthCheckInterval.getSeconds()));
+            } catch (SQLException e) {
+                up = false;
+            }
+            if (up && healthy.getAndSet(i, 1) == 0) {
+                logger.info("Replica {} is healthy again; routing reads to it", i);
+            } else if (!up) {
+                markUnhealthy(i, null);
+            }
+        }
+    }
+
+    private void markUnhealthy(int replica, SQLException cause) {
+        if (healthy.getAndSet(replica, 0) == 1) {
+            logger.warn("Replica {} is unavailable; reads go elsewhere until it passes a health check{}", replica,
+                    cause != null ? ": " + cause.getMessage() : "");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.project.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request body of /get_changes. after is the cursor returned by the previous call (0 or absent
+ * to start from the oldest event kept); limit caps the events returned.
+ */
+@Data
+@NoArgsConstructor
+public class ChangesRequest {
+    private Long after;
+    private Integer limit;
+}
@@ -0,0 +1,30 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response body of /get_changes. cursor is the seq of the last event returned (the request's
+ * after when there are none) and goes in the next request; has_more is true when more events
+ * are already available.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangesResponse {
+    private List<UserEventDto> events;
+    private Long cursor;
+    @JsonProperty("has_more")
+    private Boolean hasMore;
+    private String error;
+
+    public static ChangesResponse error(String message) {
+        ChangesResponse response = new ChangesResponse();
+        response.setError(message);
+        return response;
+    }
+}
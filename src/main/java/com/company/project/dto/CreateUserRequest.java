@@ -0,0 +1,23 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request body of /create_user, and one row of /create_users.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateUserRequest {
+    @JsonProperty("full_name")
+    private String fullName;
+    @JsonProperty("mob_num")
+    private String mobNum;
+    @JsonProperty("pan_num")
+    private String panNum;
+    @JsonProperty("manager_id")
+    private String managerId;
+}
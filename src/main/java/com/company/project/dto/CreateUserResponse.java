@@ -0,0 +1,28 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response body of /create_user: a message on success, an error otherwise.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CreateUserResponse {
+    private String message;
+    private String error;
+
+    public static CreateUserResponse message(String message) {
+        CreateUserResponse response = new CreateUserResponse();
+        response.setMessage(message);
+        return response;
+    }
+
+    public static CreateUserResponse error(String message) {
+        CreateUserResponse response = new CreateUserResponse();
+        response.setError(message);
+        return response;
+    }
+}
@@ -0,0 +1,25 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Outcome for one row of /create_users: the user_id of the created user, or an error.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"row", "user_id", "error"})
+public class CreateUserResult {
+    private int row;
+    @JsonProperty("user_id")
+    private UUID userId;
+    private String error;
+}
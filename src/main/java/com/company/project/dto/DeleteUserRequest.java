@@ -0,0 +1,17 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request body of /delete_user; user_id takes precedence over mob_num.
+ */
+@Data
+@NoArgsConstructor
+public class DeleteUserRequest {
+    @JsonProperty("user_id")
+    private String userId;
+    @JsonProperty("mob_num")
+    private String mobNum;
+}
@@ -0,0 +1,28 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response body of /delete_user: a message on success, an error otherwise.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeleteUserResponse {
+    private String message;
+    private String error;
+
+    public static DeleteUserResponse message(String message) {
+        DeleteUserResponse response = new DeleteUserResponse();
+        response.setMessage(message);
+        return response;
+    }
+
+    public static DeleteUserResponse error(String message) {
+        DeleteUserResponse response = new DeleteUserResponse();
+        response.setError(message);
+        return response;
+    }
+}
@@ -0,0 +1,43 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request body of /get_users. The first filter present wins, in field order; with no
+ * filter a page of all users is returned. search matches full_name (prefix, then fuzzy) or,
+ * when it is all digits, part of mob_num; limit caps the ranked results.
+ * <p>
+ * user_ids and mob_nums look up many users in one call; users come back in the order asked
+ * for, and keys without an active user are left out.
+ * <p>
+ * history returns every version of the person behind user_id (any of its versions) or mob_num.
+ * as_of, an ISO-8601 date or date-time, returns that person's version, or the users reporting
+ * to manager_id, at that instant instead of now.
+ */
+@Data
+@NoArgsConstructor
+public class GetUsersRequest {
+    @JsonProperty("user_id")
+    private String userId;
+    @JsonProperty("mob_num")
+    private String mobNum;
+    @JsonProperty("user_ids")
+    private List<String> userIds;
+    @JsonProperty("mob_nums")
+    private List<String> mobNums;
+    @JsonProperty("manager_id")
+    private String managerId;
+    private String search;
+    private Integer limit;
+    @JsonProperty("page_size")
+    private Integer pageSize;
+    @JsonProperty("page_token")
+    private String pageToken;
+    private Boolean history;
+    @JsonProperty("as_of")
+    private String asOf;
+}
@@ -0,0 +1,27 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response body of /get_users. next_page_token is only present when another page exists.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GetUsersResponse {
+    private List<UserDto> users;
+    @JsonProperty("next_page_token")
+    private String nextPageToken;
+    private String error;
+
+    public static GetUsersResponse error(String message) {
+        GetUsersResponse response = new GetUsersResponse();
+        response.setError(message);
+        return response;
+    }
+}
@@ -0,0 +1,30 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One report in an org tree: headcount counts everyone below it, reports lists the next level.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonPropertyOrder({"user_id", "headcount", "reports"})
+public class OrgTreeNode {
+    @JsonProperty("user_id")
+    private UUID userId;
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    private int headcount;
+    private List<OrgTreeNode> reports = new ArrayList<>();
+
+    public OrgTreeNode(UUID userId) {
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,18 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request body of /get_org_tree. max_depth limits how many levels of the tree are returned;
+ * headcount and depth always cover the whole subtree.
+ */
+@Data
+@NoArgsConstructor
+public class OrgTreeRequest {
+    @JsonProperty("manager_id")
+    private String managerId;
+    @JsonProperty("max_depth")
+    private Integer maxDepth;
+}
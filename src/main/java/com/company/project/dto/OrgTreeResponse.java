@@ -0,0 +1,35 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response body of /get_org_tree: the manager's reporting tree with head-counts.
+ * depth is the number of levels below the manager (0 without reports).
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"manager_id", "direct_reports", "headcount", "depth", "reports", "error"})
+public class OrgTreeResponse {
+    @JsonProperty("manager_id")
+    private UUID managerId;
+    @JsonProperty("direct_reports")
+    private Integer directReports;
+    private Integer headcount;
+    private Integer depth;
+    private List<OrgTreeNode> reports;
+    private String error;
+
+    public static OrgTreeResponse error(String message) {
+        OrgTreeResponse response = new OrgTreeResponse();
+        response.setError(message);
+        return response;
+    }
+}
@@ -0,0 +1,19 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request body of /update_user.
+ */
+@Data
+@NoArgsConstructor
+public class UpdateUserRequest {
+    @JsonProperty("user_ids")
+    private List<String> userIds;
+    @JsonProperty("update_data")
+    private UserUpdateData updateData;
+}
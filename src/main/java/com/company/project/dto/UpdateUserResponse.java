@@ -0,0 +1,28 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response body of /update_user. error holds the last failure, if any; message is always set.
+ * results is only present for a bulk manager change and has one entry per requested user_id.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"message", "error", "results"})
+public class UpdateUserResponse {
+    private String message;
+    private String error;
+    private List<UpdateUserResult> results;
+
+    public static UpdateUserResponse error(String message) {
+        UpdateUserResponse response = new UpdateUserResponse();
+        response.setError(message);
+        return response;
+    }
+}
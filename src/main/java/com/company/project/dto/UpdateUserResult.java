@@ -0,0 +1,31 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Outcome for one user_id of a bulk manager change: status "updated" with the active record's id
+ * (the same user_id for a first manager, which is assigned in place), status "unchanged", or an
+ * error.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"user_id", "status", "new_user_id", "error"})
+public class UpdateUserResult {
+    @JsonProperty("user_id")
+    private String userId;
+    private String status;
+    @JsonProperty("new_user_id")
+    private UUID newUserId;
+    private String error;
+
+    public UpdateUserResult(String userId) {
+        this.userId = userId;
+    }
+}
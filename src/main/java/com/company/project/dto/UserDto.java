@@ -0,0 +1,45 @@
+package com.company.project.dto;
+
+import com.company.project.model.User;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * A user as returned by the API.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"userId", "managerId", "fullName", "mobNum", "panNum", "createdAt", "updatedAt", "isActive", "active", "personId", "validFrom", "validTo"})
+public class UserDto {
+    private UUID userId;
+    private UUID managerId;
+    private String fullName;
+    private String mobNum;
+    private String panNum;
+    private Timestamp createdAt;
+    private Timestamp updatedAt;
+    @JsonProperty("isActive")
+    private boolean active;
+    private UUID personId;
+    private Timestamp validFrom;
+    private Timestamp validTo;
+
+    // isActive again under its older name, which clients of the original API may still read.
+    @JsonProperty(value = "active", access = JsonProperty.Access.READ_ONLY)
+    public boolean getActiveAlias() {
+        return active;
+    }
+
+    public static UserDto from(User user) {
+        return new UserDto(user.getUserId(), user.getManagerId(), user.getFullName(), user.getMobNum(),
+                user.getPanNum(), user.getCreatedAt(), user.getUpdatedAt(), user.isIsActive(),
+                user.getPersonId(), user.getValidFrom(), user.getValidTo());
+    }
+}
@@ -0,0 +1,38 @@
+package com.company.project.dto;
+
+import com.company.project.model.UserEvent;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * A published change event as returned by /get_changes and written by the file sink. user is the
+ * record (in the /get_users format) when the event was published, or null if it was deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonPropertyOrder({"seq", "event_id", "type", "user_id", "occurred_at", "user"})
+public class UserEventDto {
+    private long seq;
+    @JsonProperty("event_id")
+    private long eventId;
+    private String type;
+    @JsonProperty("user_id")
+    private UUID userId;
+    @JsonProperty("occurred_at")
+    private Timestamp occurredAt;
+    @JsonRawValue
+    private String user;
+
+    public static UserEventDto from(UserEvent event) {
+        return new UserEventDto(event.getSeq(), event.getEventId(), event.getEventType(), event.getUserId(),
+                event.getCreatedAt(), event.getPayload());
+    }
+}
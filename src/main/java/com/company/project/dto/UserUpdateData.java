@@ -0,0 +1,73 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The update_data object of /update_user. Remembers which keys were sent, including
+ * explicit nulls and keys that are not updatable, so partial updates keep the old values.
+ */
+public class UserUpdateData {
+    private String fullName;
+    private String mobNum;
+    private String panNum;
+    private String managerId;
+    private final List<String> keys = new ArrayList<>();
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    @JsonProperty("full_name")
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+        keys.add("full_name");
+    }
+
+    public String getMobNum() {
+        return mobNum;
+    }
+
+    @JsonProperty("mob_num")
+    public void setMobNum(String mobNum) {
+        this.mobNum = mobNum;
+        keys.add("mob_num");
+    }
+
+    public String getPanNum() {
+        return panNum;
+    }
+
+    @JsonProperty("pan_num")
+    public void setPanNum(String panNum) {
+        this.panNum = panNum;
+        keys.add("pan_num");
+    }
+
+    public String getManagerId() {
+        return managerId;
+    }
+
+    @JsonProperty("manager_id")
+    public void setManagerId(String managerId) {
+        this.managerId = managerId;
+        keys.add("manager_id");
+    }
+
+    @JsonAnySetter
+    public void setOther(String key, Object value) {
+        keys.add(key);
+    }
+
+    public boolean containsKey(String key) {
+        return keys.contains(key);
+    }
+
+    // Keys in the order they appeared in the request
+    public List<String> keys() {
+        return keys;
+    }
+}
@@ -0,0 +1,48 @@
+package com.company.project.events;
+
+import com.company.project.model.UserEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the latest published events in memory, for tests and local runs
+ * (users.events.sink=memory).
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.events.sink", havingValue = "memory")
+public class InMemoryEventSink implements UserEventSink {
+
+    @Value("${users.events.memory-capacity:10000}")
+    private int capacity;
+
+    private final Deque<UserEvent> events = new ArrayDeque<>();
+
+    @Override
+    public synchronized void publish(List<UserEvent> batch) {
+        for (UserEvent event : batch) {
+            events.addLast(event);
+            if (events.size() > capacity) {
+                events.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * The retained events, oldest first.
+     */
+    public synchronized List<UserEvent> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,66 @@
+package com.company.project.events;
+
+import com.company.project.dto.UserEventDto;
+import com.company.project.model.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends published events to a file, one JSON object per line, in the /get_changes format
+ * (users.events.sink=file). Each batch is forced to disk before the relay commits it as published.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "users.events.sink", havingValue = "file")
+public class NdjsonFileEventSink implements UserEventSink {
+
+    @Value("${users.events.file:user-events.ndjson}")
+    private String file;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter eventWriter;
+    private Path path;
+
+    @PostConstruct
+    public void init() throws IOException {
+        eventWriter = objectMapper.writerFor(UserEventDto.class);
+        path = Paths.get(file).toAbsolutePath();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+    }
+
+    @Override
+    public synchronized void publish(List<UserEvent> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 256);
+        for (UserEvent event : events) {
+            lines.write(eventWriter.writeValueAsBytes(UserEventDto.from(event)));
+            lines.write('\n');
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
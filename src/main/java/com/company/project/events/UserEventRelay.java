@@ -0,0 +1,166 @@
+package com.company.project.events;
+
+import com.company.project.dto.UserDto;
+import com.company.project.model.UserEvent;
+import com.company.project.repository.UserEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the user_events outbox. Every relay interval it takes the oldest committed,
+ * unpublished events in batches, gives them the next seq numbers, stores the user record each
+ * refers to as its payload and hands the batch to the {@link UserEventSink}, all in one
+ * transaction: a batch the sink rejects stays unpublished and is retried, so delivery is
+ * at least once. With several instances a PostgreSQL advisory lock lets one relay run at a time,
+ * which keeps seq gap-free and in commit order. Without a sink events are only numbered, for
+ * /get_changes.
+ */
+@Component
+@Profile("!reactive")
+public class UserEventRelay implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserEventRelay.class);
+
+    @Autowired
+    private UserEventRepository userEventRepository;
+
+    @Autowired(required = false)
+    private UserEventSink sink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.events.relay-interval:1s}")
+    private Duration relayInterval;
+
+    @Value("${users.events.batch-size:500}")
+    private int batchSize;
+
+    // Published events are kept this long for /get_changes.
+    @Value("${users.events.retention:7d}")
+    private Duration retention;
+
+    @Value("${users.events.purge-interval:10m}")
+    private Duration purgeInterval;
+
+    private ScheduledExecutorService relay;
+    private TransactionTemplate transactionTemplate;
+    private ObjectWriter userWriter;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        userWriter = objectMapper.writerFor(UserDto.class);
+        relay = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("user-event-relay-"));
+        long millis = relayInterval.toMillis();
+        relay.scheduleWithFixedDelay(this::relay, millis, millis, TimeUnit.MILLISECONDS);
+        long purgeMillis = purgeInterval.toMillis();
+        relay.scheduleWithFixedDelay(this::purge, purgeMillis, purgeMillis, TimeUnit.MILLISECONDS);
+        logger.info("User events relay every {} ms to {}", millis, sink != null ? sink.getClass().getSimpleName() : "no sink");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.shutdownNow();
+    }
+
+    /**
+     * Publishes batches until the backlog is drained. Returns the number of events published.
+     */
+    public int relay() {
+        int total = 0;
+        try {
+            int count;
+            do {
+                count = transactionTemplate.execute(status -> publishBatch());
+                total += count;
+            } while (count == batchSize);
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            logger.warn("Publishing user events failed, will retry: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    private int publishBatch() {
+        if (!userEventRepository.tryLockRelay()) {
+            return 0;
+        }
+        List<UserEvent> events = userEventRepository.findUnpublished(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        long seq = userEventRepository.maxSeq();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (UserEvent event : events) {
+            event.setSeq(++seq);
+            event.setPublishedAt(now);
+            event.setPayload(event.getUser() != null ? toJson(event) : null);
+        }
+        userEventRepository.markPublished(events);
+        if (sink != null) {
+            try {
+                sink.publish(events);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        published.addAndGet(events.size());
+        return events.size();
+    }
+
+    private String toJson(UserEvent event) {
+        try {
+            return userWriter.writeValueAsString(UserDto.from(event.getUser()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize user " + event.getUserId(), e);
+        }
+    }
+
+    private void purge() {
+        try {
+            int purged = userEventRepository.purgePublished(new Timestamp(System.currentTimeMillis() - retention.toMillis()));
+            if (purged > 0) {
+                logger.info("Purged {} published user event(s)", purged);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to purge user events: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.more().counter("users.events.published", Collections.emptyList(), published);
+        registry.more().counter("users.events.relay.failures", Collections.emptyList(), failures);
+    }
+}
@@ -0,0 +1,15 @@
+package com.company.project.events;
+
+import com.company.project.model.UserEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the relay publishes change events. Batches arrive in seq order; a batch that throws is
+ * retried, so a sink may see events again and should treat event_id as the identity.
+ */
+public interface UserEventSink {
+
+    void publish(List<UserEvent> events) throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.company.project.execution;
+
+/**
+ * How user endpoints run their blocking service calls; selected with users.execution.mode.
+ */
+public enum ExecutionMode {
+    /** On the Tomcat worker thread, as before. */
+    PLATFORM,
+    /** On the Tomcat worker thread, which is a virtual thread per request. Needs Java 21. */
+    VIRTUAL,
+    /** Off the Tomcat thread, on a worker pool sized to the connection pool, via CompletableFuture. */
+    ASYNC
+}
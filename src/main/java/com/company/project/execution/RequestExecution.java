@@ -0,0 +1,178 @@
+package com.company.project.execution;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs controller handlers according to users.execution.mode and caps how many of them touch
+ * the database at once, so a burst queues here instead of timing out inside HikariCP.
+ * Requests that cannot get a slot within users.execution.acquire-timeout, or that overflow the
+ * async queue, get 503 with Retry-After.
+ */
+@Component
+@Profile("!reactive")
+public class RequestExecution implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestExecution.class);
+
+    /**
+     * A handler body; may throw, unlike a Supplier.
+     */
+    public interface Handler<T> {
+        T handle() throws Exception;
+    }
+
+    @Value("${users.execution.mode:platform}")
+    private ExecutionMode mode;
+
+    // Defaults to the HikariCP pool size: one in-flight handler per connection.
+    @Value("${users.execution.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}")
+    private int maxConcurrent;
+
+    @Value("${users.execution.acquire-timeout:5s}")
+    private Duration acquireTimeout;
+
+    @Value("${users.execution.queue-capacity:1000}")
+    private int queueCapacity;
+
+    private Semaphore permits;
+    private ThreadPoolExecutor asyncExecutor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrent, true);
+        if (mode == ExecutionMode.ASYNC) {
+            asyncExecutor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("user-request-"));
+        }
+        logger.info("User endpoints run in {} mode with at most {} concurrent handler(s)", mode, maxConcurrent);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Runs the handler on the calling thread, or in ASYNC mode hands it to the worker pool and
+     * returns a CompletableFuture that Spring MVC completes asynchronously. Controllers return
+     * the result as is.
+     */
+    public Object run(Handler<ResponseEntity<?>> handler) throws Exception {
+        if (mode != ExecutionMode.ASYNC) {
+            return limited(handler);
+        }
+        CompletableFuture<ResponseEntity<?>> result = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> {
+                try {
+                    result.complete(limited(handler));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return busy();
+        }
+        return result;
+    }
+
+    /**
+     * Runs the handler on the calling thread in every mode, under the same limit. For handlers
+     * that read the request body as they go: in ASYNC mode a worker would block on the client's
+     * upload, and read the request off the container thread that owns it.
+     */
+    public ResponseEntity<?> runOnRequestThread(Handler<ResponseEntity<?>> handler) throws Exception {
+        return limited(handler);
+    }
+
+    /**
+     * Wraps a streaming body so it takes a slot while it writes; it runs later on the MVC async
+     * executor, so the slot cannot be taken up front.
+     */
+    public StreamingResponseBody limit(StreamingResponseBody body) {
+        return out -> {
+            if (!acquire()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, retry later.");
+            }
+            try {
+                body.writeTo(out);
+            } finally {
+                permits.release();
+            }
+        };
+    }
+
+    private ResponseEntity<?> limited(Handler<ResponseEntity<?>> handler) throws Exception {
+        if (!acquire()) {
+            return busy();
+        }
+        try {
+            return handler.handle();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            if (permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Collections.singletonMap("error", "Server busy, retry later."));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("users.execution.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Handlers currently holding a slot")
+                .register(registry);
+        Gauge.builder("users.execution.waiting", this, e -> e.permits.getQueueLength()
+                        + (e.asyncExecutor != null ? e.asyncExecutor.getQueue().size() : 0))
+                .description("Requests waiting for a slot")
+                .register(registry);
+        registry.more().counter("users.execution.rejected", Collections.emptyList(), rejected);
+    }
+}
@@ -0,0 +1,96 @@
+package com.company.project.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public repository method and records how many rows it returned or changed.
+ * Meters: users.repository.calls (timer, tags class/method/outcome) and
+ * users.repository.rows (summary, tags class/method). Reactive repositories return a Mono or Flux
+ * before any query runs, so they are left out. Meters are built once per method and reused.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Method, Meters> meters = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.company.project.repository..*(..)) && !within(com.company.project.repository.reactive..*)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Meters methodMeters = meters.computeIfAbsent(signature.getMethod(), method -> new Meters(signature));
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            if (methodMeters.rows != null) {
+                methodMeters.rows.record(rowCount(result));
+            }
+            return result;
+        } finally {
+            (success ? methodMeters.success : methodMeters.error).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // The meters of one repository method; rows is null for void methods.
+    private class Meters {
+        final Timer success;
+        final Timer error;
+        final DistributionSummary rows;
+
+        Meters(MethodSignature signature) {
+            String className = signature.getDeclaringType().getSimpleName();
+            String methodName = signature.getName();
+            success = timer(className, methodName, "success");
+            error = timer(className, methodName, "error");
+            rows = signature.getReturnType() == void.class ? null : DistributionSummary.builder("users.repository.rows")
+                    .description("Rows returned or affected per repository call")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .register(meterRegistry);
+        }
+
+        private Timer timer(String className, String methodName, String outcome) {
+            return Timer.builder("users.repository.calls")
+                    .description("Repository method latency")
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    // Lists and single rows count what was read; update counts and COPY totals what was written.
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) return ((Collection<?>) result).size();
+        if (result instanceof Integer) return (Integer) result;
+        if (result instanceof Long) return (Long) result;
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                // Statement.SUCCESS_NO_INFO (-2) from rewritten batches counts as one row.
+                rows += count >= 0 ? count : 1;
+            }
+            return rows;
+        }
+        return result == null ? 0 : 1;
+    }
+}
@@ -0,0 +1,172 @@
+package com.company.project.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Logs statements whose execute call takes longer than a threshold, with the SQL, the number of
+ * bind parameters and, for batches, the number of rows. Only the execute call is timed, so for
+ * queries this is the time to the first fetch, not to the last row. COPY goes through the
+ * driver's copy API and is not seen here.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryDataSource.class);
+
+    private final long thresholdNanos;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private volatile Counter slowQueries;
+
+    public SlowQueryDataSource(DataSource target, long thresholdNanos, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(target);
+        this.thresholdNanos = thresholdNanos;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    // Lets the container close the wrapped pool on shutdown, as it would without the wrapper.
+    @Override
+    public void close() throws Exception {
+        DataSource target = obtainTargetDataSource();
+        if (target instanceof AutoCloseable) {
+            ((AutoCloseable) target).close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = invokeTarget(target, method, args);
+            String name = method.getName();
+            if (name.equals("prepareStatement") || name.equals("prepareCall")) {
+                return wrapStatement((Statement) result, (String) args[0]);
+            }
+            if (name.equals("createStatement")) {
+                return wrapStatement((Statement) result, null);
+            }
+            return result;
+        }
+    }
+
+    private Statement wrapStatement(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(statement, sql));
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private String sql;
+        private int batchRows;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch")) {
+                batchRows++;
+                if (args != null && args.length == 1) sql = (String) args[0];
+            } else if (name.equals("clearBatch")) {
+                batchRows = 0;
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(target, method, args);
+            }
+
+            String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= thresholdNanos) {
+                    logSlowQuery(executed, elapsed, name.equals("executeBatch") ? batchRows : 0);
+                }
+                if (name.equals("executeBatch")) batchRows = 0;
+            }
+        }
+    }
+
+    private void logSlowQuery(String sql, long elapsedNanos, int batchRows) {
+        if (batchRows > 0) {
+            logger.warn("Slow query: {} ms, {} bind(s) x {} batch row(s): {}",
+                    elapsedNanos / 1_000_000, countBinds(sql), batchRows, sql);
+        } else {
+            logger.warn("Slow query: {} ms, {} bind(s): {}", elapsedNanos / 1_000_000, countBinds(sql), sql);
+        }
+        Counter counter = slowQueries;
+        if (counter == null) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) return;
+            counter = Counter.builder("users.jdbc.slow.queries")
+                    .description("Statements slower than users.jdbc.slow-query-threshold")
+                    .register(registry);
+            slowQueries = counter;
+        }
+        counter.increment();
+    }
+
+    // Counts '?' placeholders outside string literals.
+    static int countBinds(String sql) {
+        if (sql == null) return 0;
+        int binds = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                binds++;
+            }
+        }
+        return binds;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.company.project.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how long the JVM took to become ready and its resident set size at that point, as one
+ * log line and the gauges users.startup.time and users.process.rss. The time counts from JVM
+ * start, so class loading and CDS savings show up in it. With users.startup.exit-on-ready the
+ * application stops right after reporting, for startup measurements and CDS training runs.
+ */
+@Component
+public class StartupMetrics implements ApplicationListener<ApplicationReadyEvent>, MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupMetrics.class);
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    @Value("${users.startup.exit-on-ready:false}")
+    private boolean exitOnReady;
+
+    private volatile long readyMillis = -1;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long rss = residentSetBytes();
+        logger.info("Startup: ready in {} ms, RSS {} MB, heap used {} MB, {} classes loaded, CDS archive {}",
+                readyMillis,
+                rss < 0 ? "n/a" : String.valueOf(rss >> 20),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20,
+                ManagementFactory.getClassLoadingMXBean().getLoadedClassCount(),
+                sharedArchive());
+        if (exitOnReady) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    /**
+     * VmRSS from /proc/self/status, or -1 where that is not available (non-Linux hosts).
+     */
+    static long residentSetBytes() {
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmRSS:")) {
+                    // "VmRSS:    123456 kB"
+                    return Long.parseLong(line.substring(6).replace("kB", "").trim()) << 10;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Cannot read RSS: {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    private static String sharedArchive() {
+        List<String> arguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        for (String argument : arguments) {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) {
+                return argument.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        return "default";
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        TimeGauge.builder("users.startup.time", this, TimeUnit.MILLISECONDS, metrics -> metrics.readyMillis < 0 ? Double.NaN : metrics.readyMillis)
+                .description("JVM uptime when the application became ready")
+                .register(registry);
+        Gauge.builder("users.process.rss", () -> {
+                    long rss = residentSetBytes();
+                    return rss < 0 ? Double.NaN : rss;
+                })
+                .description("Resident set size of the process")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,22 @@
+package com.company.project.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * A request sent with an Idempotency-Key header and, once it finished, its response.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    private String idempotencyKey;
+    private String requestHash;
+    // Null while the first request is still running.
+    private Integer statusCode;
+    private String responseBody;
+    private Timestamp createdAt;
+}
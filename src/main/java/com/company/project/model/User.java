@@ -22,6 +22,11 @@ public class User {
     private Timestamp createdAt;
     private Timestamp updatedAt;
     private boolean isActive;
+    // Shared by every version of the same person; the user_id of the first version.
+    private UUID personId;
+    private Timestamp validFrom;
+    // Null while the version is active.
+    private Timestamp validTo;
 
     public boolean isIsActive() {
         return isActive;
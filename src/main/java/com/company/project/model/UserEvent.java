@@ -0,0 +1,36 @@
+package com.company.project.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * A row of the user_events outbox: one change to one user record, written in the transaction
+ * that made the change and published later by the relay.
+ */
+@Data
+@NoArgsConstructor
+public class UserEvent {
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    // A first manager assigned in place, or the new record of a user moved to another manager.
+    // The history row kept for an assignment in place gets no event.
+    public static final String MANAGER_CHANGED = "manager_changed";
+    // The record a manager change replaced; it stays as history.
+    public static final String DEACTIVATED = "deactivated";
+    public static final String DELETED = "deleted";
+
+    private long eventId;
+    private String eventType;
+    private UUID userId;
+    private Timestamp createdAt;
+    // Publication order, gap-free and set by the relay; null until published.
+    private Long seq;
+    private Timestamp publishedAt;
+    // The record as JSON when the event was published; null if it was deleted by then.
+    private String payload;
+    // The record read by the relay to build the payload; not stored.
+    private User user;
+}
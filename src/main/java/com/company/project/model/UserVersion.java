@@ -0,0 +1,19 @@
+package com.company.project.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+
+/**
+ * One row of user_versions: the change counter of a slot and when it last changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserVersion {
+    private int slot;
+    private long version;
+    private Timestamp changedAt;
+}
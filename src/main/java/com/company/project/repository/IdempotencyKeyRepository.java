@@ -0,0 +1,78 @@
+package com.company.project.repository;
+
+import com.company.project.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Repository for the idempotency_keys table. Every method is a single statement on the primary;
+ * the claim and take-over are conditional so only one request runs per key.
+ */
+@Repository
+@Profile("!reactive")
+public class IdempotencyKeyRepository {
+
+    final RowMapper<IdempotencyRecord> recordRowMapper = (rs, rowNum) -> new IdempotencyRecord(
+            rs.getString("idempotency_key"),
+            rs.getString("request_hash"),
+            (Integer) rs.getObject("status_code"),
+            rs.getString("response_body"),
+            rs.getTimestamp("created_at"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the key as in progress. Returns false if it is already taken.
+     */
+    public boolean claim(String key, String requestHash, Timestamp now) {
+        String sql = "INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+        return jdbcTemplate.update(sql, key, requestHash, now) > 0;
+    }
+
+    public IdempotencyRecord find(String key) {
+        String sql = "SELECT * FROM idempotency_keys WHERE idempotency_key = ?";
+        List<IdempotencyRecord> records = jdbcTemplate.query(sql, recordRowMapper, key);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    /**
+     * Claims a key whose record expired or whose request was abandoned, provided the record is
+     * still the one read at {@code seenCreatedAt}. Returns false if another request got there first.
+     */
+    public boolean takeOver(String key, String requestHash, Timestamp seenCreatedAt, Timestamp now) {
+        String sql = "UPDATE idempotency_keys SET request_hash = ?, status_code = NULL, response_body = NULL, created_at = ?"
+                + " WHERE idempotency_key = ? AND created_at = ?";
+        return jdbcTemplate.update(sql, requestHash, now, key, seenCreatedAt) > 0;
+    }
+
+    /**
+     * Stores the response of the request that claimed the key at {@code claimedAt}. Returns false
+     * if the claim was taken over in the meantime, in which case the record is left to the request
+     * that took it.
+     */
+    public boolean complete(String key, Timestamp claimedAt, int statusCode, String responseBody) {
+        String sql = "UPDATE idempotency_keys SET status_code = ?, response_body = ? WHERE idempotency_key = ? AND created_at = ?";
+        return jdbcTemplate.update(sql, statusCode, responseBody, key, claimedAt) > 0;
+    }
+
+    /**
+     * Forgets the in-progress key claimed at {@code claimedAt}, so the request can be retried with
+     * it. A claim taken over by another request is left alone.
+     */
+    public void release(String key, Timestamp claimedAt) {
+        String sql = "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND created_at = ? AND status_code IS NULL";
+        jdbcTemplate.update(sql, key, claimedAt);
+    }
+
+    public int purgeExpired(Timestamp createdBefore) {
+        String sql = "DELETE FROM idempotency_keys WHERE created_at < ?";
+        return jdbcTemplate.update(sql, createdBefore);
+    }
+}
@@ -1,27 +1,33 @@
 package com.company.project.repository;
 
 
+import com.company.project.datasource.ReplicaRead;
 import com.company.project.model.Manager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Repository for Manager operations.
  */
 @Repository
+@Profile("!reactive")
 public class ManagerRepository {
 
-    private final RowMapper<Manager> managerRowMapper = new RowMapper<Manager>() {
+    final RowMapper<Manager> managerRowMapper = new RowMapper<Manager>() {
         @Override
         public Manager mapRow(ResultSet rs, int rowNum) throws SQLException {
             Manager manager = new Manager();
-            manager.setManagerId(java.util.UUID.fromString(rs.getString("manager_id")));
+            manager.setManagerId(rs.getObject("manager_id", UUID.class));
             manager.setFullName(rs.getString("full_name"));
             manager.setEmail(rs.getString("email"));
             manager.setIsActive(rs.getBoolean("is_active"));
@@ -32,9 +38,18 @@ public class ManagerRepository {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
-    public Manager getManagerById(String managerId) {
+    @ReplicaRead
+    public Manager getManagerById(UUID managerId) {
         String sql = "SELECT * FROM managers WHERE manager_id = ? AND is_active = true";
         List<Manager> managers = jdbcTemplate.query(sql, new Object[]{managerId}, managerRowMapper);
         return managers.isEmpty() ? null : managers.get(0);
     }
+
+    /**
+     * The ids of all active managers, for validating many rows without a query per row.
+     */
+    @ReplicaRead
+    public Set<UUID> getActiveManagerIds() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT manager_id FROM managers WHERE is_active = true", UUID.class));
+    }
 }
@@ -0,0 +1,147 @@
+package com.company.project.repository;
+
+import com.company.project.datasource.ReplicaRead;
+import com.company.project.model.UserEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for the user_events outbox. Writers append events in the transaction of the
+ * change; the relay numbers and publishes them; /get_changes reads them in publication order.
+ */
+@Repository
+@Profile("!reactive")
+public class UserEventRepository {
+
+    // Arbitrary key of the PostgreSQL advisory lock that lets one relay run at a time.
+    private static final long RELAY_LOCK = 0x5553_4552_4556L;
+
+    final RowMapper<UserEvent> eventRowMapper = (rs, rowNum) -> {
+        UserEvent event = new UserEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setEventType(rs.getString("event_type"));
+        event.setUserId(rs.getObject("user_id", UUID.class));
+        event.setCreatedAt(rs.getTimestamp("created_at"));
+        event.setSeq((Long) rs.getObject("seq", Long.class));
+        event.setPublishedAt(rs.getTimestamp("published_at"));
+        event.setPayload(rs.getString("payload"));
+        return event;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private boolean postgres;
+
+    @PostConstruct
+    public void init() {
+        postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+    }
+
+    public void append(String eventType, UUID userId, Timestamp createdAt) {
+        String sql = "INSERT INTO user_events (event_type, user_id, created_at) VALUES (?, ?, ?)";
+        jdbcTemplate.update(sql, eventType, userId, createdAt);
+    }
+
+    public void append(String eventType, Collection<UUID> userIds, Timestamp createdAt) {
+        if (userIds.isEmpty()) return;
+        String sql = "INSERT INTO user_events (event_type, user_id, created_at) VALUES (?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, userIds, userIds.size(), (ps, userId) -> {
+            ps.setString(1, eventType);
+            ps.setObject(2, userId);
+            ps.setTimestamp(3, createdAt);
+        });
+    }
+
+    /**
+     * Appends a created event for every user imported by {@link UserRepository#copyUsersIn} in
+     * the current transaction, in one statement. Returns the number of events.
+     */
+    public int appendImported(Timestamp createdAt) {
+        String sql = "INSERT INTO user_events (event_type, user_id, created_at)"
+                + " SELECT ?, user_id, ? FROM " + UserRepository.IMPORT_TABLE;
+        return jdbcTemplate.update(sql, UserEvent.CREATED, createdAt);
+    }
+
+    /**
+     * Takes the relay lock for the current transaction. Returns false if another instance's
+     * relay holds it. H2 runs in process, so there is only ever one relay.
+     */
+    public boolean tryLockRelay() {
+        if (!postgres) return true;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK));
+    }
+
+    /**
+     * The oldest unpublished events with the user record each refers to, as it is now (null
+     * once deleted). Only committed events are visible, so a transaction that commits late is
+     * picked up by a later batch rather than skipped.
+     */
+    public List<UserEvent> findUnpublished(int limit) {
+        String sql = "SELECT e.event_id, e.event_type, e.user_id AS event_user_id, e.created_at AS event_created_at, u.*"
+                + " FROM user_events e LEFT JOIN users u ON u.user_id = e.user_id"
+                + " WHERE e.seq IS NULL ORDER BY e.event_id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            UserEvent event = new UserEvent();
+            event.setEventId(rs.getLong("event_id"));
+            event.setEventType(rs.getString("event_type"));
+            event.setUserId(rs.getObject("event_user_id", UUID.class));
+            event.setCreatedAt(rs.getTimestamp("event_created_at"));
+            if (rs.getObject("user_id") != null) {
+                event.setUser(UserRepository.userRowMapper.mapRow(rs, rowNum));
+            }
+            return event;
+        }, limit);
+    }
+
+    public long maxSeq() {
+        Long seq = jdbcTemplate.queryForObject("SELECT max(seq) FROM user_events", Long.class);
+        return seq != null ? seq : 0;
+    }
+
+    public void markPublished(List<UserEvent> events) {
+        String sql = "UPDATE user_events SET seq = ?, published_at = ?, payload = ? WHERE event_id = ?";
+        jdbcTemplate.batchUpdate(sql, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getSeq());
+            ps.setTimestamp(2, event.getPublishedAt());
+            ps.setString(3, event.getPayload());
+            ps.setLong(4, event.getEventId());
+        });
+    }
+
+    /**
+     * Published events with seq greater than the cursor, in publication order.
+     */
+    @ReplicaRead
+    public List<UserEvent> getChanges(long afterSeq, int limit) {
+        String sql = "SELECT * FROM user_events WHERE seq > ? ORDER BY seq LIMIT ?";
+        return jdbcTemplate.query(sql, eventRowMapper, afterSeq, limit);
+    }
+
+    /**
+     * The smallest seq still kept, or null if none is; cursors below it have missed purged events.
+     */
+    @ReplicaRead
+    public Long minSeq() {
+        return jdbcTemplate.queryForObject("SELECT min(seq) FROM user_events", Long.class);
+    }
+
+    /**
+     * Deletes events published before the given time. The latest event is kept, so seq keeps
+     * counting from it and an expired cursor can still be told apart from an up-to-date one.
+     */
+    public int purgePublished(Timestamp publishedBefore) {
+        String sql = "DELETE FROM user_events WHERE published_at < ? AND seq < (SELECT max(seq) FROM user_events)";
+        return jdbcTemplate.update(sql, publishedBefore);
+    }
+}
@@ -1,103 +1,615 @@
 package com.company.project.repository;
 
+import com.company.project.datasource.ReplicaRead;
 import com.company.project.model.User;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Repository for User CRUD operations using JdbcTemplate.
  */
 @Repository
+@Profile("!reactive")
 public class UserRepository {
 
-    private final RowMapper<User> userRowMapper = new RowMapper<User>() {
+    // Static so other repositories can map joined user columns; the bean itself is an AOP proxy.
+    static final RowMapper<User> userRowMapper = new RowMapper<User>() {
         @Override
         public User mapRow(ResultSet rs, int rowNum) throws SQLException {
             User user = new User();
-            user.setUserId(UUID.fromString(rs.getString("user_id")));
-            String managerIdStr = rs.getString("manager_id");
-            if (managerIdStr != null) {
-                user.setManagerId(UUID.fromString(managerIdStr));
-            }
+            user.setUserId(rs.getObject("user_id", UUID.class));
+            user.setManagerId(rs.getObject("manager_id", UUID.class));
             user.setFullName(rs.getString("full_name"));
             user.setMobNum(rs.getString("mob_num"));
             user.setPanNum(rs.getString("pan_num"));
             user.setCreatedAt(rs.getTimestamp("created_at"));
             user.setUpdatedAt(rs.getTimestamp("updated_at"));
             user.setIsActive(rs.getBoolean("is_active"));
+            user.setPersonId(rs.getObject("person_id", UUID.class));
+            user.setValidFrom(rs.getTimestamp("valid_from"));
+            user.setValidTo(rs.getTimestamp("valid_to"));
             return user;
         }
     };
+
+    /**
+     * Shortest name search term that is also matched by similarity; shorter terms share a trigram
+     * with most names, so the similarity query would rank nearly every active user.
+     */
+    public static final int MIN_FUZZY_TERM_LENGTH = 3;
+
+    /**
+     * Temporary table holding the rows of the current {@link #copyUsersIn} import until commit.
+     */
+    public static final String IMPORT_TABLE = "users_import";
+
+    // Matches the expression of idx_users_full_name_prefix_active, so the LIKE is a range scan in index order.
+    private static final String PREFIX_NAME_SEARCH = "SELECT * FROM users WHERE is_active = true"
+            + " AND lower(full_name) COLLATE \"C\" LIKE ? ORDER BY lower(full_name) COLLATE \"C\", user_id LIMIT ?";
+    private static final String FUZZY_NAME_SEARCH = "SELECT * FROM users WHERE is_active = true"
+            + " AND lower(full_name) % ? AND lower(full_name) NOT LIKE ?"
+            + " ORDER BY similarity(lower(full_name), ?) DESC, full_name, user_id LIMIT ?";
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    // On PostgreSQL writes read back the rows they changed with RETURNING, in the same round trip.
+    // H2 (local runs and benchmarks) reads the rows first; it runs in process, so that costs no round trip.
+    private boolean postgres;
+
+    @PostConstruct
+    public void init() {
+        postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> "PostgreSQL".equals(con.getMetaData().getDatabaseProductName()));
+    }
+
+    /**
+     * Inserts the user, or nothing when the row conflicts with a unique index: on PostgreSQL an
+     * active user with the same mob_num (see indexes.sql). Returns 0 in that case.
+     */
     public int createUser(User user) {
-        String sql = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from, valid_to)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
         return jdbcTemplate.update(sql,
-                user.getUserId().toString(),
-                user.getManagerId() != null ? user.getManagerId().toString() : null,
+                user.getUserId(),
+                user.getManagerId(),
                 user.getFullName(),
                 user.getMobNum(),
                 user.getPanNum(),
                 user.getCreatedAt(),
                 user.getUpdatedAt(),
-                user.isIsActive()
+                user.isIsActive(),
+                user.getPersonId(),
+                user.getValidFrom(),
+                user.getValidTo()
         );
     }
 
+    @ReplicaRead
     public List<User> getAllUsers() {
         String sql = "SELECT * FROM users";
         return jdbcTemplate.query(sql, userRowMapper);
     }
 
-    public User getUserById(String userId) {
+    /**
+     * Returns at most {@code limit} users ordered by (created_at, user_id), starting strictly
+     * after the given keyset position. Pass null for both cursor values to read the first page.
+     */
+    @ReplicaRead
+    public List<User> getUsersPage(Timestamp afterCreatedAt, UUID afterUserId, int limit) {
+        if (afterCreatedAt == null || afterUserId == null) {
+            String sql = "SELECT * FROM users ORDER BY created_at, user_id LIMIT ?";
+            return jdbcTemplate.query(sql, new Object[]{limit}, userRowMapper);
+        }
+        String sql = "SELECT * FROM users WHERE (created_at, user_id) > (?, ?) ORDER BY created_at, user_id LIMIT ?";
+        return jdbcTemplate.query(sql, new Object[]{afterCreatedAt, afterUserId, limit}, userRowMapper);
+    }
+
+    /**
+     * Streams every user row to the consumer without collecting them into a list.
+     * PostgreSQL only honours the fetch size inside a transaction, so callers must run this
+     * within one to keep memory flat.
+     */
+    public void streamAllUsers(int fetchSize, Consumer<User> consumer) {
+        String sql = "SELECT * FROM users ORDER BY created_at, user_id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(userRowMapper.mapRow(rs, rs.getRow()));
+        });
+    }
+
+    /**
+     * Streams the (user_id, manager_id) pair of every active user that has a manager. Like
+     * {@link #streamAllUsers}, run it inside a transaction for the fetch size to apply.
+     */
+    public void streamManagerLinks(int fetchSize, BiConsumer<UUID, UUID> consumer) {
+        String sql = "SELECT user_id, manager_id FROM users WHERE is_active = true AND manager_id IS NOT NULL";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(rs.getObject("user_id", UUID.class), rs.getObject("manager_id", UUID.class));
+        });
+    }
+
+    @ReplicaRead
+    public User getUserById(UUID userId) {
         String sql = "SELECT * FROM users WHERE user_id = ? AND is_active = true";
         List<User> users = jdbcTemplate.query(sql, new Object[]{userId}, userRowMapper);
         return users.isEmpty() ? null : users.get(0);
     }
 
+    @ReplicaRead
     public User getUserByMob(String mobNum) {
         String sql = "SELECT * FROM users WHERE mob_num = ? AND is_active = true";
         List<User> users = jdbcTemplate.query(sql, new Object[]{mobNum}, userRowMapper);
         return users.isEmpty() ? null : users.get(0);
     }
 
-    public List<User> getUsersByManagerId(String managerId) {
+    /**
+     * Active users with any of the given ids, in one query; the multi-key form of getUserById.
+     */
+    @ReplicaRead
+    public List<User> lookupUsersByIds(Collection<UUID> userIds) {
+        return getUsersByIds(userIds);
+    }
+
+    /**
+     * Active users with any of the given mobile numbers, in one query; the multi-key form of getUserByMob.
+     */
+    @ReplicaRead
+    public List<User> lookupUsersByMobs(Collection<String> mobNums) {
+        String sql = "SELECT * FROM users WHERE mob_num = ANY(?) AND is_active = true";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("varchar", mobNums.toArray()));
+            return ps;
+        }, userRowMapper);
+    }
+
+    /**
+     * Loads all active users with the given ids in a single round trip.
+     */
+    public List<User> getUsersByIds(Collection<UUID> userIds) {
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) AND is_active = true";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, userRowMapper);
+    }
+
+    /**
+     * Like getUsersByIds, but locks the rows until the end of the transaction, so they can be
+     * rewritten from what was read. Rows are locked in user_id order, the same in every caller.
+     */
+    public List<User> lockUsersByIds(Collection<UUID> userIds) {
+        String sql = "SELECT * FROM users WHERE user_id = ANY(?) AND is_active = true ORDER BY user_id FOR UPDATE";
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", userIds.toArray()));
+            return ps;
+        }, userRowMapper);
+    }
+
+    @ReplicaRead
+    public List<User> getUsersByManagerId(UUID managerId) {
         String sql = "SELECT * FROM users WHERE manager_id = ? AND is_active = true";
         return jdbcTemplate.query(sql, new Object[]{managerId}, userRowMapper);
     }
 
-    public int deleteUserById(String userId) {
-        String sql = "DELETE FROM users WHERE user_id = ?";
-        return jdbcTemplate.update(sql, userId);
+    /**
+     * Users who reported to the manager at the given instant, active or not. Each branch names
+     * is_active so a table partitioned on it only scans the matching partitions, and the
+     * valid_to bound skips history that ended earlier.
+     */
+    @ReplicaRead
+    public List<User> getUsersByManagerIdAsOf(UUID managerId, Timestamp asOf) {
+        String sql = "SELECT * FROM users WHERE manager_id = ? AND is_active = true AND valid_from <= ?"
+                + " UNION ALL SELECT * FROM users WHERE manager_id = ? AND is_active = false AND valid_to > ? AND valid_from <= ?";
+        return jdbcTemplate.query(sql, new Object[]{managerId, asOf, managerId, asOf, asOf}, userRowMapper);
+    }
+
+    /**
+     * The version of a person that was current at the given instant, or null.
+     */
+    @ReplicaRead
+    public User getPersonAsOf(UUID personId, Timestamp asOf) {
+        String sql = "SELECT * FROM users WHERE person_id = ? AND is_active = true AND valid_from <= ?"
+                + " UNION ALL SELECT * FROM users WHERE person_id = ? AND is_active = false AND valid_to > ? AND valid_from <= ?";
+        List<User> users = jdbcTemplate.query(sql, new Object[]{personId, asOf, personId, asOf, asOf}, userRowMapper);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    /**
+     * Every version of a person, oldest first.
+     */
+    @ReplicaRead
+    public List<User> getPersonVersions(UUID personId) {
+        String sql = "SELECT * FROM users WHERE person_id = ? ORDER BY valid_from, user_id";
+        return jdbcTemplate.query(sql, new Object[]{personId}, userRowMapper);
+    }
+
+    /**
+     * The person a record belongs to, whether or not the record is still active.
+     */
+    @ReplicaRead
+    public UUID getPersonIdByUserId(UUID userId) {
+        String sql = "SELECT person_id FROM users WHERE user_id = ?";
+        List<UUID> ids = jdbcTemplate.query(sql, new Object[]{userId}, (rs, rowNum) -> rs.getObject(1, UUID.class));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * The person that most recently had the mobile number, preferring the active holder.
+     */
+    @ReplicaRead
+    public UUID getPersonIdByMob(String mobNum) {
+        String sql = "SELECT person_id FROM users WHERE mob_num = ? ORDER BY is_active DESC, valid_from DESC LIMIT 1";
+        List<UUID> ids = jdbcTemplate.query(sql, new Object[]{mobNum}, (rs, rowNum) -> rs.getObject(1, UUID.class));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Active users whose full_name starts with the term, in name order, then (when fuzzy and the
+     * term has at least MIN_FUZZY_TERM_LENGTH characters) those within pg_trgm similarity of it,
+     * best first. The two run as separate queries, each with its own LIMIT: the prefix query reads
+     * at most limit rows from idx_users_full_name_prefix_active, and the similarity query only runs
+     * when prefix matches do not fill the limit. Without fuzzy matching any substring of full_name
+     * matches instead, which needs no extension. The term must be lower case.
+     */
+    @ReplicaRead
+    public List<User> searchByName(String term, boolean fuzzy, int limit) {
+        String prefix = escapeLike(term) + "%";
+        if (!fuzzy) {
+            String sql = "SELECT * FROM users WHERE is_active = true AND lower(full_name) LIKE ?"
+                    + " ORDER BY lower(full_name) LIKE ? DESC, full_name, user_id LIMIT ?";
+            return jdbcTemplate.query(sql, new Object[]{"%" + prefix, prefix, limit}, userRowMapper);
+        }
+        List<User> users = new ArrayList<>(jdbcTemplate.query(PREFIX_NAME_SEARCH, new Object[]{prefix, limit}, userRowMapper));
+        if (users.size() < limit && term.length() >= MIN_FUZZY_TERM_LENGTH) {
+            users.addAll(jdbcTemplate.query(FUZZY_NAME_SEARCH, new Object[]{term, prefix, term, limit - users.size()}, userRowMapper));
+        }
+        return users;
+    }
+
+    /**
+     * Active users whose mob_num contains the digits, numbers starting with them first.
+     */
+    @ReplicaRead
+    public List<User> searchByMobile(String digits, int limit) {
+        String sql = "SELECT * FROM users WHERE is_active = true AND mob_num LIKE ?"
+                + " ORDER BY mob_num LIKE ? DESC, mob_num, user_id LIMIT ?";
+        return jdbcTemplate.query(sql, new Object[]{"%" + digits + "%", digits + "%", limit}, userRowMapper);
     }
 
-    public int deleteUserByMob(String mobNum) {
-        String sql = "DELETE FROM users WHERE mob_num = ?";
-        return jdbcTemplate.update(sql, mobNum);
+    // LIKE treats '%' and '_' as wildcards and '\' as the default escape character.
+    public static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
-    public int updateUser(String userId, User user) {
-        String sql = "UPDATE users SET full_name = ?, mob_num = ?, pan_num = ?, manager_id = ?, updated_at = ? WHERE user_id = ?";
+    /**
+     * Deletes the active record with the given id and returns it, or null if there is none.
+     */
+    public User deleteUserById(UUID userId) {
+        String delete = "DELETE FROM users WHERE user_id = ? AND is_active = true";
+        if (postgres) {
+            return first(jdbcTemplate.query(delete + " RETURNING *", userRowMapper, userId));
+        }
+        User user = first(jdbcTemplate.query("SELECT * FROM users WHERE user_id = ? AND is_active = true", userRowMapper, userId));
+        return user != null && jdbcTemplate.update(delete, userId) > 0 ? user : null;
+    }
+
+    /**
+     * Deletes every record with the mobile number, history included, provided an active user
+     * has it. Returns the deleted rows; empty if there was no active user.
+     */
+    public List<User> deleteUserByMob(String mobNum) {
+        String where = " WHERE mob_num = ? AND EXISTS (SELECT 1 FROM users WHERE mob_num = ? AND is_active = true)";
+        if (postgres) {
+            return jdbcTemplate.query("DELETE FROM users" + where + " RETURNING *", userRowMapper, mobNum, mobNum);
+        }
+        List<User> users = jdbcTemplate.query("SELECT * FROM users" + where, userRowMapper, mobNum, mobNum);
+        return users.isEmpty() || jdbcTemplate.update("DELETE FROM users" + where, mobNum, mobNum) > 0 ? users : Collections.emptyList();
+    }
+
+    /**
+     * Sets the non-null full_name, mob_num and pan_num of the given user on an active record and
+     * returns the record as it was before, or null if there is no active record with that id.
+     */
+    public User updateUserFields(UUID userId, User changes, Timestamp updatedAt) {
+        Object[] args = {changes.getFullName(), changes.getMobNum(), changes.getPanNum(), updatedAt, userId};
+        if (postgres) {
+            // The self-join reads the row before the update; RETURNING alone gives the new one.
+            String sql = "UPDATE users u SET full_name = coalesce(?, u.full_name), mob_num = coalesce(?, u.mob_num),"
+                    + " pan_num = coalesce(?, u.pan_num), updated_at = ? FROM users old"
+                    + " WHERE u.user_id = ? AND u.is_active = true AND old.user_id = u.user_id AND old.is_active = true RETURNING old.*";
+            return first(jdbcTemplate.query(sql, userRowMapper, args));
+        }
+        User user = first(jdbcTemplate.query("SELECT * FROM users WHERE user_id = ? AND is_active = true", userRowMapper, userId));
+        String sql = "UPDATE users SET full_name = coalesce(?, full_name), mob_num = coalesce(?, mob_num), pan_num = coalesce(?, pan_num),"
+                + " updated_at = ? WHERE user_id = ? AND is_active = true";
+        return user != null && jdbcTemplate.update(sql, args) > 0 ? user : null;
+    }
+
+    /**
+     * Gives an active user without a manager its first one in place, so it keeps its user_id, and
+     * keeps the record as it was as an inactive history row with the id archiveId, valid until now
+     * (see {@code UserService.archivedCopy}). Returns the record as it was, or null if there is no
+     * such user. One statement on PostgreSQL; on H2 several, so callers run it in a transaction.
+     */
+    public User assignManager(UUID userId, UUID managerId, UUID archiveId, Timestamp now) {
+        String archive = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from, valid_to)"
+                + " SELECT ?, manager_id, full_name, mob_num, pan_num, created_at, updated_at, false, coalesce(person_id, user_id), valid_from, ? FROM ";
+        if (postgres) {
+            // The self-join reads the row before the update; RETURNING alone gives the new one.
+            String sql = "WITH old AS (UPDATE users u SET manager_id = ?, updated_at = ?, valid_from = ? FROM users old"
+                    + " WHERE u.user_id = ? AND u.is_active = true AND u.manager_id IS NULL AND old.user_id = u.user_id AND old.is_active = true"
+                    + " RETURNING old.*), archived AS (" + archive + "old) SELECT * FROM old";
+            return first(jdbcTemplate.query(sql, userRowMapper, managerId, now, now, userId, archiveId, now));
+        }
+        String where = " WHERE user_id = ? AND is_active = true AND manager_id IS NULL";
+        User user = first(jdbcTemplate.query("SELECT * FROM users" + where, userRowMapper, userId));
+        if (user == null || jdbcTemplate.update(archive + "users" + where, archiveId, now, userId) == 0) {
+            return null;
+        }
+        jdbcTemplate.update("UPDATE users SET manager_id = ?, updated_at = ?, valid_from = ?" + where, managerId, now, now, userId);
+        return user;
+    }
+
+    /**
+     * Gives active users without a manager their first one in place; the records as they were are
+     * inserted separately. The users must be locked. A zero count for a row means it was
+     * deactivated or assigned concurrently.
+     */
+    public int[] assignManagers(List<UUID> userIds, UUID managerId, Timestamp now) {
+        if (userIds.isEmpty()) return new int[0];
+        String sql = "UPDATE users SET manager_id = ?, updated_at = ?, valid_from = ? WHERE user_id = ? AND is_active = true AND manager_id IS NULL";
+        return jdbcTemplate.batchUpdate(sql, userIds, userIds.size(), (ps, userId) -> {
+            ps.setObject(1, managerId);
+            ps.setTimestamp(2, now);
+            ps.setTimestamp(3, now);
+            ps.setObject(4, userId);
+        })[0];
+    }
+
+    /**
+     * Moves an active user with a different manager to the given one: the record is deactivated
+     * and a successor with the new user_id inserted, as {@code UserService.successorWithManager}
+     * builds it. Returns the deactivated record, or null if there was nothing to replace. One
+     * statement on PostgreSQL; on H2 several, so callers run it in a transaction.
+     */
+    public User replaceManager(UUID userId, UUID managerId, UUID successorId, Timestamp now) {
+        String deactivate = "UPDATE users SET is_active = false, valid_to = ? WHERE user_id = ? AND is_active = true AND manager_id <> ?";
+        String insert = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from)"
+                + " SELECT ?, ?, full_name, mob_num, pan_num, created_at, ?, true, coalesce(person_id, user_id), ? FROM ";
+        if (postgres) {
+            String sql = "WITH old AS (" + deactivate + " RETURNING *), successor AS (" + insert + "old) SELECT * FROM old";
+            return first(jdbcTemplate.query(sql, userRowMapper, now, userId, managerId, successorId, managerId, now, now));
+        }
+        User user = first(jdbcTemplate.query("SELECT * FROM users WHERE user_id = ? AND is_active = true AND manager_id <> ?",
+                userRowMapper, userId, managerId));
+        if (user == null || jdbcTemplate.update(deactivate, now, userId, managerId) == 0) {
+            return null;
+        }
+        jdbcTemplate.update(insert + "users WHERE user_id = ?", successorId, managerId, now, now, userId);
+        user.setIsActive(false);
+        user.setValidTo(now);
+        return user;
+    }
+
+    private static User first(List<User> users) {
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    public int updateUser(UUID userId, User user) {
+        String sql = "UPDATE users SET full_name = ?, mob_num = ?, pan_num = ?, manager_id = ?, updated_at = ?, valid_from = ? WHERE user_id = ?";
         return jdbcTemplate.update(sql,
                 user.getFullName(),
                 user.getMobNum(),
                 user.getPanNum(),
-                user.getManagerId() != null ? user.getManagerId().toString() : null,
+                user.getManagerId(),
                 user.getUpdatedAt(),
+                user.getValidFrom(),
                 userId
         );
     }
 
-    public int deactivateUser(String userId) {
-        String sql = "UPDATE users SET is_active = false WHERE user_id = ?";
-        return jdbcTemplate.update(sql, userId);
+    /**
+     * Turns the user's record into history that ends at validTo.
+     */
+    public int deactivateUser(UUID userId, Timestamp validTo) {
+        String sql = "UPDATE users SET is_active = false, valid_to = ? WHERE user_id = ?";
+        return jdbcTemplate.update(sql, validTo, userId);
+    }
+
+    public int[] createUsers(List<User> users) {
+        if (users.isEmpty()) return new int[0];
+        String sql = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from, valid_to)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        return jdbcTemplate.batchUpdate(sql, users, users.size(), (ps, user) -> {
+            ps.setObject(1, user.getUserId());
+            ps.setObject(2, user.getManagerId());
+            ps.setString(3, user.getFullName());
+            ps.setString(4, user.getMobNum());
+            ps.setString(5, user.getPanNum());
+            ps.setTimestamp(6, user.getCreatedAt());
+            ps.setTimestamp(7, user.getUpdatedAt());
+            ps.setBoolean(8, user.isIsActive());
+            ps.setObject(9, user.getPersonId());
+            ps.setTimestamp(10, user.getValidFrom());
+            ps.setTimestamp(11, user.getValidTo());
+        })[0];
+    }
+
+    /**
+     * Inserts new users in one statement, skipping rows that conflict with a unique index (an
+     * active user with the same mob_num on PostgreSQL), and returns the ids actually inserted.
+     * PostgreSQL takes the rows as arrays; H2 runs a JDBC batch.
+     */
+    public Set<UUID> insertNewUsers(List<User> users) {
+        Set<UUID> inserted = new HashSet<>();
+        if (users.isEmpty()) return inserted;
+        if (!postgres) {
+            int[] counts = jdbcTemplate.batchUpdate("INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at,"
+                    + " is_active, person_id, valid_from, valid_to) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING", users, users.size(), (ps, user) -> {
+                ps.setObject(1, user.getUserId());
+                ps.setObject(2, user.getManagerId());
+                ps.setString(3, user.getFullName());
+                ps.setString(4, user.getMobNum());
+                ps.setString(5, user.getPanNum());
+                ps.setTimestamp(6, user.getCreatedAt());
+                ps.setTimestamp(7, user.getUpdatedAt());
+                ps.setBoolean(8, user.isIsActive());
+                ps.setObject(9, user.getPersonId());
+                ps.setTimestamp(10, user.getValidFrom());
+                ps.setTimestamp(11, user.getValidTo());
+            })[0];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) inserted.add(users.get(i).getUserId());
+            }
+            return inserted;
+        }
+        int size = users.size();
+        Object[] userIds = new Object[size], managerIds = new Object[size], personIds = new Object[size];
+        Object[] fullNames = new Object[size], mobNums = new Object[size], panNums = new Object[size];
+        Object[] createdAts = new Object[size], updatedAts = new Object[size], validFroms = new Object[size];
+        Object[] actives = new Object[size];
+        for (int i = 0; i < size; i++) {
+            User user = users.get(i);
+            userIds[i] = user.getUserId();
+            managerIds[i] = user.getManagerId();
+            fullNames[i] = user.getFullName();
+            mobNums[i] = user.getMobNum();
+            panNums[i] = user.getPanNum();
+            createdAts[i] = user.getCreatedAt();
+            updatedAts[i] = user.getUpdatedAt();
+            actives[i] = user.isIsActive();
+            personIds[i] = user.getPersonId();
+            validFroms[i] = user.getValidFrom();
+        }
+        String sql = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from)"
+                + " SELECT * FROM unnest(?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING RETURNING user_id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("uuid", userIds));
+            ps.setArray(2, con.createArrayOf("uuid", managerIds));
+            ps.setArray(3, con.createArrayOf("varchar", fullNames));
+            ps.setArray(4, con.createArrayOf("varchar", mobNums));
+            ps.setArray(5, con.createArrayOf("varchar", panNums));
+            ps.setArray(6, con.createArrayOf("timestamp", createdAts));
+            ps.setArray(7, con.createArrayOf("timestamp", updatedAts));
+            ps.setArray(8, con.createArrayOf("bool", actives));
+            ps.setArray(9, con.createArrayOf("uuid", personIds));
+            ps.setArray(10, con.createArrayOf("timestamp", validFroms));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getObject(1, UUID.class));
+        });
+        return inserted;
+    }
+
+    /**
+     * Deactivates the given active users, ending their records at validTo. A zero count for a
+     * row means it was already inactive.
+     */
+    public int[] deactivateUsers(List<UUID> userIds, Timestamp validTo) {
+        if (userIds.isEmpty()) return new int[0];
+        String sql = "UPDATE users SET is_active = false, valid_to = ? WHERE user_id = ? AND is_active = true";
+        return jdbcTemplate.batchUpdate(sql, userIds, userIds.size(), (ps, userId) -> {
+            ps.setTimestamp(1, validTo);
+            ps.setObject(2, userId);
+        })[0];
+    }
+
+    /**
+     * Bulk loads users with COPY FROM STDIN. Each element is one CSV record, newline included,
+     * with the columns user_id, manager_id, full_name, mob_num, pan_num, created_at, is_active,
+     * person_id, valid_from.
+     * Records are pulled from the iterator as they are sent, so nothing is buffered beyond the
+     * copy stream. Returns the number of rows copied.
+     * The rows are copied into the temporary table {@value #IMPORT_TABLE} and moved into users
+     * from there, so the rest of the transaction can tell exactly which users were imported; it
+     * is dropped at commit, so this must run in a transaction.
+     */
+    public long copyUsersIn(Iterator<String> csvRecords) {
+        String columns = "user_id, manager_id, full_name, mob_num, pan_num, created_at, is_active, person_id, valid_from";
+        jdbcTemplate.execute("CREATE TEMP TABLE " + IMPORT_TABLE + " (LIKE users INCLUDING DEFAULTS) ON COMMIT DROP");
+        String sql = "COPY " + IMPORT_TABLE + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            PGCopyOutputStream copy = new PGCopyOutputStream(con.unwrap(PGConnection.class), sql, 65536);
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), 65536);
+                while (csvRecords.hasNext()) {
+                    writer.write(csvRecords.next());
+                }
+                writer.flush();
+                return copy.endCopy();
+            } catch (IOException e) {
+                // The server rejected the copy mid-stream; let JdbcTemplate translate its error.
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new UncheckedIOException(e);
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+        return jdbcTemplate.update("INSERT INTO users (" + columns + ") SELECT " + columns + " FROM " + IMPORT_TABLE);
+    }
+
+    /**
+     * Streams the users table to the output with COPY TO STDOUT, either as CSV with a header
+     * or as one JSON object per line.
+     */
+    public long copyUsersOut(boolean ndjson, OutputStream out) {
+        // JSON lines go through CSV format with delimiter and quote characters that can never
+        // appear in JSON text, so COPY writes them out verbatim. Both read through a query, as
+        // COPY cannot read a partitioned users table directly.
+        String sql = ndjson
+                ? "COPY (SELECT row_to_json(u) FROM users u) TO STDOUT WITH (FORMAT csv, DELIMITER E'\\x02', QUOTE E'\\x01')"
+                : "COPY (SELECT user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from, valid_to"
+                + " FROM users) TO STDOUT WITH (FORMAT csv, HEADER)";
+        return jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 }
@@ -0,0 +1,58 @@
+package com.company.project.repository;
+
+import com.company.project.model.UserVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the user_versions table: one change counter per slot, shared by every instance.
+ * Writers bump the slots they touched in the transaction of the change; the version a slot
+ * starts from is the time in milliseconds, so a slot whose row is recreated does not hand out
+ * its earlier versions again.
+ */
+@Repository
+@Profile("!reactive")
+public class UserVersionRepository {
+
+    private static final String BUMP = "UPDATE user_versions SET version = version + 1, changed_at = ? WHERE slot = ?";
+    private static final String CREATE = "INSERT INTO user_versions (slot, version, changed_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Bumps the given slots, in ascending order so concurrent writers lock them in the same order.
+     * Must run in the transaction of the change it records.
+     */
+    public void bump(Collection<Integer> slots, Timestamp changedAt) {
+        if (slots.isEmpty()) return;
+        List<Integer> ordered = new ArrayList<>(slots);
+        ordered.sort(null);
+        int[] counts = jdbcTemplate.batchUpdate(BUMP, ordered, ordered.size(), (ps, slot) -> {
+            ps.setTimestamp(1, changedAt);
+            ps.setInt(2, slot);
+        })[0];
+        for (int i = 0; i < counts.length; i++) {
+            // First change of the slot; another writer may be creating its row at the same time.
+            if (counts[i] == 0 && jdbcTemplate.update(CREATE, ordered.get(i), System.currentTimeMillis(), changedAt) == 0) {
+                jdbcTemplate.update(BUMP, changedAt, ordered.get(i));
+            }
+        }
+    }
+
+    /**
+     * The rows of the two slots, leaving out a slot that never changed. Read on the primary, which
+     * has every committed change.
+     */
+    public List<UserVersion> getVersions(int first, int second) {
+        return jdbcTemplate.query("SELECT slot, version, changed_at FROM user_versions WHERE slot IN (?, ?)",
+                (rs, rowNum) -> new UserVersion(rs.getInt(1), rs.getLong(2), rs.getTimestamp(3)), first, second);
+    }
+}
@@ -0,0 +1,46 @@
+package com.company.project.repository.reactive;
+
+import com.company.project.model.Manager;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of {@link com.company.project.repository.ManagerRepository} over R2DBC.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveManagerRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<Manager> getManagerById(UUID managerId) {
+        String sql = "SELECT * FROM managers WHERE manager_id = :managerId AND is_active = true";
+        return databaseClient.sql(sql)
+                .bind("managerId", managerId)
+                .map((row, metadata) -> mapManager(row))
+                .first();
+    }
+
+    static Manager mapManager(Row row) {
+        Manager manager = new Manager();
+        manager.setManagerId(row.get("manager_id", UUID.class));
+        manager.setFullName(row.get("full_name", String.class));
+        manager.setEmail(row.get("email", String.class));
+        manager.setIsActive(Boolean.TRUE.equals(row.get("is_active", Boolean.class)));
+        manager.setCreatedAt(toTimestamp(row.get("created_at", LocalDateTime.class)));
+        return manager;
+    }
+
+    static Timestamp toTimestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+}
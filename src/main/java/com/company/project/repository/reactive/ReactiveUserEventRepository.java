@@ -0,0 +1,31 @@
+package com.company.project.repository.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Appends to the user_events outbox over R2DBC, in the transaction of the change, like
+ * {@link com.company.project.repository.UserEventRepository}. Publishing is left to the relay of
+ * the servlet instances.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserEventRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<Void> append(String eventType, UUID userId, Timestamp createdAt) {
+        return databaseClient.sql("INSERT INTO user_events (event_type, user_id, created_at) VALUES (:eventType, :userId, :createdAt)")
+                .bind("eventType", eventType)
+                .bind("userId", userId)
+                .bind("createdAt", createdAt.toLocalDateTime())
+                .then();
+    }
+}
@@ -0,0 +1,265 @@
+package com.company.project.repository.reactive;
+
+import com.company.project.model.User;
+import com.company.project.repository.UserRepository;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static com.company.project.repository.reactive.ReactiveManagerRepository.toTimestamp;
+
+/**
+ * Non-blocking counterpart of {@link com.company.project.repository.UserRepository} over R2DBC.
+ * Rows are emitted as the driver decodes them, so demand from the subscriber reaches the socket.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    public Mono<Integer> createUser(User user) {
+        String sql = "INSERT INTO users (user_id, manager_id, full_name, mob_num, pan_num, created_at, updated_at, is_active, person_id, valid_from, valid_to) "
+                + "VALUES (:userId, :managerId, :fullName, :mobNum, :panNum, :createdAt, :updatedAt, :isActive, :personId, :validFrom, :validTo) "
+                + "ON CONFLICT DO NOTHING";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("userId", user.getUserId())
+                .bind("fullName", user.getFullName())
+                .bind("mobNum", user.getMobNum())
+                .bind("panNum", user.getPanNum())
+                .bind("createdAt", user.getCreatedAt().toLocalDateTime())
+                .bind("isActive", user.isIsActive())
+                .bind("personId", user.getPersonId())
+                .bind("validFrom", user.getValidFrom().toLocalDateTime());
+        spec = user.getManagerId() != null ? spec.bind("managerId", user.getManagerId()) : spec.bindNull("managerId", UUID.class);
+        spec = user.getUpdatedAt() != null ? spec.bind("updatedAt", user.getUpdatedAt().toLocalDateTime())
+                : spec.bindNull("updatedAt", LocalDateTime.class);
+        spec = user.getValidTo() != null ? spec.bind("validTo", user.getValidTo().toLocalDateTime())
+                : spec.bindNull("validTo", LocalDateTime.class);
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * Every user in keyset order, fetched fetchSize rows per round trip.
+     */
+    public Flux<User> streamAllUsers(int fetchSize) {
+        String sql = "SELECT * FROM users ORDER BY created_at, user_id";
+        return databaseClient.sql(sql)
+                .filter((statement, next) -> next.execute(statement.fetchSize(fetchSize)))
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    public Mono<User> getUserById(UUID userId) {
+        String sql = "SELECT * FROM users WHERE user_id = :userId AND is_active = true";
+        return databaseClient.sql(sql)
+                .bind("userId", userId)
+                .map((row, metadata) -> mapUser(row))
+                .first();
+    }
+
+    public Mono<User> getUserByMob(String mobNum) {
+        String sql = "SELECT * FROM users WHERE mob_num = :mobNum AND is_active = true";
+        return databaseClient.sql(sql)
+                .bind("mobNum", mobNum)
+                .map((row, metadata) -> mapUser(row))
+                .first();
+    }
+
+    /**
+     * The active users with the given ids, in one query.
+     */
+    public Flux<User> getUsersByIds(List<UUID> userIds) {
+        return databaseClient.sql("SELECT * FROM users WHERE user_id = ANY(:userIds) AND is_active = true")
+                .bind("userIds", userIds.toArray(new UUID[0]))
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    /**
+     * The active users with the given mobile numbers, in one query.
+     */
+    public Flux<User> getUsersByMobs(List<String> mobNums) {
+        return databaseClient.sql("SELECT * FROM users WHERE mob_num = ANY(:mobNums) AND is_active = true")
+                .bind("mobNums", mobNums.toArray(new String[0]))
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    public Flux<User> getUsersByManagerId(UUID managerId) {
+        String sql = "SELECT * FROM users WHERE manager_id = :managerId AND is_active = true";
+        return databaseClient.sql(sql)
+                .bind("managerId", managerId)
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    /**
+     * Same query as {@link UserRepository#getUsersByManagerIdAsOf}.
+     */
+    public Flux<User> getUsersByManagerIdAsOf(UUID managerId, Timestamp asOf) {
+        String sql = "SELECT * FROM users WHERE manager_id = :managerId AND is_active = true AND valid_from <= :asOf"
+                + " UNION ALL SELECT * FROM users WHERE manager_id = :managerId AND is_active = false AND valid_to > :asOf AND valid_from <= :asOf";
+        return databaseClient.sql(sql)
+                .bind("managerId", managerId)
+                .bind("asOf", asOf.toLocalDateTime())
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    public Mono<User> getPersonAsOf(UUID personId, Timestamp asOf) {
+        String sql = "SELECT * FROM users WHERE person_id = :personId AND is_active = true AND valid_from <= :asOf"
+                + " UNION ALL SELECT * FROM users WHERE person_id = :personId AND is_active = false AND valid_to > :asOf AND valid_from <= :asOf";
+        return databaseClient.sql(sql)
+                .bind("personId", personId)
+                .bind("asOf", asOf.toLocalDateTime())
+                .map((row, metadata) -> mapUser(row))
+                .first();
+    }
+
+    public Flux<User> getPersonVersions(UUID personId) {
+        return databaseClient.sql("SELECT * FROM users WHERE person_id = :personId ORDER BY valid_from, user_id")
+                .bind("personId", personId)
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    public Mono<UUID> getPersonIdByUserId(UUID userId) {
+        return databaseClient.sql("SELECT person_id FROM users WHERE user_id = :userId")
+                .bind("userId", userId)
+                .map((row, metadata) -> row.get("person_id", UUID.class))
+                .first();
+    }
+
+    public Mono<UUID> getPersonIdByMob(String mobNum) {
+        return databaseClient.sql("SELECT person_id FROM users WHERE mob_num = :mobNum ORDER BY is_active DESC, valid_from DESC LIMIT 1")
+                .bind("mobNum", mobNum)
+                .map((row, metadata) -> row.get("person_id", UUID.class))
+                .first();
+    }
+
+    /**
+     * Same matching and ranking as {@link UserRepository#searchByName}, including its separate
+     * prefix and similarity queries.
+     */
+    public Flux<User> searchByName(String term, boolean fuzzy, int limit) {
+        String prefix = UserRepository.escapeLike(term) + "%";
+        if (!fuzzy) {
+            return databaseClient.sql("SELECT * FROM users WHERE is_active = true AND lower(full_name) LIKE :pattern"
+                            + " ORDER BY lower(full_name) LIKE :prefix DESC, full_name, user_id LIMIT :limit")
+                    .bind("pattern", "%" + prefix)
+                    .bind("prefix", prefix)
+                    .bind("limit", limit)
+                    .map((row, metadata) -> mapUser(row))
+                    .all();
+        }
+        Flux<User> prefixMatches = databaseClient.sql("SELECT * FROM users WHERE is_active = true"
+                        + " AND lower(full_name) COLLATE \"C\" LIKE :prefix ORDER BY lower(full_name) COLLATE \"C\", user_id LIMIT :limit")
+                .bind("prefix", prefix)
+                .bind("limit", limit)
+                .map((row, metadata) -> mapUser(row))
+                .all();
+        if (term.length() < UserRepository.MIN_FUZZY_TERM_LENGTH) {
+            return prefixMatches;
+        }
+        return prefixMatches.collectList().flatMapMany(users -> users.size() >= limit ? Flux.fromIterable(users)
+                : Flux.fromIterable(users).concatWith(databaseClient.sql("SELECT * FROM users WHERE is_active = true"
+                                + " AND lower(full_name) % :term AND lower(full_name) NOT LIKE :prefix"
+                                + " ORDER BY similarity(lower(full_name), :term) DESC, full_name, user_id LIMIT :limit")
+                        .bind("term", term)
+                        .bind("prefix", prefix)
+                        .bind("limit", limit - users.size())
+                        .map((row, metadata) -> mapUser(row))
+                        .all()));
+    }
+
+    public Flux<User> searchByMobile(String digits, int limit) {
+        String sql = "SELECT * FROM users WHERE is_active = true AND mob_num LIKE :pattern"
+                + " ORDER BY mob_num LIKE :prefix DESC, mob_num, user_id LIMIT :limit";
+        return databaseClient.sql(sql)
+                .bind("pattern", "%" + digits + "%")
+                .bind("prefix", digits + "%")
+                .bind("limit", limit)
+                .map((row, metadata) -> mapUser(row))
+                .all();
+    }
+
+    /**
+     * Deletes the record with the given id. Emits its id if there was one, for the change event.
+     */
+    public Flux<UUID> deleteUserById(UUID userId) {
+        return databaseClient.sql("DELETE FROM users WHERE user_id = :userId RETURNING user_id")
+                .bind("userId", userId)
+                .map((row, metadata) -> row.get("user_id", UUID.class))
+                .all();
+    }
+
+    /**
+     * Deletes every record with the mobile number, history included. Emits the deleted ids.
+     */
+    public Flux<UUID> deleteUserByMob(String mobNum) {
+        return databaseClient.sql("DELETE FROM users WHERE mob_num = :mobNum RETURNING user_id")
+                .bind("mobNum", mobNum)
+                .map((row, metadata) -> row.get("user_id", UUID.class))
+                .all();
+    }
+
+    public Mono<Integer> updateUser(UUID userId, User user) {
+        String sql = "UPDATE users SET full_name = :fullName, mob_num = :mobNum, pan_num = :panNum, "
+                + "manager_id = :managerId, updated_at = :updatedAt, valid_from = :validFrom WHERE user_id = :userId";
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql)
+                .bind("fullName", user.getFullName())
+                .bind("mobNum", user.getMobNum())
+                .bind("panNum", user.getPanNum())
+                .bind("updatedAt", user.getUpdatedAt().toLocalDateTime())
+                .bind("validFrom", user.getValidFrom().toLocalDateTime())
+                .bind("userId", userId);
+        spec = user.getManagerId() != null ? spec.bind("managerId", user.getManagerId()) : spec.bindNull("managerId", UUID.class);
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * Gives an active user without a manager its first one, in place; 0 if it has none to give.
+     */
+    public Mono<Integer> assignManager(UUID userId, UUID managerId, Timestamp now) {
+        return databaseClient.sql("UPDATE users SET manager_id = :managerId, updated_at = :now, valid_from = :now"
+                        + " WHERE user_id = :userId AND is_active = true AND manager_id IS NULL")
+                .bind("managerId", managerId)
+                .bind("now", now.toLocalDateTime())
+                .bind("userId", userId)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Integer> deactivateUser(UUID userId, Timestamp validTo) {
+        return databaseClient.sql("UPDATE users SET is_active = false, valid_to = :validTo WHERE user_id = :userId")
+                .bind("validTo", validTo.toLocalDateTime())
+                .bind("userId", userId)
+                .fetch().rowsUpdated();
+    }
+
+    static User mapUser(Row row) {
+        User user = new User();
+        user.setUserId(row.get("user_id", UUID.class));
+        user.setManagerId(row.get("manager_id", UUID.class));
+        user.setFullName(row.get("full_name", String.class));
+        user.setMobNum(row.get("mob_num", String.class));
+        user.setPanNum(row.get("pan_num", String.class));
+        user.setCreatedAt(toTimestamp(row.get("created_at", LocalDateTime.class)));
+        user.setUpdatedAt(toTimestamp(row.get("updated_at", LocalDateTime.class)));
+        user.setIsActive(Boolean.TRUE.equals(row.get("is_active", Boolean.class)));
+        user.setPersonId(row.get("person_id", UUID.class));
+        user.setValidFrom(toTimestamp(row.get("valid_from", LocalDateTime.class)));
+        user.setValidTo(toTimestamp(row.get("valid_to", LocalDateTime.class)));
+        return user;
+    }
+}
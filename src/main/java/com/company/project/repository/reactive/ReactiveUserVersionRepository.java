@@ -0,0 +1,51 @@
+package com.company.project.repository.reactive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.util.SortedSet;
+
+/**
+ * Bumps the user_versions counters over R2DBC, in the transaction of the change, like
+ * {@link com.company.project.repository.UserVersionRepository}, so the ETags the servlet
+ * instances hand out change with writes made here too.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserVersionRepository {
+
+    private static final String BUMP = "UPDATE user_versions SET version = version + 1, changed_at = :changedAt WHERE slot = :slot";
+    private static final String CREATE = "INSERT INTO user_versions (slot, version, changed_at) VALUES (:slot, :version, :changedAt)"
+            + " ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    /**
+     * Bumps the slots one after another in ascending order, creating the rows of slots that never
+     * changed before.
+     */
+    public Mono<Void> bump(SortedSet<Integer> slots, Timestamp changedAt) {
+        return Flux.fromIterable(slots)
+                .concatMap(slot -> update(slot, changedAt)
+                        .flatMap(rows -> rows > 0 ? Mono.just(rows) : databaseClient.sql(CREATE)
+                                .bind("slot", slot)
+                                .bind("version", System.currentTimeMillis())
+                                .bind("changedAt", changedAt.toLocalDateTime())
+                                .fetch().rowsUpdated())
+                        .flatMap(rows -> rows > 0 ? Mono.just(rows) : update(slot, changedAt)))
+                .then();
+    }
+
+    private Mono<Integer> update(int slot, Timestamp changedAt) {
+        return databaseClient.sql(BUMP)
+                .bind("changedAt", changedAt.toLocalDateTime())
+                .bind("slot", slot)
+                .fetch().rowsUpdated();
+    }
+}
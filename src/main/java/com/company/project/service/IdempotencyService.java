@@ -0,0 +1,186 @@
+package com.company.project.service;
+
+import com.company.project.execution.RequestExecution;
+import com.company.project.model.IdempotencyRecord;
+import com.company.project.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes write endpoints safe to retry. The first request with an Idempotency-Key header runs and
+ * its response is stored; later requests with the same key and body get that response back,
+ * marked with an Idempotent-Replayed header, until it is older than users.idempotency.ttl.
+ * Requests without the header run as before.
+ */
+@Service
+@Profile("!reactive")
+public class IdempotencyService implements MeterBinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${users.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    // A request still in progress after this long is taken to have died; a retry runs it again.
+    @Value("${users.idempotency.in-progress-timeout:1m}")
+    private Duration inProgressTimeout;
+
+    @Value("${users.idempotency.purge-interval:10m}")
+    private Duration purgeInterval;
+
+    private ScheduledExecutorService purger;
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        purger = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("idempotency-purge-"));
+        long millis = purgeInterval.toMillis();
+        purger.scheduleWithFixedDelay(this::purgeExpired, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Runs the handler once per key. {@code operation} names the endpoint, so a key reused on
+     * another endpoint or with another body is rejected rather than answered with a stale response.
+     */
+    public ResponseEntity<?> run(String key, String operation, Object request,
+                                 RequestExecution.Handler<? extends ResponseEntity<?>> handler) throws Exception {
+        if (key == null) {
+            return handler.handle();
+        }
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters.");
+        }
+        String requestHash = hash(operation, request);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (!idempotencyKeyRepository.claim(key, requestHash, now)) {
+            IdempotencyRecord record = idempotencyKeyRepository.find(key);
+            // Purged between the claim and the read: claim it again.
+            boolean claimed = record == null && idempotencyKeyRepository.claim(key, requestHash, now);
+            if (!claimed) {
+                if (record == null) {
+                    return inProgress();
+                }
+                long age = now.getTime() - record.getCreatedAt().getTime();
+                boolean expired = age > ttl.toMillis();
+                boolean abandoned = record.getStatusCode() == null && age > inProgressTimeout.toMillis();
+                if (!expired && !record.getRequestHash().equals(requestHash)) {
+                    conflicts.incrementAndGet();
+                    return error(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used with a different request.");
+                }
+                if (!expired && record.getStatusCode() != null) {
+                    return replay(record);
+                }
+                if (!(expired || abandoned) || !idempotencyKeyRepository.takeOver(key, requestHash, record.getCreatedAt(), now)) {
+                    return inProgress();
+                }
+                logger.info("Idempotency key {} {}; running the request again", key, expired ? "expired" : "was abandoned");
+            }
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = handler.handle();
+        } catch (Exception | Error e) {
+            idempotencyKeyRepository.release(key, now);
+            throw e;
+        }
+        // Server errors are not stored, so a retry can succeed.
+        if (response.getStatusCode().is5xxServerError()) {
+            idempotencyKeyRepository.release(key, now);
+        } else {
+            if (!idempotencyKeyRepository.complete(key, now, response.getStatusCodeValue(), objectMapper.writeValueAsString(response.getBody()))) {
+                logger.warn("Idempotency key {} was taken over while its request ran; its response was not stored", key);
+            }
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record) throws Exception {
+        replayed.incrementAndGet();
+        return ResponseEntity.status(record.getStatusCode())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectMapper.readTree(record.getResponseBody()));
+    }
+
+    private ResponseEntity<?> inProgress() {
+        conflicts.incrementAndGet();
+        return error(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress. Retry later.");
+    }
+
+    private static ResponseEntity<?> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Collections.singletonMap("error", message));
+    }
+
+    private String hash(String operation, Object request) throws Exception {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(operation.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(objectMapper.writeValueAsBytes(request));
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private void purgeExpired() {
+        try {
+            int purged = idempotencyKeyRepository.purgeExpired(new Timestamp(System.currentTimeMillis() - ttl.toMillis()));
+            if (purged > 0) {
+                logger.debug("Purged {} expired idempotency key(s)", purged);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to purge idempotency keys: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.more().counter("users.idempotency.replayed", Collections.emptyList(), replayed);
+        registry.more().counter("users.idempotency.conflicts", Collections.emptyList(), conflicts);
+    }
+}
@@ -0,0 +1,380 @@
+package com.company.project.service;
+
+import com.company.project.cache.ReactiveManagerCache;
+import com.company.project.cache.VersionSlots;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.DeleteUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.dto.UserDto;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.model.User;
+import com.company.project.model.UserEvent;
+import com.company.project.repository.reactive.ReactiveUserEventRepository;
+import com.company.project.repository.reactive.ReactiveUserRepository;
+import com.company.project.repository.reactive.ReactiveUserVersionRepository;
+import com.company.project.validation.UserValidator;
+import io.r2dbc.spi.R2dbcException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Reactive counterpart of {@link UserService} for the reactive profile. Payload rules come from
+ * the same {@link UserValidator} methods UserService uses, so both stacks accept and reject exactly
+ * the same requests; only the lookups and writes differ. Responses use the same message/error map.
+ * Every write appends its user_events rows and bumps the ETag counters of what it changed in its
+ * own transaction, as UserService does.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserService.class);
+
+    @Autowired
+    private UserValidator userValidator;
+
+    @Autowired
+    private ReactiveUserRepository userRepository;
+
+    @Autowired
+    private ReactiveUserEventRepository userEventRepository;
+
+    @Autowired
+    private ReactiveUserVersionRepository userVersionRepository;
+
+    @Autowired
+    private ReactiveManagerCache managerCache;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Value("${users.stream.fetch-size:1000}")
+    private int streamFetchSize;
+
+    @Value("${users.search.default-limit:20}")
+    private int defaultSearchLimit;
+
+    @Value("${users.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    @Value("${users.search.fuzzy:true}")
+    private boolean fuzzySearch;
+
+    @Value("${users.lookup.max-keys:1000}")
+    private int maxLookupKeys;
+
+    @Value("${users.etag.slots:65536}")
+    private int versionSlotCount;
+
+    private VersionSlots versionSlots;
+
+    @PostConstruct
+    public void init() {
+        versionSlots = new VersionSlots(versionSlotCount);
+    }
+
+    /**
+     * Creates a new user after performing all necessary validations.
+     */
+    public Mono<CreateUserResponse> createUser(CreateUserRequest request) {
+        Map<String, Object> validation = new HashMap<>();
+        User user = userValidator.validateNewUser(request, validation);
+        if (user == null) {
+            return Mono.just(CreateUserResponse.error((String) validation.get("error")));
+        }
+        Mono<Boolean> managerValid = user.getManagerId() == null ? Mono.just(true)
+                : managerCache.getManagerById(user.getManagerId()).hasElement();
+        return managerValid.flatMap(valid -> {
+            if (!valid) {
+                return Mono.just(CreateUserResponse.error(UserValidator.INVALID_MANAGER));
+            }
+            // Nothing is inserted when an active user already has the mobile number; a concurrent
+            // create that still hits the unique index gets the same answer.
+            return userRepository.createUser(user)
+                    .flatMap(result -> result > 0
+                            ? userEventRepository.append(UserEvent.CREATED, user.getUserId(), user.getCreatedAt())
+                                    .then(changed(user.getCreatedAt(), user)).thenReturn(result)
+                            : Mono.just(result))
+                    .as(transactionalOperator::transactional)
+                    .map(result -> {
+                        if (result > 0) {
+                            logger.info("User created with ID {}", user.getUserId());
+                            return CreateUserResponse.message("User created successfully.");
+                        }
+                        return CreateUserResponse.error(UserValidator.DUPLICATE_MOBILE);
+                    })
+                    .onErrorResume(ReactiveUserService::isUniqueViolation,
+                            e -> Mono.just(CreateUserResponse.error(UserValidator.DUPLICATE_MOBILE)));
+        });
+    }
+
+    /**
+     * The error /get_users answers with status 400, the same as {@link UserService#getUsers}
+     * gives, or null if the request is valid. As there, a malformed id is not an error: it finds
+     * nobody. page_size and page_token are not checked, as the stream ignores them.
+     */
+    public String validateGetUsers(GetUsersRequest request) {
+        if (Boolean.TRUE.equals(request.getHistory()) || request.getAsOf() != null) {
+            return userValidator.validateHistoryRequest(request);
+        }
+        if (request.getUserId() != null || request.getMobNum() != null) {
+            return null;
+        }
+        if (request.getUserIds() != null || request.getMobNums() != null) {
+            boolean byId = request.getUserIds() != null;
+            List<String> keys = byId ? request.getUserIds() : request.getMobNums();
+            return keys.size() > maxLookupKeys ? (byId ? "user_ids" : "mob_nums") + " may list at most " + maxLookupKeys + " values." : null;
+        }
+        if (request.getManagerId() == null && request.getSearch() != null) {
+            if (request.getLimit() != null && request.getLimit() <= 0) {
+                return "Invalid limit. It must be a positive integer.";
+            }
+            return userValidator.validateSearch(request.getSearch());
+        }
+        return null;
+    }
+
+    /**
+     * Emits users matching the first filter present, or every user in (created_at, user_id)
+     * order when there is none. Unlike the servlet endpoint there is no paging: rows are read
+     * as the client consumes them. A request {@link #validateGetUsers} rejects fails with an
+     * IllegalArgumentException carrying its error; malformed ids match nothing.
+     */
+    public Flux<UserDto> getUsers(GetUsersRequest request) {
+        String error = validateGetUsers(request);
+        if (error != null) {
+            return Flux.error(new IllegalArgumentException(error));
+        }
+        Flux<User> users;
+        if (Boolean.TRUE.equals(request.getHistory()) || request.getAsOf() != null) {
+            users = getUsersHistory(request);
+        } else if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            users = userId != null ? userRepository.getUserById(userId).flux() : Flux.empty();
+        } else if (request.getMobNum() != null) {
+            users = userRepository.getUserByMob(request.getMobNum()).flux();
+        } else if (request.getUserIds() != null || request.getMobNums() != null) {
+            users = getUsersByKeys(request);
+        } else if (request.getManagerId() != null) {
+            UUID managerId = userValidator.parseUuid(request.getManagerId());
+            users = managerId != null ? userRepository.getUsersByManagerId(managerId) : Flux.empty();
+        } else if (request.getSearch() != null) {
+            users = searchUsers(request.getSearch(), request.getLimit());
+        } else {
+            users = userRepository.streamAllUsers(streamFetchSize);
+        }
+        return users.map(UserDto::from);
+    }
+
+    // Multi-get for user_ids or mob_nums in one query; malformed ids are simply not found.
+    private Flux<User> getUsersByKeys(GetUsersRequest request) {
+        if (request.getUserIds() != null) {
+            List<UUID> userIds = new ArrayList<>();
+            for (String key : request.getUserIds()) {
+                UUID userId = userValidator.parseUuid(key);
+                if (userId != null) userIds.add(userId);
+            }
+            return userIds.isEmpty() ? Flux.empty() : userRepository.getUsersByIds(userIds);
+        }
+        List<String> mobNums = new ArrayList<>(request.getMobNums());
+        mobNums.removeIf(Objects::isNull);
+        return mobNums.isEmpty() ? Flux.empty() : userRepository.getUsersByMobs(mobNums);
+    }
+
+    // Same reads as the servlet history options, for a request validateGetUsers accepted.
+    private Flux<User> getUsersHistory(GetUsersRequest request) {
+        Timestamp asOf = request.getAsOf() != null ? userValidator.parseAsOf(request.getAsOf()) : null;
+        if (request.getUserId() == null && request.getMobNum() == null) {
+            UUID managerId = userValidator.parseUuid(request.getManagerId());
+            return managerId != null ? userRepository.getUsersByManagerIdAsOf(managerId, asOf) : Flux.empty();
+        }
+        Mono<UUID> personId;
+        if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            personId = userId != null ? userRepository.getPersonIdByUserId(userId) : Mono.empty();
+        } else {
+            personId = userRepository.getPersonIdByMob(request.getMobNum());
+        }
+        return personId.flatMapMany(id -> asOf == null
+                ? userRepository.getPersonVersions(id)
+                : userRepository.getPersonAsOf(id, asOf).flux());
+    }
+
+    // Same ranking as the servlet search, for a term and limit validateGetUsers accepted.
+    private Flux<User> searchUsers(String search, Integer requestedLimit) {
+        int limit = Math.min(requestedLimit != null ? requestedLimit : defaultSearchLimit, maxSearchLimit);
+        String digits = userValidator.searchDigits(search);
+        return digits != null
+                ? userRepository.searchByMobile(digits, limit)
+                : userRepository.searchByName(search.trim().toLowerCase(Locale.ROOT), fuzzySearch, limit);
+    }
+
+    /**
+     * Deletes a user identified by user_id or mob_num.
+     */
+    public Mono<DeleteUserResponse> deleteUser(DeleteUserRequest request) {
+        Mono<User> existing;
+        Function<User, Flux<UUID>> delete;
+        String notFound;
+        if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            existing = userId == null ? Mono.empty() : userRepository.getUserById(userId);
+            delete = user -> userRepository.deleteUserById(userId);
+            notFound = "User with provided user_id not found.";
+        } else if (request.getMobNum() != null) {
+            existing = userRepository.getUserByMob(request.getMobNum());
+            delete = user -> userRepository.deleteUserByMob(request.getMobNum());
+            notFound = "User with provided mobile number not found.";
+        } else {
+            return Mono.just(DeleteUserResponse.error("Missing key: Provide either user_id or mob_num."));
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        return existing.flatMap(user -> delete.apply(user)
+                        .concatMap(userId -> userEventRepository.append(UserEvent.DELETED, userId, now).thenReturn(userId))
+                        .collectList()
+                        .flatMap(userIds -> userIds.isEmpty() ? Mono.just(userIds) : changed(now, user).thenReturn(userIds)))
+                .defaultIfEmpty(Collections.emptyList())
+                .as(transactionalOperator::transactional)
+                .map(userIds -> {
+                    if (userIds.isEmpty()) {
+                        return DeleteUserResponse.error(notFound);
+                    }
+                    return DeleteUserResponse.message("User deleted successfully.");
+                });
+    }
+
+    /**
+     * Updates one or more users with the same rules as {@link UserService#updateUser}. Users are
+     * processed one after another, each in its own transaction; a failing id records an error and
+     * the rest are still updated.
+     */
+    public Mono<UpdateUserResponse> updateUser(UpdateUserRequest request) {
+        String requestError = userValidator.validateUpdateRequest(request);
+        if (requestError != null) {
+            return Mono.just(UpdateUserResponse.error(requestError));
+        }
+        UpdateUserResponse response = new UpdateUserResponse();
+        UserUpdateData updateData = request.getUpdateData();
+
+        // Resolved once for all ids; empty when manager_id is absent, malformed or not an active manager.
+        Mono<Optional<UUID>> newManager = Mono.just(Optional.empty());
+        if (updateData.containsKey("manager_id")) {
+            UUID managerId = userValidator.parseUuid(updateData.getManagerId());
+            if (managerId != null) {
+                newManager = managerCache.getManagerById(managerId)
+                        .map(manager -> Optional.of(managerId))
+                        .defaultIfEmpty(Optional.empty());
+            }
+        }
+
+        return newManager
+                .flatMapMany(managerId -> Flux.fromIterable(request.getUserIds())
+                        .concatMap(rawUserId -> updateOne(rawUserId, updateData, managerId.orElse(null), response)))
+                .then(Mono.fromSupplier(() -> {
+                    response.setMessage("User(s) updated successfully.");
+                    return response;
+                }));
+    }
+
+    private Mono<Void> updateOne(String rawUserId, UserUpdateData updateData, UUID newManagerId, UpdateUserResponse response) {
+        UUID userId = userValidator.parseUuid(rawUserId);
+        Mono<User> existing = userId != null ? userRepository.getUserById(userId) : Mono.empty();
+        return existing.switchIfEmpty(Mono.fromRunnable(() -> response.setError("User with user_id " + rawUserId + " not found.")))
+                .flatMap(existingUser -> {
+                    Map<String, Object> validation = new HashMap<>();
+                    User updated = userValidator.applyFieldUpdates(existingUser, updateData, validation);
+                    if (updated == null) {
+                        response.setError((String) validation.get("error"));
+                        return Mono.empty();
+                    }
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    if (!updateData.containsKey("manager_id")) {
+                        updated.setUpdatedAt(now);
+                        return userRepository.updateUser(userId, updated)
+                                .filter(rows -> rows > 0)
+                                .flatMap(rows -> userEventRepository.append(UserEvent.UPDATED, userId, now)
+                                        .then(changed(now, existingUser, updated)));
+                    }
+                    if (newManagerId == null) {
+                        response.setError("Invalid manager_id for user_id " + userId);
+                        return Mono.empty();
+                    }
+                    if (existingUser.getManagerId() == null) {
+                        // A first manager is assigned in place, so the user keeps its user_id; the
+                        // record as it was stays as history under a new id.
+                        User assigned = new User();
+                        assigned.setUserId(userId);
+                        assigned.setManagerId(newManagerId);
+                        return userRepository.assignManager(userId, newManagerId, now)
+                                .filter(rows -> rows > 0)
+                                .flatMap(rows -> userRepository.createUser(UserService.archivedCopy(existingUser, now))
+                                        .then(userEventRepository.append(UserEvent.MANAGER_CHANGED, userId, now))
+                                        .then(changed(now, existingUser, assigned)));
+                    }
+                    if (!newManagerId.equals(existingUser.getManagerId())) {
+                        // A different manager: deactivate the current record and create a new one.
+                        User successor = UserService.successorWithManager(existingUser, newManagerId, now);
+                        return userRepository.deactivateUser(userId, now)
+                                .filter(rows -> rows > 0)
+                                .flatMap(rows -> userRepository.createUser(successor)
+                                        .then(userEventRepository.append(UserEvent.DEACTIVATED, userId, now))
+                                        .then(userEventRepository.append(UserEvent.MANAGER_CHANGED, successor.getUserId(), now))
+                                        .then(changed(now, existingUser, successor)));
+                    }
+                    return Mono.empty();
+                })
+                .as(transactionalOperator::transactional)
+                .onErrorResume(ReactiveUserService::isUniqueViolation, e -> {
+                    response.setError(UserValidator.DUPLICATE_MOBILE + " user_id " + userId + " was not updated.");
+                    return Mono.empty();
+                });
+    }
+
+    // Bumps the ETag counters of the users' user_ids, mob_nums and teams; part of the write's transaction.
+    private Mono<Void> changed(Timestamp now, User... users) {
+        SortedSet<Integer> slots = new TreeSet<>();
+        for (User user : users) {
+            versionSlots.add(slots, user);
+        }
+        return userVersionRepository.bump(slots, now);
+    }
+
+    // What a write that hit the unique index on active mobile numbers fails with, through
+    // Spring's translation or straight from the driver.
+    static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DuplicateKeyException
+                    || cause instanceof R2dbcException && "23505".equals(((R2dbcException) cause).getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
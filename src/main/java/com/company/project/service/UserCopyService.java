@@ -0,0 +1,353 @@
+package com.company.project.service;
+
+import com.company.project.cache.OrgTreeIndex;
+import com.company.project.cache.UserCache;
+import com.company.project.cache.UserVersions;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.repository.ManagerRepository;
+import com.company.project.repository.UserEventRepository;
+import com.company.project.repository.UserRepository;
+import com.company.project.validation.UserValidator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Bulk import and export of the users table through PostgreSQL COPY.
+ * Rows are validated with the same rules as {@link UserService#createUser(CreateUserRequest)} while they
+ * stream from the request body into the copy stream; no User objects are built.
+ */
+@Service
+@Profile("!reactive")
+public class UserCopyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCopyService.class);
+
+    private static final String[] COLUMNS = {"full_name", "mob_num", "pan_num", "manager_id"};
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEventRepository userEventRepository;
+
+    @Autowired
+    private ManagerRepository managerRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserValidator userValidator;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private OrgTreeIndex orgTreeIndex;
+
+    @Autowired
+    private UserVersions userVersions;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.copy.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    private ObjectReader createUserReader;
+
+    @PostConstruct
+    public void init() {
+        createUserReader = objectMapper.readerFor(CreateUserRequest.class);
+    }
+
+    /**
+     * Imports users from CSV (with a header row naming full_name, mob_num, pan_num and optionally
+     * manager_id) or from NDJSON objects with the same keys. Invalid rows are skipped and
+     * reported; valid rows are committed together.
+     */
+    public Map<String, Object> importUsers(Reader in, boolean ndjson) {
+        long start = System.nanoTime();
+        Map<String, Object> response = new HashMap<>();
+        BufferedReader reader = new BufferedReader(in, 65536);
+        Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+        // Looked up before the copy starts: while COPY is open its connection takes no other query.
+        Set<UUID> activeManagerIds = managerRepository.getActiveManagerIds();
+        ValidatingRecords records = new ValidatingRecords(reader, ndjson, createdAt, activeManagerIds);
+
+        long imported;
+        try {
+            // The change events are taken from the rows the import staged, in the same transaction.
+            imported = new TransactionTemplate(transactionManager).execute(status -> {
+                long copied = userRepository.copyUsersIn(records);
+                userEventRepository.appendImported(new Timestamp(System.currentTimeMillis()));
+                // New rows may share mobile numbers with users read before.
+                userVersions.changedAll();
+                return copied;
+            });
+        } catch (UncheckedIOException e) {
+            response.put("error", "Failed to read import body at line " + records.lineNumber + ": " + e.getCause().getMessage());
+            return response;
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return response;
+        } catch (DataIntegrityViolationException e) {
+            // COPY has no ON CONFLICT; one active mobile number already taken rejects the whole import.
+            response.put("error", "Import rejected, nothing was imported: " + constraintError(e));
+            return response;
+        }
+        // New rows may share mobile numbers with cached users; start from a clean slate.
+        userCache.invalidateAll();
+        orgTreeIndex.rebuild();
+
+        long elapsedNanos = System.nanoTime() - start;
+        logger.info("Imported {} user(s) via COPY in {} ms, {} row(s) rejected", imported, elapsedNanos / 1_000_000, records.failed);
+        response.put("imported", imported);
+        response.put("failed", records.failed);
+        response.put("errors", records.errors);
+        response.put("elapsed_ms", elapsedNanos / 1_000_000);
+        response.put("rows_per_second", elapsedNanos > 0 ? Math.round((imported + records.failed) * 1e9 / elapsedNanos) : imported);
+        return response;
+    }
+
+    // The validation error the other create paths give for the violation, with the key or the
+    // constraint PostgreSQL names.
+    private static String constraintError(DataIntegrityViolationException e) {
+        String error = e instanceof DuplicateKeyException ? UserValidator.DUPLICATE_MOBILE : "A row violates a constraint of the users table.";
+        Throwable cause = e.getMostSpecificCause();
+        ServerErrorMessage server = cause instanceof PSQLException ? ((PSQLException) cause).getServerErrorMessage() : null;
+        if (server == null) {
+            return error + " " + cause.getMessage();
+        }
+        if (e instanceof DuplicateKeyException && server.getDetail() != null) {
+            return error + " " + server.getDetail();
+        }
+        return server.getConstraint() != null ? error + " Constraint: " + server.getConstraint() + "." : error;
+    }
+
+    /**
+     * Writes the whole users table to the output as CSV or NDJSON straight from COPY TO STDOUT.
+     */
+    public void exportUsers(boolean ndjson, OutputStream out) throws IOException {
+        long rows = userRepository.copyUsersOut(ndjson, out);
+        out.flush();
+        logger.info("Exported {} user(s) via COPY", rows);
+    }
+
+    /**
+     * Pulls rows from the request body one at a time and hands out the CSV record to copy for
+     * each valid row. Rejected rows are counted and the first few are kept for the response.
+     */
+    private class ValidatingRecords implements Iterator<String> {
+        private final BufferedReader reader;
+        private final boolean ndjson;
+        private final String createdAt;
+        private final Set<UUID> activeManagerIds;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private int[] columnIndexes;
+        private long lineNumber;
+        private long failed;
+        private String next;
+        private boolean done;
+
+        ValidatingRecords(BufferedReader reader, boolean ndjson, Timestamp createdAt, Set<UUID> activeManagerIds) {
+            this.reader = reader;
+            this.ndjson = ndjson;
+            this.createdAt = createdAt.toString();
+            this.activeManagerIds = activeManagerIds;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && !done) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        done = true;
+                        break;
+                    }
+                    lineNumber++;
+                    if (line.trim().isEmpty()) continue;
+                    if (!ndjson && columnIndexes == null) {
+                        columnIndexes = readHeader(line);
+                        continue;
+                    }
+                    next = toRecord(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            String record = next;
+            next = null;
+            return record;
+        }
+
+        private int[] readHeader(String line) {
+            List<String> header = parseCsvLine(line);
+            if (header == null) {
+                throw new IllegalArgumentException("Malformed CSV header.");
+            }
+            int[] indexes = new int[COLUMNS.length];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                indexes[i] = -1;
+                for (int j = 0; j < header.size(); j++) {
+                    if (COLUMNS[i].equalsIgnoreCase(header.get(j).trim())) {
+                        indexes[i] = j;
+                    }
+                }
+                // manager_id is the only optional column.
+                if (indexes[i] < 0 && i < 3) {
+                    throw new IllegalArgumentException("Missing CSV column: " + COLUMNS[i]);
+                }
+            }
+            return indexes;
+        }
+
+        private String toRecord(String line) {
+            String[] fields = ndjson ? readJsonFields(line) : readCsvFields(line);
+            if (fields == null) {
+                return reject("Malformed row.");
+            }
+            String fullName = fields[0];
+            if (!userService.validateFullName(fullName)) {
+                return reject("Full name must not be empty.");
+            }
+            String mobNum = userService.validateAndFormatMobile(fields[1]);
+            if (mobNum == null) {
+                return reject("Invalid mobile number. It must be a valid 10-digit number.");
+            }
+            String panNum = userService.validateAndFormatPan(fields[2]);
+            if (panNum == null) {
+                return reject("Invalid PAN number. It must follow the format AABCP1234C.");
+            }
+            UUID managerId = null;
+            if (fields[3] != null) {
+                managerId = userValidator.parseUuid(fields[3]);
+                if (managerId == null || !activeManagerIds.contains(managerId)) {
+                    return reject("Invalid manager_id. Manager does not exist or is inactive.");
+                }
+            }
+
+            // A new person: its first version's user_id doubles as person_id.
+            UUID userId = UUID.randomUUID();
+            StringBuilder record = new StringBuilder(160);
+            record.append(userId).append(',');
+            if (managerId != null) record.append(managerId);
+            record.append(',');
+            appendCsvField(record, fullName).append(',');
+            record.append(mobNum).append(',').append(panNum).append(',');
+            record.append(createdAt).append(",true,").append(userId).append(',').append(createdAt).append('\n');
+            return record.toString();
+        }
+
+        private String[] readCsvFields(String line) {
+            List<String> values = parseCsvLine(line);
+            if (values == null) return null;
+            String[] fields = new String[COLUMNS.length];
+            for (int i = 0; i < COLUMNS.length; i++) {
+                int index = columnIndexes[i];
+                String value = index >= 0 && index < values.size() ? values.get(index) : null;
+                fields[i] = value == null || value.isEmpty() ? null : value;
+            }
+            return fields;
+        }
+
+        private String[] readJsonFields(String line) {
+            CreateUserRequest request;
+            try {
+                request = createUserReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+            if (request == null) return null;
+            return new String[]{request.getFullName(), request.getMobNum(), request.getPanNum(), request.getManagerId()};
+        }
+
+        private String reject(String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                Map<String, Object> error = new LinkedHashMap<>();
+                error.put("line", lineNumber);
+                error.put("error", message);
+                errors.add(error);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Splits one RFC 4180 CSV line. Returns null for an unterminated quoted field; fields
+     * spanning several lines are not supported.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) return null;
+        values.add(field.toString());
+        return values;
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder record, String value) {
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') record.append('"');
+            record.append(c);
+        }
+        return record.append('"');
+    }
+}
@@ -0,0 +1,68 @@
+package com.company.project.service;
+
+import com.company.project.dto.ChangesRequest;
+import com.company.project.dto.ChangesResponse;
+import com.company.project.dto.UserEventDto;
+import com.company.project.model.UserEvent;
+import com.company.project.repository.UserEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental sync: serves published user change events after a cursor, so consumers fetch
+ * deltas instead of paging through every user.
+ */
+@Service
+@Profile("!reactive")
+public class UserEventService {
+
+    @Autowired
+    private UserEventRepository userEventRepository;
+
+    @Value("${users.events.changes.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${users.events.changes.max-limit:1000}")
+    private int maxLimit;
+
+    /**
+     * Returns up to limit events with seq greater than the cursor, oldest first. A cursor older
+     * than the retained events is rejected, as the events in between were purged.
+     */
+    public ChangesResponse getChanges(ChangesRequest request) {
+        long after = request.getAfter() != null ? request.getAfter() : 0;
+        int limit = request.getLimit() != null ? request.getLimit() : defaultLimit;
+        if (after < 0) {
+            return ChangesResponse.error("after must not be negative.");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            return ChangesResponse.error("limit must be between 1 and " + maxLimit + ".");
+        }
+
+        // One more than asked tells whether another page is ready.
+        List<UserEvent> events = userEventRepository.getChanges(after, limit + 1);
+        if (after > 0 && (events.isEmpty() || events.get(0).getSeq() > after + 1)) {
+            Long minSeq = userEventRepository.minSeq();
+            if (minSeq != null && minSeq > after + 1) {
+                return ChangesResponse.error("Cursor " + after + " has expired. Resync with /get_users and continue from cursor "
+                        + (minSeq - 1) + ".");
+            }
+        }
+
+        ChangesResponse response = new ChangesResponse();
+        boolean hasMore = events.size() > limit;
+        List<UserEventDto> page = new ArrayList<>(Math.min(events.size(), limit));
+        for (UserEvent event : hasMore ? events.subList(0, limit) : events) {
+            page.add(UserEventDto.from(event));
+        }
+        response.setEvents(page);
+        response.setCursor(page.isEmpty() ? after : page.get(page.size() - 1).getSeq());
+        response.setHasMore(hasMore);
+        return response;
+    }
+}
@@ -1,25 +1,68 @@
 package com.company.project.service;
 
 
+import com.company.project.cache.ManagerCache;
+import com.company.project.cache.OrgTreeIndex;
+import com.company.project.cache.UserCache;
+import com.company.project.cache.UserVersions;
+import com.company.project.datasource.ReadRouting;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.CreateUserResult;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.DeleteUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.OrgTreeRequest;
+import com.company.project.dto.OrgTreeResponse;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.dto.UpdateUserResult;
+import com.company.project.dto.UserDto;
+import com.company.project.dto.UserUpdateData;
 import com.company.project.model.Manager;
 import com.company.project.model.User;
-import com.company.project.repository.ManagerRepository;
+import com.company.project.model.UserEvent;
+import com.company.project.repository.UserEventRepository;
 import com.company.project.repository.UserRepository;
+import com.company.project.validation.UserValidator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service layer for user operations and validations.
  */
 @Service
+@Profile("!reactive")
 public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
@@ -28,246 +71,901 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private ManagerRepository managerRepository;
+    private UserEventRepository userEventRepository;
+
+    @Autowired
+    private ManagerCache managerCache;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private OrgTreeIndex orgTreeIndex;
+
+    @Autowired
+    private UserVersions userVersions;
+
+    @Autowired
+    private UserValidator userValidator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${users.page.default-size:100}")
+    private int defaultPageSize;
+
+    @Value("${users.page.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${users.stream.fetch-size:1000}")
+    private int streamFetchSize;
+
+    @Value("${users.search.default-limit:20}")
+    private int defaultSearchLimit;
+
+    @Value("${users.search.max-limit:100}")
+    private int maxSearchLimit;
+
+    @Value("${users.search.fuzzy:true}")
+    private boolean fuzzySearch;
+
+    @Value("${users.lookup.max-keys:1000}")
+    private int maxLookupKeys;
+
+    @Value("${users.bulk.batch-size:1000}")
+    private int bulkBatchSize;
+
+    @Value("${users.bulk.validation-parallelism:0}")
+    private int bulkValidationParallelism;
+
+    @Value("${users.bulk.max-reported-errors:100}")
+    private int bulkMaxReportedErrors;
+
+    private ForkJoinPool validationPool;
+
+    // Built once; readers and writers are immutable and reuse Jackson's resolved (de)serializers.
+    private ObjectReader createUserReader;
+    private ObjectWriter userStreamWriter;
+
+    @PostConstruct
+    public void init() {
+        int parallelism = bulkValidationParallelism > 0 ? bulkValidationParallelism : Runtime.getRuntime().availableProcessors();
+        validationPool = new ForkJoinPool(parallelism);
+        createUserReader = objectMapper.readerFor(CreateUserRequest.class);
+        userStreamWriter = objectMapper.writerFor(UserDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationPool.shutdown();
+    }
 
     // Validate that full name is not empty
     public boolean validateFullName(String fullName) {
-        return StringUtils.hasText(fullName);
+        return userValidator.validateFullName(fullName);
     }
 
     // Validate and format mobile number (removes allowed prefixes "0" or "+91")
     public String validateAndFormatMobile(String mobNum) {
-        if (!StringUtils.hasText(mobNum)) return null;
-        if (mobNum.startsWith("+91")) {
-            mobNum = mobNum.substring(3);
-        } else if (mobNum.startsWith("0")) {
-            mobNum = mobNum.substring(1);
-        }
-        mobNum = mobNum.replaceAll("[\\s-]", "");
-        if (mobNum.matches("\\d{10}")) {
-            return mobNum;
-        }
-        return null;
+        return userValidator.validateAndFormatMobile(mobNum);
     }
 
     // Validate and format PAN number: pattern [A-Z]{5}[0-9]{4}[A-Z]{1}
     public String validateAndFormatPan(String panNum) {
-        if (!StringUtils.hasText(panNum)) return null;
-        panNum = panNum.toUpperCase();
-        Pattern pattern = Pattern.compile("[A-Z]{5}[0-9]{4}[A-Z]{1}");
-        Matcher matcher = pattern.matcher(panNum);
-        if (matcher.matches()) {
-            return panNum;
-        }
-        return null;
+        return userValidator.validateAndFormatPan(panNum);
     }
 
     // Validate that manager exists and is active
     public boolean validateManager(String managerId) {
-        if (!StringUtils.hasText(managerId)) return false;
-        Manager manager = managerRepository.getManagerById(managerId);
-        return manager != null;
+        return resolveManagerId(managerId) != null;
+    }
+
+    /**
+     * Returns the parsed id of an active manager, or null if the id is malformed, unknown or inactive.
+     */
+    public UUID resolveManagerId(String managerId) {
+        UUID id = userValidator.parseUuid(managerId);
+        if (id == null) return null;
+        Manager manager = managerCache.getManagerById(id);
+        return manager != null ? id : null;
     }
 
     /**
      * Creates a new user after performing all necessary validations.
      */
-    public Map<String, Object> createUser(Map<String, Object> payload) {
+    public CreateUserResponse createUser(CreateUserRequest request) {
+        Map<String, Object> validation = new HashMap<>();
+        User user = prepareNewUser(request, validation);
+        if (user == null) {
+            return CreateUserResponse.error((String) validation.get("error"));
+        }
+
+        // Nothing is inserted when an active user already has the mobile number, e.g. on a retry.
+        // The change event is written in the same transaction, as for every change below.
+        int result = new TransactionTemplate(transactionManager).execute(status -> {
+            int inserted = userRepository.createUser(user);
+            if (inserted > 0) {
+                userEventRepository.append(UserEvent.CREATED, user.getUserId(), user.getCreatedAt());
+                userVersions.changed(user);
+            }
+            return inserted;
+        });
+        if (result > 0) {
+            userCache.invalidate(user);
+            orgTreeIndex.put(user.getUserId(), user.getManagerId());
+            logger.info("User created with ID {}", user.getUserId());
+            return CreateUserResponse.message("User created successfully.");
+        }
+        return CreateUserResponse.error(UserValidator.DUPLICATE_MOBILE);
+    }
+
+    /**
+     * Receives the outcome of each /create_users row, in row order.
+     */
+    @FunctionalInterface
+    public interface RowListener {
+        void onRow(CreateUserResult result) throws IOException;
+    }
+
+    /**
+     * Creates users from a JSON array or an NDJSON stream. Rows are read in chunks of
+     * users.bulk.batch-size, validated in parallel and inserted with one statement per chunk,
+     * each chunk in its own transaction. Only one chunk is held in memory: the response has
+     * counts, throughput and the first users.bulk.max-reported-errors failed rows. Malformed
+     * input stops the read with an error, but every row before it has been processed and is
+     * counted in created and failed, so those rows stay committed.
+     */
+    public Map<String, Object> createUsers(InputStream in) throws IOException {
+        return createUsers(in, null);
+    }
+
+    /**
+     * Like {@link #createUsers(InputStream)}, but hands every row's outcome to the listener once
+     * its chunk has committed, instead of listing the first failed rows under errors.
+     */
+    public Map<String, Object> createUsers(InputStream in, RowListener listener) throws IOException {
+        long start = System.nanoTime();
         Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> errors = new ArrayList<>();
+        List<CreateUserRequest> chunk = new ArrayList<>(bulkBatchSize);
+        int created = 0;
+        int rowCount = 0;
 
-        String fullName = (String) payload.get("full_name");
-        String mobNum = (String) payload.get("mob_num");
-        String panNum = (String) payload.get("pan_num");
-        String managerId = payload.get("manager_id") != null ? payload.get("manager_id").toString() : null;
+        try (MappingIterator<CreateUserRequest> rows = createUserReader.readValues(in)) {
+            while (rows.hasNextValue()) {
+                chunk.add(rows.nextValue());
+                if (chunk.size() == bulkBatchSize) {
+                    created += createChunk(chunk, rowCount, errors, listener);
+                    rowCount += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            response.put("error", "Malformed input after row " + (rowCount + chunk.size()) + ": " + e.getOriginalMessage()
+                    + ". The rows before it were processed; see created and failed.");
+        }
+        if (!chunk.isEmpty()) {
+            created += createChunk(chunk, rowCount, errors, listener);
+            rowCount += chunk.size();
+        }
 
-        // Validate input
-        if (!validateFullName(fullName)) {
-            response.put("error", "Full name must not be empty.");
-            return response;
+        long elapsedNanos = System.nanoTime() - start;
+        logger.info("Bulk create inserted {} of {} user(s) in {} ms", created, rowCount, elapsedNanos / 1_000_000);
+        response.put("total", rowCount);
+        response.put("created", created);
+        response.put("failed", rowCount - created);
+        if (listener == null) {
+            response.put("errors", errors);
         }
-        String formattedMob = validateAndFormatMobile(mobNum);
-        if (formattedMob == null) {
-            response.put("error", "Invalid mobile number. It must be a valid 10-digit number.");
-            return response;
+        response.put("elapsed_ms", elapsedNanos / 1_000_000);
+        response.put("rows_per_second", elapsedNanos > 0 ? Math.round(rowCount * 1e9 / elapsedNanos) : rowCount);
+        return response;
+    }
+
+    // Validates one chunk's fields in parallel, checks managers on the calling thread, and
+    // inserts the valid rows in one statement; rows whose mobile number an active user already
+    // has are skipped. Failed rows are added to errors until it holds
+    // users.bulk.max-reported-errors, or every row's outcome is passed to the listener when there
+    // is one. Returns the number of users created.
+    private int createChunk(List<CreateUserRequest> chunk, int firstRow, List<Map<String, Object>> errors,
+                            RowListener listener) throws IOException {
+        int size = chunk.size();
+        User[] users = new User[size];
+        String[] rowErrors = new String[size];
+        try {
+            validationPool.submit(() -> IntStream.range(0, size).parallel().forEach(i -> {
+                CreateUserRequest request = chunk.get(i);
+                if (request == null) {
+                    rowErrors[i] = "Row must be a JSON object.";
+                    return;
+                }
+                // Field rules only: the parallel threads never touch the database, whose
+                // connections the request limiter counts one per request.
+                Map<String, Object> validation = new HashMap<>();
+                try {
+                    users[i] = userValidator.validateNewUser(request, validation);
+                } catch (RuntimeException e) {
+                    validation.put("error", "Invalid row: " + e.getMessage());
+                }
+                if (users[i] == null) {
+                    rowErrors[i] = (String) validation.get("error");
+                }
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while validating users", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to validate users", e.getCause());
         }
-        String formattedPan = validateAndFormatPan(panNum);
-        if (formattedPan == null) {
-            response.put("error", "Invalid PAN number. It must follow the format AABCP1234C.");
-            return response;
+
+        // Managers are cached, so this is mostly lookups; a miss loads on the request's connection.
+        List<User> valid = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (users[i] == null) continue;
+            if (users[i].getManagerId() != null && managerCache.getManagerById(users[i].getManagerId()) == null) {
+                rowErrors[i] = UserValidator.INVALID_MANAGER;
+                users[i] = null;
+                continue;
+            }
+            valid.add(users[i]);
         }
-        if (managerId != null && !validateManager(managerId)) {
-            response.put("error", "Invalid manager_id. Manager does not exist or is inactive.");
-            return response;
+        String insertError = null;
+        Set<UUID> inserted = Collections.emptySet();
+        try {
+            inserted = new TransactionTemplate(transactionManager).execute(status -> {
+                Set<UUID> ids = userRepository.insertNewUsers(valid);
+                userEventRepository.append(UserEvent.CREATED, ids, new Timestamp(System.currentTimeMillis()));
+                userVersions.changed(valid.stream().filter(user -> ids.contains(user.getUserId())).collect(Collectors.toList()));
+                return ids;
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Bulk insert of {} user(s) failed: {}", valid.size(), e.getMostSpecificCause().getMessage());
+            insertError = "Failed to create user: " + e.getMostSpecificCause().getMessage();
         }
 
-        User user = new User();
-        user.setUserId(UUID.randomUUID());
-        user.setFullName(fullName);
-        user.setMobNum(formattedMob);
-        user.setPanNum(formattedPan);
-        if (managerId != null) {
-            user.setManagerId(UUID.fromString(managerId));
+        int created = 0;
+        for (int i = 0; i < size; i++) {
+            String error = users[i] == null ? rowErrors[i]
+                    : insertError != null ? insertError
+                    : !inserted.contains(users[i].getUserId()) ? UserValidator.DUPLICATE_MOBILE : null;
+            if (error == null) {
+                userCache.invalidate(users[i]);
+                orgTreeIndex.put(users[i].getUserId(), users[i].getManagerId());
+                created++;
+            }
+            if (listener != null) {
+                listener.onRow(new CreateUserResult(firstRow + i, error == null ? users[i].getUserId() : null, error));
+            } else if (error != null && errors.size() < bulkMaxReportedErrors) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("row", firstRow + i);
+                result.put("error", error);
+                errors.add(result);
+            }
         }
-        user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
-        user.setUpdatedAt(null);
-        user.setIsActive(true);
+        return created;
+    }
 
-        int result = userRepository.createUser(user);
-        if (result > 0) {
-            logger.info("User created with ID {}", user.getUserId());
-            response.put("message", "User created successfully.");
-        } else {
-            response.put("error", "Failed to create user.");
+    /**
+     * Validates a create payload and builds the user to insert. On failure puts the
+     * validation message under "error" in the given map and returns null.
+     */
+    private User prepareNewUser(CreateUserRequest request, Map<String, Object> response) {
+        User user = userValidator.validateNewUser(request, response);
+        if (user == null) {
+            return null;
         }
-        return response;
+        if (user.getManagerId() != null && managerCache.getManagerById(user.getManagerId()) == null) {
+            response.put("error", UserValidator.INVALID_MANAGER);
+            return null;
+        }
+        return user;
     }
 
     /**
      * Retrieves users based on provided filters.
      */
-    public Map<String, Object> getUsers(Map<String, Object> payload) {
-        Map<String, Object> response = new HashMap<>();
+    public GetUsersResponse getUsers(GetUsersRequest request) {
+        GetUsersResponse response = new GetUsersResponse();
         List<User> users = new ArrayList<>();
 
-        if (payload.containsKey("user_id")) {
-            User user = userRepository.getUserById(payload.get("user_id").toString());
+        if (Boolean.TRUE.equals(request.getHistory()) || request.getAsOf() != null) {
+            return getUsersHistory(request);
+        }
+        if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            User user = userId != null ? userCache.getUserById(userId) : null;
             if (user != null) users.add(user);
-        } else if (payload.containsKey("mob_num")) {
-            User user = userRepository.getUserByMob(payload.get("mob_num").toString());
+        } else if (request.getMobNum() != null) {
+            User user = userCache.getUserByMob(request.getMobNum());
             if (user != null) users.add(user);
-        } else if (payload.containsKey("manager_id")) {
-            users = userRepository.getUsersByManagerId(payload.get("manager_id").toString());
+        } else if (request.getUserIds() != null || request.getMobNums() != null) {
+            return getUsersByKeys(request);
+        } else if (request.getManagerId() != null) {
+            UUID managerId = userValidator.parseUuid(request.getManagerId());
+            if (managerId != null) users = userRepository.getUsersByManagerId(managerId);
+        } else if (request.getSearch() != null) {
+            return searchUsers(request);
         } else {
-            users = userRepository.getAllUsers();
+            return getUsersPage(request);
         }
 
-        response.put("users", users);
+        response.setUsers(toDtos(users));
         return response;
     }
 
     /**
-     * Deletes a user identified by user_id or mob_num.
+     * The ETag of what {@link #getUsers} would answer, for the current reads by user_id, mob_num
+     * or manager_id; null for every other request, which then has none.
      */
-    public Map<String, Object> deleteUser(Map<String, Object> payload) {
-        Map<String, Object> response = new HashMap<>();
-        if (payload.containsKey("user_id")) {
-            User user = userRepository.getUserById(payload.get("user_id").toString());
-            if (user == null) {
-                response.put("error", "User with provided user_id not found.");
-                return response;
+    public String getUsersEtag(GetUsersRequest request) {
+        if (Boolean.TRUE.equals(request.getHistory()) || request.getAsOf() != null) {
+            return null;
+        }
+        if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            return userId != null ? userVersions.userEtag(userId) : null;
+        } else if (request.getMobNum() != null) {
+            return userVersions.mobileEtag(request.getMobNum());
+        } else if (request.getUserIds() != null || request.getMobNums() != null) {
+            return null;
+        } else if (request.getManagerId() != null) {
+            UUID managerId = userValidator.parseUuid(request.getManagerId());
+            return managerId != null ? userVersions.teamEtag(managerId) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Multi-get for user_ids or mob_nums, served from the user cache; its misses are loaded with
+     * one query per batch, shared with concurrent single-key lookups.
+     */
+    private GetUsersResponse getUsersByKeys(GetUsersRequest request) {
+        boolean byId = request.getUserIds() != null;
+        List<String> keys = byId ? request.getUserIds() : request.getMobNums();
+        if (keys.size() > maxLookupKeys) {
+            return GetUsersResponse.error((byId ? "user_ids" : "mob_nums") + " may list at most " + maxLookupKeys + " values.");
+        }
+        List<User> users;
+        if (byId) {
+            // Malformed ids are simply not found, as with user_id.
+            List<UUID> userIds = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                UUID userId = userValidator.parseUuid(key);
+                if (userId != null) userIds.add(userId);
             }
-            userRepository.deleteUserById(payload.get("user_id").toString());
-            response.put("message", "User deleted successfully.");
-        } else if (payload.containsKey("mob_num")) {
-            User user = userRepository.getUserByMob(payload.get("mob_num").toString());
-            if (user == null) {
-                response.put("error", "User with provided mobile number not found.");
-                return response;
+            users = userCache.getUsersByIds(userIds);
+        } else {
+            List<String> mobNums = new ArrayList<>(keys);
+            mobNums.removeIf(Objects::isNull);
+            users = userCache.getUsersByMobs(mobNums);
+        }
+        GetUsersResponse response = new GetUsersResponse();
+        response.setUsers(toDtos(users));
+        return response;
+    }
+
+    /**
+     * History reads: every version of the person behind user_id or mob_num, or with as_of the
+     * person's version, or the users reporting to manager_id, at that instant. These go to the
+     * database; the caches only hold current records.
+     */
+    private GetUsersResponse getUsersHistory(GetUsersRequest request) {
+        String requestError = userValidator.validateHistoryRequest(request);
+        if (requestError != null) {
+            return GetUsersResponse.error(requestError);
+        }
+        Timestamp asOf = request.getAsOf() != null ? userValidator.parseAsOf(request.getAsOf()) : null;
+
+        List<User> users = new ArrayList<>();
+        if (request.getUserId() != null || request.getMobNum() != null) {
+            UUID personId;
+            if (request.getUserId() != null) {
+                UUID userId = userValidator.parseUuid(request.getUserId());
+                personId = userId != null ? userRepository.getPersonIdByUserId(userId) : null;
+            } else {
+                personId = userRepository.getPersonIdByMob(request.getMobNum());
+            }
+            if (personId != null && asOf == null) {
+                users = userRepository.getPersonVersions(personId);
+            } else if (personId != null) {
+                User user = userRepository.getPersonAsOf(personId, asOf);
+                if (user != null) users.add(user);
             }
-            userRepository.deleteUserByMob(payload.get("mob_num").toString());
-            response.put("message", "User deleted successfully.");
         } else {
-            response.put("error", "Missing key: Provide either user_id or mob_num.");
+            UUID managerId = userValidator.parseUuid(request.getManagerId());
+            if (managerId != null) users = userRepository.getUsersByManagerIdAsOf(managerId, asOf);
         }
+
+        GetUsersResponse response = new GetUsersResponse();
+        response.setUsers(toDtos(users));
         return response;
     }
 
     /**
-     * Updates one or more users based on provided user_ids and update_data.
-     * For bulk updates (more than one user_id), only manager_id can be updated.
-     * If manager_id is updated and the user already has a manager, the current record
-     * is deactivated and a new record is inserted.
+     * Ranked search for the search filter: a term of digits (spaces, hyphens and a leading '+'
+     * allowed) matches anywhere in mob_num, anything else matches full_name by prefix and, with
+     * users.search.fuzzy, by trigram similarity.
      */
-    public Map<String, Object> updateUser(Map<String, Object> payload) {
-        Map<String, Object> response = new HashMap<>();
-        if (!payload.containsKey("user_ids") || !payload.containsKey("update_data")) {
-            response.put("error", "Missing keys: user_ids and update_data are required.");
-            return response;
+    private GetUsersResponse searchUsers(GetUsersRequest request) {
+        int limit = defaultSearchLimit;
+        if (request.getLimit() != null) {
+            limit = request.getLimit();
+            if (limit <= 0) {
+                return GetUsersResponse.error("Invalid limit. It must be a positive integer.");
+            }
+        }
+        limit = Math.min(limit, maxSearchLimit);
+
+        String searchError = userValidator.validateSearch(request.getSearch());
+        if (searchError != null) {
+            return GetUsersResponse.error(searchError);
+        }
+        String digits = userValidator.searchDigits(request.getSearch());
+        List<User> users = digits != null
+                ? userRepository.searchByMobile(digits, limit)
+                : userRepository.searchByName(request.getSearch().trim().toLowerCase(Locale.ROOT), fuzzySearch, limit);
+
+        GetUsersResponse response = new GetUsersResponse();
+        response.setUsers(toDtos(users));
+        return response;
+    }
+
+    private static List<UserDto> toDtos(List<User> users) {
+        List<UserDto> dtos = new ArrayList<>(users.size());
+        for (User user : users) {
+            dtos.add(UserDto.from(user));
         }
+        return dtos;
+    }
 
-        List<String> userIds = (List<String>) payload.get("user_ids");
-        Map<String, Object> updateData = (Map<String, Object>) payload.get("update_data");
+    /**
+     * Returns one keyset page of all users. The optional page_token is the opaque
+     * next_page_token of the previous page; page_size is capped at users.page.max-size.
+     */
+    private GetUsersResponse getUsersPage(GetUsersRequest request) {
+        int pageSize = defaultPageSize;
+        if (request.getPageSize() != null) {
+            pageSize = request.getPageSize();
+            if (pageSize <= 0) {
+                return GetUsersResponse.error("Invalid page_size. It must be a positive integer.");
+            }
+        }
+        pageSize = Math.min(pageSize, maxPageSize);
 
-        // For bulk update, only manager_id is allowed.
-        if (userIds.size() > 1) {
-            for (String key : updateData.keySet()) {
-                if (!key.equals("manager_id")) {
-                    response.put("error", "Bulk update only supports manager_id. Extra key: " + key);
-                    return response;
+        Timestamp afterCreatedAt = null;
+        UUID afterUserId = null;
+        if (request.getPageToken() != null) {
+            String[] cursor = decodePageToken(request.getPageToken());
+            if (cursor == null || (afterUserId = userValidator.parseUuid(cursor[2])) == null) {
+                return GetUsersResponse.error("Invalid page_token.");
+            }
+            afterCreatedAt = toTimestamp(cursor[0], cursor[1]);
+        }
+
+        // Read one extra row to find out whether another page exists.
+        List<User> users = userRepository.getUsersPage(afterCreatedAt, afterUserId, pageSize + 1);
+        String nextPageToken = null;
+        if (users.size() > pageSize) {
+            users = users.subList(0, pageSize);
+            User last = users.get(pageSize - 1);
+            nextPageToken = encodePageToken(last.getCreatedAt(), last.getUserId().toString());
+        }
+
+        GetUsersResponse response = new GetUsersResponse();
+        response.setUsers(toDtos(users));
+        response.setNextPageToken(nextPageToken);
+        return response;
+    }
+
+    /**
+     * Writes every user to the output stream as newline-delimited JSON, one row at a time.
+     */
+    public void streamUsers(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        try {
+            // Full scans are served by a replica when one is configured.
+            ReadRouting.onReplica(() -> transactionTemplate.executeWithoutResult(status -> userRepository.streamAllUsers(streamFetchSize, user -> {
+                try {
+                    userStreamWriter.writeValue(generator, UserDto.from(user));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            })));
+        } catch (UncheckedIOException e) {
+            // Most likely the client went away; stop reading rows and let the container clean up.
+            logger.warn("Aborted user stream: {}", e.getMessage());
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    // Page token layout: "<epoch seconds>.<nanos>|<user_id>", base64url encoded.
+    private static String encodePageToken(Timestamp createdAt, String userId) {
+        long seconds = Math.floorDiv(createdAt.getTime(), 1000L);
+        String raw = seconds + "." + createdAt.getNanos() + "|" + userId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodePageToken(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int dot = raw.indexOf('.');
+            int bar = raw.indexOf('|');
+            if (dot <= 0 || bar <= dot) return null;
+            String seconds = raw.substring(0, dot);
+            String nanos = raw.substring(dot + 1, bar);
+            String userId = raw.substring(bar + 1);
+            Long.parseLong(seconds);
+            int nanoValue = Integer.parseInt(nanos);
+            if (nanoValue < 0 || nanoValue > 999999999) return null;
+            return new String[]{seconds, nanos, userId};
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Timestamp toTimestamp(String seconds, String nanos) {
+        Timestamp timestamp = new Timestamp(Long.parseLong(seconds) * 1000L);
+        timestamp.setNanos(Integer.parseInt(nanos));
+        return timestamp;
+    }
+
+    /**
+     * Returns the reporting tree under a manager from {@link OrgTreeIndex}, without a query.
+     * A user_id that other users report to is accepted as well as a managers row.
+     */
+    public OrgTreeResponse getOrgTree(OrgTreeRequest request) {
+        UUID managerId = userValidator.parseUuid(request.getManagerId());
+        if (managerId == null) {
+            return OrgTreeResponse.error("Invalid manager_id.");
+        }
+        int maxDepth = Integer.MAX_VALUE;
+        if (request.getMaxDepth() != null) {
+            maxDepth = request.getMaxDepth();
+            if (maxDepth < 0) {
+                return OrgTreeResponse.error("Invalid max_depth. It must be zero or a positive integer.");
             }
         }
+        if (!orgTreeIndex.hasReports(managerId) && managerCache.getManagerById(managerId) == null) {
+            return OrgTreeResponse.error(UserValidator.INVALID_MANAGER);
+        }
+        return orgTreeIndex.subtree(managerId, maxDepth);
+    }
 
-        for (String userId : userIds) {
-            User existingUser = userRepository.getUserById(userId);
-            if (existingUser == null) {
-                response.put("error", "User with user_id " + userId + " not found.");
-                continue;
+    /**
+     * Deletes a user identified by user_id or mob_num.
+     */
+    public DeleteUserResponse deleteUser(DeleteUserRequest request) {
+        // Each delete reads back the rows it removed, which is all the cache, index and events need.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (request.getUserId() != null) {
+            UUID userId = userValidator.parseUuid(request.getUserId());
+            User user = userId == null ? null : transactionTemplate.execute(status -> {
+                User deleted = userRepository.deleteUserById(userId);
+                if (deleted != null) {
+                    userEventRepository.append(UserEvent.DELETED, userId, now);
+                    userVersions.changed(deleted);
+                }
+                return deleted;
+            });
+            if (user == null) {
+                return DeleteUserResponse.error("User with provided user_id not found.");
+            }
+            userCache.invalidate(user);
+            orgTreeIndex.remove(userId);
+            return DeleteUserResponse.message("User deleted successfully.");
+        } else if (request.getMobNum() != null) {
+            List<User> users = transactionTemplate.execute(status -> {
+                List<User> deleted = userRepository.deleteUserByMob(request.getMobNum());
+                userEventRepository.append(UserEvent.DELETED, deleted.stream().map(User::getUserId).collect(Collectors.toList()), now);
+                userVersions.changed(deleted);
+                return deleted;
+            });
+            if (users.isEmpty()) {
+                return DeleteUserResponse.error("User with provided mobile number not found.");
             }
+            userCache.invalidateByMob(request.getMobNum());
+            for (User user : users) {
+                userCache.invalidate(user);
+                orgTreeIndex.remove(user.getUserId());
+            }
+            return DeleteUserResponse.message("User deleted successfully.");
+        }
+        return DeleteUserResponse.error("Missing key: Provide either user_id or mob_num.");
+    }
+
+    /**
+     * Updates one or more users based on provided user_ids and update_data.
+     * For bulk updates (more than one user_id), only manager_id can be updated.
+     * If manager_id is updated and the user already has a manager, the current record is
+     * deactivated and a new record is inserted. A first manager is assigned in place, and the
+     * record as it was is kept as history under a new user_id.
+     */
+    public UpdateUserResponse updateUser(UpdateUserRequest request) {
+        String requestError = userValidator.validateUpdateRequest(request);
+        if (requestError != null) {
+            return UpdateUserResponse.error(requestError);
+        }
+
+        List<String> userIds = request.getUserIds();
+        UserUpdateData updateData = request.getUpdateData();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
 
-            // Validate and assign new values or retain existing ones
-            String fullName = updateData.containsKey("full_name") ? (String) updateData.get("full_name") : existingUser.getFullName();
-            if (updateData.containsKey("full_name") && !validateFullName(fullName)) {
-                response.put("error", "Full name must not be empty for user_id " + userId);
+        if (userIds.size() > 1 && updateData.containsKey("manager_id")) {
+            return reassignManager(userIds, updateData.getManagerId());
+        }
+
+        UpdateUserResponse response = new UpdateUserResponse();
+        for (String rawUserId : userIds) {
+            UUID userId = userValidator.parseUuid(rawUserId);
+            if (userId == null) {
+                response.setError("User with user_id " + rawUserId + " not found.");
                 continue;
             }
-            String mobNum = updateData.containsKey("mob_num") ? (String) updateData.get("mob_num") : existingUser.getMobNum();
-            if (updateData.containsKey("mob_num")) {
-                String formattedMob = validateAndFormatMobile(mobNum);
-                if (formattedMob == null) {
-                    response.put("error", "Invalid mobile number for user_id " + userId);
-                    continue;
-                }
-                mobNum = formattedMob;
+
+            // Validate and normalise the new values; the write keeps the stored ones for the rest.
+            Map<String, Object> validation = new HashMap<>();
+            User changes = userValidator.validateFieldUpdates(userId, updateData, validation);
+            if (changes == null) {
+                response.setError((String) validation.get("error"));
+                continue;
             }
-            String panNum = updateData.containsKey("pan_num") ? (String) updateData.get("pan_num") : existingUser.getPanNum();
-            if (updateData.containsKey("pan_num")) {
-                String formattedPan = validateAndFormatPan(panNum);
-                if (formattedPan == null) {
-                    response.put("error", "Invalid PAN number for user_id " + userId);
+
+            // Each write below is conditional and reads back the row it replaced, so there is no
+            // pre-read and a retried request changes nothing twice.
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            if (updateData.containsKey("manager_id")) {
+                UUID newManagerId = resolveManagerId(updateData.getManagerId());
+                if (newManagerId == null) {
+                    response.setError("Invalid manager_id for user_id " + userId);
                     continue;
                 }
-                panNum = formattedPan;
-            }
 
-            // Handle manager update
-            if (updateData.containsKey("manager_id")) {
-                String newManagerId = updateData.get("manager_id").toString();
-                if (!validateManager(newManagerId)) {
-                    response.put("error", "Invalid manager_id for user_id " + userId);
+                // A first manager is assigned in place, so the user keeps its user_id; the record
+                // as it was stays as history under a new id.
+                UUID archiveId = UUID.randomUUID();
+                User unassigned = transactionTemplate.execute(status -> {
+                    User before = userRepository.assignManager(userId, newManagerId, archiveId, now);
+                    if (before != null) {
+                        userEventRepository.append(UserEvent.MANAGER_CHANGED, userId, now);
+                        User assigned = new User();
+                        assigned.setUserId(userId);
+                        assigned.setManagerId(newManagerId);
+                        userVersions.changed(before, assigned);
+                    }
+                    return before;
+                });
+                if (unassigned != null) {
+                    userCache.invalidate(unassigned);
+                    orgTreeIndex.put(userId, newManagerId);
                     continue;
                 }
 
-                // If no previous manager, update in place.
-                if (existingUser.getManagerId() == null) {
-                    existingUser.setManagerId(java.util.UUID.fromString(newManagerId));
-                    existingUser.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    userRepository.updateUser(userId, existingUser);
-                } else if (!existingUser.getManagerId().toString().equals(newManagerId)) {
-                    // Deactivate current record and create a new record with new manager_id.
-                    userRepository.deactivateUser(userId);
-                    User newUser = new User();
-                    newUser.setUserId(UUID.randomUUID());
-                    newUser.setFullName(existingUser.getFullName());
-                    newUser.setMobNum(existingUser.getMobNum());
-                    newUser.setPanNum(existingUser.getPanNum());
-                    newUser.setManagerId(UUID.fromString(newManagerId));
-                    newUser.setCreatedAt(existingUser.getCreatedAt());
-                    newUser.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                    newUser.setIsActive(true);
-                    userRepository.createUser(newUser);
+                // A different manager: deactivate the current record and insert its successor.
+                UUID successorId = UUID.randomUUID();
+                User previous = transactionTemplate.execute(status -> {
+                    User replaced = userRepository.replaceManager(userId, newManagerId, successorId, now);
+                    if (replaced != null) {
+                        userEventRepository.append(UserEvent.DEACTIVATED, userId, now);
+                        userEventRepository.append(UserEvent.MANAGER_CHANGED, successorId, now);
+                        User successor = new User();
+                        successor.setUserId(successorId);
+                        successor.setManagerId(newManagerId);
+                        userVersions.changed(replaced, successor);
+                    }
+                    return replaced;
+                });
+                if (previous != null) {
+                    userCache.invalidate(previous);
+                    orgTreeIndex.remove(userId);
+                    orgTreeIndex.put(successorId, newManagerId);
+                } else if (ReadRouting.onPrimary(() -> userRepository.getUserById(userId)) == null) {
+                    response.setError("User with user_id " + rawUserId + " not found.");
                 }
             } else {
                 // For non-manager updates (or single record update)
-                existingUser.setFullName(fullName);
-                existingUser.setMobNum(mobNum);
-                existingUser.setPanNum(panNum);
-                existingUser.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
-                userRepository.updateUser(userId, existingUser);
+                User previous;
+                try {
+                    previous = transactionTemplate.execute(status -> {
+                        User updated = userRepository.updateUserFields(userId, changes, now);
+                        if (updated != null) {
+                            userEventRepository.append(UserEvent.UPDATED, userId, now);
+                            // The new mob_num, if any, besides everything the old record was read by.
+                            userVersions.changed(updated, changes);
+                        }
+                        return updated;
+                    });
+                } catch (DuplicateKeyException e) {
+                    response.setError(UserValidator.DUPLICATE_MOBILE + " user_id " + userId + " was not updated.");
+                    continue;
+                }
+                if (previous == null) {
+                    response.setError("User with user_id " + rawUserId + " not found.");
+                    continue;
+                }
+                userCache.invalidate(userId, previous.getMobNum());
+                if (changes.getMobNum() != null && !changes.getMobNum().equals(previous.getMobNum())) {
+                    userCache.invalidateByMob(changes.getMobNum());
+                }
+            }
+        }
+
+        response.setMessage("User(s) updated successfully.");
+        return response;
+    }
+
+    /**
+     * The record that replaces a user moving from one manager to another; the old record is
+     * deactivated and kept as history, ending where the new one starts. Records written before
+     * person_id was backfilled are treated as the first version of their person.
+     */
+    public static User successorWithManager(User existingUser, UUID managerId, Timestamp now) {
+        User newUser = new User();
+        newUser.setUserId(UUID.randomUUID());
+        newUser.setFullName(existingUser.getFullName());
+        newUser.setMobNum(existingUser.getMobNum());
+        newUser.setPanNum(existingUser.getPanNum());
+        newUser.setManagerId(managerId);
+        newUser.setCreatedAt(existingUser.getCreatedAt());
+        newUser.setUpdatedAt(now);
+        newUser.setIsActive(true);
+        newUser.setPersonId(existingUser.getPersonId() != null ? existingUser.getPersonId() : existingUser.getUserId());
+        newUser.setValidFrom(now);
+        return newUser;
+    }
+
+    /**
+     * The record of a user without a manager as it was before its first manager was assigned in
+     * place: an inactive history row under a new user_id, valid until now.
+     */
+    public static User archivedCopy(User existingUser, Timestamp now) {
+        User archived = new User();
+        archived.setUserId(UUID.randomUUID());
+        archived.setManagerId(existingUser.getManagerId());
+        archived.setFullName(existingUser.getFullName());
+        archived.setMobNum(existingUser.getMobNum());
+        archived.setPanNum(existingUser.getPanNum());
+        archived.setCreatedAt(existingUser.getCreatedAt());
+        archived.setUpdatedAt(existingUser.getUpdatedAt());
+        archived.setIsActive(false);
+        archived.setPersonId(existingUser.getPersonId() != null ? existingUser.getPersonId() : existingUser.getUserId());
+        archived.setValidFrom(existingUser.getValidFrom());
+        archived.setValidTo(now);
+        return archived;
+    }
+
+    /**
+     * Moves many users to one manager with a fixed number of round trips: the manager is
+     * validated once, and inside a single transaction all users are read and locked with one
+     * query and the history rows are written with batched statements. Returns a result per user_id.
+     */
+    private UpdateUserResponse reassignManager(List<String> userIds, String newManagerId) {
+        UUID managerUuid = resolveManagerId(newManagerId);
+        if (managerUuid == null) {
+            return UpdateUserResponse.error(UserValidator.INVALID_MANAGER);
+        }
+
+        // Results are reported per requested id, in request order; malformed ids are simply not found.
+        Map<String, UUID> parsedIds = new LinkedHashMap<>();
+        for (String userId : userIds) {
+            parsedIds.put(userId, userValidator.parseUuid(userId));
+        }
+        List<UUID> lookupIds = new ArrayList<>(new LinkedHashSet<>(parsedIds.values()));
+        lookupIds.remove(null);
+
+        Map<String, UpdateUserResult> results = new LinkedHashMap<>();
+        List<User> assignments = new ArrayList<>();
+        List<User> reassignments = new ArrayList<>();
+        // Reporting lines that changed: user_id -> manager_id, or null for a deactivated record.
+        Map<UUID, UUID> changedLinks = new LinkedHashMap<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            // The successors are copies of the rows read here, so those rows stay locked until
+            // commit; a concurrent update either lands before the read or waits for the commit.
+            Map<UUID, User> existingUsers = new HashMap<>();
+            for (User user : userRepository.lockUsersByIds(lookupIds)) {
+                existingUsers.put(user.getUserId(), user);
             }
+            Map<UUID, UpdateUserResult> resultsById = new HashMap<>();
+            for (Map.Entry<String, UUID> entry : parsedIds.entrySet()) {
+                String userId = entry.getKey();
+                UUID parsedId = entry.getValue();
+                // Two spellings of the same id (e.g. upper and lower case) are reported once.
+                if (parsedId != null && resultsById.containsKey(parsedId)) continue;
+                UpdateUserResult result = new UpdateUserResult(userId);
+                results.put(userId, result);
+                if (parsedId != null) resultsById.put(parsedId, result);
+
+                User existingUser = parsedId != null ? existingUsers.get(parsedId) : null;
+                if (existingUser == null) {
+                    result.setError("User with user_id " + userId + " not found.");
+                } else if (existingUser.getManagerId() == null) {
+                    assignments.add(existingUser);
+                } else if (existingUser.getManagerId().equals(managerUuid)) {
+                    result.setStatus("unchanged");
+                } else {
+                    reassignments.add(existingUser);
+                }
+            }
+
+            // A first manager is assigned in place, so those users keep their user_ids; the
+            // records as they were stay as history under new ids.
+            List<User> archives = new ArrayList<>();
+            List<UUID> assignedIds = new ArrayList<>();
+            for (User user : assignments) {
+                archives.add(archivedCopy(user, now));
+                assignedIds.add(user.getUserId());
+            }
+            userRepository.createUsers(archives);
+            userRepository.assignManagers(assignedIds, managerUuid, now);
+            for (User user : assignments) {
+                user.setManagerId(managerUuid);
+                user.setUpdatedAt(now);
+                user.setValidFrom(now);
+                UpdateUserResult result = resultsById.get(user.getUserId());
+                result.setStatus("updated");
+                result.setNewUserId(user.getUserId());
+                changedLinks.put(user.getUserId(), managerUuid);
+            }
+
+            List<UUID> reassignedIds = new ArrayList<>();
+            for (User user : reassignments) {
+                reassignedIds.add(user.getUserId());
+            }
+            userRepository.deactivateUsers(reassignedIds, now);
+
+            List<User> newUsers = new ArrayList<>();
+            for (User existingUser : reassignments) {
+                User newUser = successorWithManager(existingUser, managerUuid, now);
+                newUsers.add(newUser);
+                UpdateUserResult result = resultsById.get(existingUser.getUserId());
+                result.setStatus("updated");
+                result.setNewUserId(newUser.getUserId());
+                changedLinks.put(existingUser.getUserId(), null);
+                changedLinks.put(newUser.getUserId(), managerUuid);
+            }
+            userRepository.createUsers(newUsers);
+
+            List<UUID> deactivatedIds = new ArrayList<>();
+            for (User newUser : newUsers) {
+                assignedIds.add(newUser.getUserId());
+            }
+            changedLinks.forEach((id, manager) -> {
+                if (manager == null) deactivatedIds.add(id);
+            });
+            userEventRepository.append(UserEvent.DEACTIVATED, deactivatedIds, now);
+            userEventRepository.append(UserEvent.MANAGER_CHANGED, assignedIds, now);
+            List<User> changed = new ArrayList<>(assignments);
+            changed.addAll(reassignments);
+            changed.addAll(newUsers);
+            userVersions.changed(changed);
+        });
+        for (User user : assignments) {
+            userCache.invalidate(user);
+        }
+        for (User user : reassignments) {
+            userCache.invalidate(user);
         }
+        changedLinks.forEach(orgTreeIndex::put);
 
-        response.put("message", "User(s) updated successfully.");
+        long failed = results.values().stream().filter(result -> result.getError() != null).count();
+        logger.info("Reassigned {} of {} user(s) to manager {}", results.size() - failed, results.size(), managerUuid);
+        UpdateUserResponse response = new UpdateUserResponse();
+        if (failed > 0) {
+            response.setError(failed + " of " + results.size() + " user(s) could not be updated.");
+        }
+        response.setResults(new ArrayList<>(results.values()));
+        response.setMessage("User(s) updated successfully.");
         return response;
     }
 }
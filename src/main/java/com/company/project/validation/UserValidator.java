@@ -0,0 +1,338 @@
+package com.company.project.validation;
+
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.model.User;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Field validators and request rules for user payloads, used by both {@link com.company.project.service.UserService}
+ * and the reactive stack so they accept and reject the same input. Mobile and PAN numbers are checked with a single
+ * pass over the characters, so rejected input allocates nothing and accepted input at most
+ * the returned string.
+ */
+@Component
+public class UserValidator {
+
+    private static final int MOBILE_DIGITS = 10;
+    private static final int PAN_LENGTH = 10;
+    private static final int UUID_LENGTH = 36;
+    private static final Pattern PAN_PATTERN = Pattern.compile("[A-Z]{5}[0-9]{4}[A-Z]{1}");
+
+    // Shorter terms match too much of the table to rank usefully, and give pg_trgm no trigram to use.
+    private static final int MIN_NAME_SEARCH_LENGTH = 2;
+    private static final int MIN_MOBILE_SEARCH_DIGITS = 3;
+    private static final Pattern MOBILE_SEARCH = Pattern.compile("\\+?[0-9][0-9 -]*");
+
+    public static final String INVALID_MANAGER = "Invalid manager_id. Manager does not exist or is inactive.";
+
+    public static final String DUPLICATE_MOBILE = "A user with this mobile number already exists.";
+
+    // Validate that full name is not empty
+    public boolean validateFullName(String fullName) {
+        return StringUtils.hasText(fullName);
+    }
+
+    /**
+     * Validates an Indian mobile number and returns its 10 digits. One leading "+91" or "0"
+     * is dropped, and spaces, tabs, line breaks and hyphens anywhere after it are ignored.
+     * Returns null for anything else.
+     */
+    public String validateAndFormatMobile(String mobNum) {
+        if (mobNum == null) return null;
+        int start = 0;
+        if (mobNum.startsWith("+91")) {
+            start = 3;
+        } else if (mobNum.startsWith("0")) {
+            start = 1;
+        }
+        int length = mobNum.length();
+        int digits = 0;
+        for (int i = start; i < length; i++) {
+            char c = mobNum.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MOBILE_DIGITS) return null;
+            } else if (!isMobileSeparator(c)) {
+                return null;
+            }
+        }
+        if (digits != MOBILE_DIGITS) return null;
+        if (length - start == MOBILE_DIGITS) {
+            return start == 0 ? mobNum : mobNum.substring(start);
+        }
+        char[] formatted = new char[MOBILE_DIGITS];
+        int next = 0;
+        for (int i = start; i < length; i++) {
+            char c = mobNum.charAt(i);
+            if (c >= '0' && c <= '9') formatted[next++] = c;
+        }
+        return new String(formatted);
+    }
+
+    /**
+     * Validates a PAN number of the form AAAAA9999A, case-insensitively, and returns it in
+     * upper case. ASCII input is folded without consulting the default locale; other input
+     * goes through {@link String#toUpperCase()} and the pattern, as before.
+     */
+    public String validateAndFormatPan(String panNum) {
+        if (panNum == null) return null;
+        int length = panNum.length();
+        boolean lowerCase = false;
+        for (int i = 0; i < length; i++) {
+            char c = panNum.charAt(i);
+            if (c >= 0x80) return validateAndFormatPanSlow(panNum);
+            if (c >= 'a' && c <= 'z') lowerCase = true;
+        }
+        if (length != PAN_LENGTH) return null;
+        for (int i = 0; i < PAN_LENGTH; i++) {
+            char c = panNum.charAt(i);
+            boolean valid = i >= 5 && i < 9 ? c >= '0' && c <= '9' : (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            if (!valid) return null;
+        }
+        if (!lowerCase) return panNum;
+        char[] formatted = new char[PAN_LENGTH];
+        for (int i = 0; i < PAN_LENGTH; i++) {
+            char c = panNum.charAt(i);
+            formatted[i] = c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+        }
+        return new String(formatted);
+    }
+
+    /**
+     * Parses a user or manager id in the canonical 8-4-4-4-12 hex form, in either case.
+     * Returns null for anything else instead of throwing, and unlike {@link UUID#fromString}
+     * does not accept shortened groups such as "1-2-3-4-5".
+     */
+    public UUID parseUuid(String value) {
+        if (value == null || value.length() != UUID_LENGTH) return null;
+        long mostSig = 0;
+        long leastSig = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return null;
+                continue;
+            }
+            int digit = Character.digit(c, 16);
+            if (digit < 0 || c >= 0x80) return null;
+            if (i < 18) {
+                mostSig = (mostSig << 4) | digit;
+            } else {
+                leastSig = (leastSig << 4) | digit;
+            }
+        }
+        return new UUID(mostSig, leastSig);
+    }
+
+    /**
+     * Applies the field rules for a create payload and builds the user to insert. manager_id is only parsed here; callers check that the
+     * manager exists. On failure puts the message under "error" and returns null.
+     */
+    public User validateNewUser(CreateUserRequest request, Map<String, Object> response) {
+        String fullName = request.getFullName();
+        String mobNum = request.getMobNum();
+        String panNum = request.getPanNum();
+        String managerId = request.getManagerId();
+
+        // Validate input
+        if (!validateFullName(fullName)) {
+            response.put("error", "Full name must not be empty.");
+            return null;
+        }
+        String formattedMob = validateAndFormatMobile(mobNum);
+        if (formattedMob == null) {
+            response.put("error", "Invalid mobile number. It must be a valid 10-digit number.");
+            return null;
+        }
+        String formattedPan = validateAndFormatPan(panNum);
+        if (formattedPan == null) {
+            response.put("error", "Invalid PAN number. It must follow the format AABCP1234C.");
+            return null;
+        }
+        UUID managerUuid = null;
+        if (managerId != null) {
+            managerUuid = parseUuid(managerId);
+            if (managerUuid == null) {
+                response.put("error", INVALID_MANAGER);
+                return null;
+            }
+        }
+
+        User user = new User();
+        user.setUserId(UUID.randomUUID());
+        user.setFullName(fullName);
+        user.setMobNum(formattedMob);
+        user.setPanNum(formattedPan);
+        user.setManagerId(managerUuid);
+        user.setCreatedAt(new Timestamp(System.currentTimeMillis()));
+        user.setUpdatedAt(null);
+        user.setIsActive(true);
+        user.setPersonId(user.getUserId());
+        user.setValidFrom(user.getCreatedAt());
+        return user;
+    }
+
+    /**
+     * Checks the shape of an update request: both keys present, and only manager_id when more
+     * than one user_id is given. Returns the error message, or null if the request is valid.
+     */
+    public String validateUpdateRequest(UpdateUserRequest request) {
+        if (request.getUserIds() == null || request.getUpdateData() == null) {
+            return "Missing keys: user_ids and update_data are required.";
+        }
+        // For bulk update, only manager_id is allowed.
+        if (request.getUserIds().size() > 1) {
+            for (String key : request.getUpdateData().keys()) {
+                if (!key.equals("manager_id")) {
+                    return "Bulk update only supports manager_id. Extra key: " + key;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Validates and normalises the full_name, mob_num and pan_num in an update. Returns a user
+     * holding only the provided fields (the rest null), ready for
+     * {@code UserRepository.updateUserFields}. On an invalid value puts the message under
+     * "error" and returns null.
+     */
+    public User validateFieldUpdates(UUID userId, UserUpdateData updateData, Map<String, Object> response) {
+        User changes = new User();
+        changes.setUserId(userId);
+        if (updateData.containsKey("full_name")) {
+            if (!validateFullName(updateData.getFullName())) {
+                response.put("error", "Full name must not be empty for user_id " + userId);
+                return null;
+            }
+            changes.setFullName(updateData.getFullName());
+        }
+        if (updateData.containsKey("mob_num")) {
+            changes.setMobNum(validateAndFormatMobile(updateData.getMobNum()));
+            if (changes.getMobNum() == null) {
+                response.put("error", "Invalid mobile number for user_id " + userId);
+                return null;
+            }
+        }
+        if (updateData.containsKey("pan_num")) {
+            changes.setPanNum(validateAndFormatPan(updateData.getPanNum()));
+            if (changes.getPanNum() == null) {
+                response.put("error", "Invalid PAN number for user_id " + userId);
+                return null;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Returns a copy of the user with the full_name, mob_num and pan_num from the update
+     * applied and normalised. On an invalid value puts the message under "error" and returns null.
+     */
+    public User applyFieldUpdates(User existingUser, UserUpdateData updateData, Map<String, Object> response) {
+        User changes = validateFieldUpdates(existingUser.getUserId(), updateData, response);
+        if (changes == null) {
+            return null;
+        }
+        return new User(existingUser.getUserId(), existingUser.getManagerId(),
+                changes.getFullName() != null ? changes.getFullName() : existingUser.getFullName(),
+                changes.getMobNum() != null ? changes.getMobNum() : existingUser.getMobNum(),
+                changes.getPanNum() != null ? changes.getPanNum() : existingUser.getPanNum(),
+                existingUser.getCreatedAt(), existingUser.getUpdatedAt(), existingUser.isIsActive(),
+                existingUser.getPersonId(), existingUser.getValidFrom(), existingUser.getValidTo());
+    }
+
+    /**
+     * Returns the digits of a mobile number search term (digits, spaces and hyphens, optionally
+     * after a '+'), or null if the term is a name search. A leading "+91" is dropped, as stored
+     * numbers do not have it.
+     */
+    public String searchDigits(String term) {
+        String trimmed = term.trim();
+        if (!MOBILE_SEARCH.matcher(trimmed).matches()) return null;
+        if (trimmed.startsWith("+91")) trimmed = trimmed.substring(3);
+        return trimmed.replaceAll("[^0-9]", "");
+    }
+
+    /**
+     * Checks a /get_users search term is long enough to search with. Returns the error message,
+     * or null if the term is valid.
+     */
+    public String validateSearch(String term) {
+        String digits = searchDigits(term);
+        if (digits != null && digits.length() < MIN_MOBILE_SEARCH_DIGITS) {
+            return "Mobile number search needs at least " + MIN_MOBILE_SEARCH_DIGITS + " digits.";
+        }
+        if (digits == null && term.trim().length() < MIN_NAME_SEARCH_LENGTH) {
+            return "Name search needs at least " + MIN_NAME_SEARCH_LENGTH + " characters.";
+        }
+        return null;
+    }
+
+    /**
+     * Checks the history and as_of options of a /get_users request. Returns the error message,
+     * or null if the request is valid or uses neither.
+     */
+    public String validateHistoryRequest(GetUsersRequest request) {
+        boolean history = Boolean.TRUE.equals(request.getHistory());
+        boolean byPerson = request.getUserId() != null || request.getMobNum() != null;
+        if (history && request.getAsOf() != null) {
+            return "Use either history or as_of, not both.";
+        }
+        if (history && !byPerson) {
+            return "history needs user_id or mob_num.";
+        }
+        if (request.getAsOf() != null) {
+            if (!byPerson && request.getManagerId() == null) {
+                return "as_of needs user_id, mob_num or manager_id.";
+            }
+            if (parseAsOf(request.getAsOf()) == null) {
+                return "Invalid as_of. Use an ISO-8601 date or date-time.";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses an as_of value: a date-time with an offset, or a local date-time or date in the
+     * server's time zone, which is the zone timestamps are stored in. A date means its start.
+     * Returns null if the value is not ISO-8601.
+     */
+    public Timestamp parseAsOf(String asOf) {
+        String value = asOf.trim();
+        try {
+            if (value.length() == 10) {
+                return Timestamp.valueOf(LocalDate.parse(value).atStartOfDay());
+            }
+            if (value.endsWith("Z") || value.lastIndexOf('+') > 0 || value.lastIndexOf('-') > 9) {
+                return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+            }
+            return Timestamp.valueOf(LocalDateTime.parse(value));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Non-ASCII characters can upper-case into ASCII letters (e.g. U+017F into 'S').
+    private static String validateAndFormatPanSlow(String panNum) {
+        if (!StringUtils.hasText(panNum)) return null;
+        String upper = panNum.toUpperCase();
+        return PAN_PATTERN.matcher(upper).matches() ? upper : null;
+    }
+
+    // Same set as the regex class [\s-]: ASCII whitespace and hyphen.
+    private static boolean isMobileSeparator(char c) {
+        return c == ' ' || c == '-' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,15 @@
+/* Adds the person_id / valid_from / valid_to history columns to an existing PostgreSQL users table.
+   Run before deploying the version that writes them; partition_user_history.sql follows once
+   every instance runs that version:
+       psql -d users -v ON_ERROR_STOP=1 -f add_history_columns.sql
+
+   The columns are nullable with no default, so this is a catalog change without a rewrite.
+   Rows written by older instances keep them null until the backfill in partition_user_history.sql;
+   the application treats a null person_id as the record's own user_id. */
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS person_id uuid;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS valid_from timestamp;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS valid_to timestamp;
+
+-- get_users history and as_of by user_id / mob_num: UserRepository.getPersonVersions and getPersonAsOf
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_person_id_valid_from ON users (person_id, valid_from);
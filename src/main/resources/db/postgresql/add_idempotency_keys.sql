@@ -0,0 +1,13 @@
+/* Creates the idempotency key store on an existing PostgreSQL database (schema.sql creates it on new ones):
+       psql -d users -v ON_ERROR_STOP=1 -f add_idempotency_keys.sql
+
+   Rows are written by IdempotencyService and purged once older than users.idempotency.ttl. */
+
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status_code INT,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created_at ON idempotency_keys (created_at);
@@ -0,0 +1,22 @@
+/* Creates the user_events outbox on an existing PostgreSQL database (schema.sql creates it on new ones):
+       psql -d users -v ON_ERROR_STOP=1 -f add_user_events.sql
+
+   Run it before deploying the version that writes events. Rows are appended by UserService and
+   UserCopyService, numbered and published by UserEventRelay, and purged once published for longer
+   than users.events.retention. */
+
+CREATE TABLE IF NOT EXISTS user_events (
+    event_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    user_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    seq BIGINT,
+    published_at TIMESTAMP,
+    payload TEXT
+);
+-- /get_changes: UserEventRepository.getChanges
+CREATE UNIQUE INDEX IF NOT EXISTS idx_user_events_seq ON user_events (seq);
+-- Retention purge: UserEventRepository.purgePublished
+CREATE INDEX IF NOT EXISTS idx_user_events_published_at ON user_events (published_at);
+-- The relay's backlog: UserEventRepository.findUnpublished. Stays small however many events are kept.
+CREATE INDEX IF NOT EXISTS idx_user_events_unpublished ON user_events (event_id) WHERE seq IS NULL;
@@ -0,0 +1,12 @@
+/* Creates the user_versions table on an existing PostgreSQL database (schema.sql creates it on new ones):
+       psql -d users -v ON_ERROR_STOP=1 -f add_user_versions.sql
+
+   Run it before deploying the version that keeps the /get_users ETag counters in the database. Rows are
+   created and bumped by the write paths of both stacks (UserVersionRepository,
+   ReactiveUserVersionRepository) and read by UserVersions. */
+
+CREATE TABLE IF NOT EXISTS user_versions (
+    slot INT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    changed_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,39 @@
+/* PostgreSQL-only indexes, applied after schema.sql or migrate_uuid_columns.sql.
+   Run with psql outside a transaction block (CREATE/DROP INDEX CONCURRENTLY):
+       psql -d users -f indexes.sql
+   After partition_user_history.sql, users is partitioned and these belong on users_active.
+
+   Every read by mob_num or manager_id filters on is_active, and each manager change
+   leaves an inactive history row behind, so the lookups get partial indexes that
+   only hold active rows. */
+
+-- get_users / update_user by mob_num: UserRepository.getUserByMob. Unique, so at most one active user
+-- has a mobile number: createUser's ON CONFLICT DO NOTHING turns a duplicate (e.g. a retried create)
+-- into a no-op. Fails while duplicates exist; list them with
+--     SELECT mob_num, count(*) FROM users WHERE is_active GROUP BY mob_num HAVING count(*) > 1;
+-- and deactivate or delete the extra rows first.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS idx_users_mob_num_active_key ON users (mob_num) WHERE is_active;
+-- Superseded by the unique index above.
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_mob_num_active;
+
+-- get_users by manager_id: UserRepository.getUsersByManagerId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_manager_id_active ON users (manager_id) WHERE is_active;
+
+-- Superseded by the partial index above; no query reads inactive rows by manager_id.
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_manager_id;
+
+-- delete_user by mob_num (UserRepository.deleteUserByMob), which removes history rows too, and the
+-- history reads by mob_num (getPersonIdByMob) match inactive rows, so mob_num keeps a plain index as well.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_mob_num ON users (mob_num);
+
+-- get_users search: UserRepository.searchByName and searchByMobile. The trigram GIN indexes serve the
+-- similarity operator (%) on names and the substring LIKE on mob_num. Name prefixes are read from a
+-- btree in "C" order, which serves LIKE 'term%' as a range scan that stops after LIMIT rows.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_full_name_prefix_active ON users ((lower(full_name) COLLATE "C"), user_id) WHERE is_active;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_full_name_trgm_active ON users USING gin (lower(full_name) gin_trgm_ops) WHERE is_active;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_mob_num_trgm_active ON users USING gin (mob_num gin_trgm_ops) WHERE is_active;
+
+-- The user_events relay's backlog: UserEventRepository.findUnpublished. Only unpublished events, so it
+-- stays small however many published events are kept.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_events_unpublished ON user_events (event_id) WHERE seq IS NULL;
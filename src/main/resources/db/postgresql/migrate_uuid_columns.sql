@@ -0,0 +1,95 @@
+/* Online migration of users.user_id / users.manager_id / managers.manager_id from
+   VARCHAR(36) to uuid on a populated PostgreSQL 12+ database.
+
+   Run with psql in autocommit mode (no -1 / --single-transaction), while the application
+   keeps serving traffic:
+       psql -d users -v ON_ERROR_STOP=1 -f migrate_uuid_columns.sql
+
+   Only step 6 takes an ACCESS EXCLUSIVE lock, for a few catalog updates; the backfill and
+   index builds run alongside normal reads and writes.
+
+   Application rollout:
+     1. Before the swap, add stringtype=unspecified to the JDBC URL of the running (string-id)
+        version, e.g. jdbc:postgresql://host/users?stringtype=unspecified. Its String binds are
+        then typed by the server, so they keep working against both column types.
+     2. Run this script.
+     3. Deploy the version that binds java.util.UUID; stringtype can then be dropped.
+     4. Run indexes.sql. */
+
+-- 1. Shadow columns. Nullable without a default, so no table rewrite.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS user_uuid uuid;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS manager_uuid uuid;
+
+-- 2. Keep the shadow columns current for rows written while the backfill runs.
+CREATE OR REPLACE FUNCTION users_sync_uuid() RETURNS trigger AS $$
+BEGIN
+    NEW.user_uuid := NEW.user_id::uuid;
+    NEW.manager_uuid := NEW.manager_id::uuid;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS users_sync_uuid ON users;
+CREATE TRIGGER users_sync_uuid
+    BEFORE INSERT OR UPDATE OF user_id, manager_id ON users
+    FOR EACH ROW EXECUTE PROCEDURE users_sync_uuid();
+
+-- 3. Backfill existing rows in small committed batches so locks and WAL stay bounded and
+--    autovacuum can keep up. Safe to interrupt and rerun.
+DO $$
+DECLARE
+    batch_rows integer;
+BEGIN
+    LOOP
+        UPDATE users
+        SET user_uuid = user_id::uuid, manager_uuid = manager_id::uuid
+        WHERE ctid IN (SELECT ctid FROM users WHERE user_uuid IS NULL LIMIT 10000);
+        GET DIAGNOSTICS batch_rows = ROW_COUNT;
+        EXIT WHEN batch_rows = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+-- 4. Build the replacement indexes without blocking writes. A failed CONCURRENTLY build
+--    leaves an INVALID index behind; drop it and rerun this step.
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_user_uuid_key ON users (user_uuid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_created_at_user_uuid ON users (created_at, user_uuid);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_manager_uuid_active ON users (manager_uuid) WHERE is_active;
+-- mob_num keeps its type, but databases created before schema.sql had it may lack its plain index,
+-- which delete_user and the history reads by mob_num need (they also match inactive rows).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_mob_num ON users (mob_num);
+
+-- 5. Prove user_uuid is never null with a constraint validated under SHARE UPDATE EXCLUSIVE,
+--    so SET NOT NULL in step 6 can skip its full-table scan.
+ALTER TABLE users DROP CONSTRAINT IF EXISTS users_user_uuid_not_null;
+ALTER TABLE users ADD CONSTRAINT users_user_uuid_not_null CHECK (user_uuid IS NOT NULL) NOT VALID;
+ALTER TABLE users VALIDATE CONSTRAINT users_user_uuid_not_null;
+
+-- 6. Swap. Dropping a column is a catalog change; the old primary key and the varchar
+--    indexes go with it. managers is small enough to convert in place.
+BEGIN;
+SET LOCAL lock_timeout = '5s';
+LOCK TABLE users, managers IN ACCESS EXCLUSIVE MODE;
+
+DROP TRIGGER users_sync_uuid ON users;
+DROP FUNCTION users_sync_uuid();
+
+ALTER TABLE users DROP COLUMN user_id;
+ALTER TABLE users DROP COLUMN manager_id;
+ALTER TABLE users RENAME COLUMN user_uuid TO user_id;
+ALTER TABLE users RENAME COLUMN manager_uuid TO manager_id;
+ALTER TABLE users ALTER COLUMN user_id SET NOT NULL;
+ALTER TABLE users DROP CONSTRAINT users_user_uuid_not_null;
+ALTER TABLE users ADD CONSTRAINT users_pkey PRIMARY KEY USING INDEX users_user_uuid_key;
+ALTER INDEX idx_users_created_at_user_uuid RENAME TO idx_users_created_at_user_id;
+ALTER INDEX idx_users_manager_uuid_active RENAME TO idx_users_manager_id_active;
+
+ALTER TABLE managers ALTER COLUMN manager_id TYPE uuid USING manager_id::uuid;
+COMMIT;
+
+-- Column order changed (user_id and manager_id are now last). The application reads
+-- columns by name and COPY lists them explicitly; only /export_users?format=ndjson,
+-- which serializes whole rows, emits the keys in the new order.
+ANALYZE users;
+ANALYZE managers;
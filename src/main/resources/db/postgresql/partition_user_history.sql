@@ -0,0 +1,146 @@
+/* Backfills person history on a PostgreSQL 12+ database and splits users into an active
+   partition and a history partition tree range partitioned by valid_to, so the rows current
+   reads touch stay in one small table and point-in-time reads skip history that ended earlier.
+
+   Run with psql in autocommit mode once every instance writes person_id (after
+   add_history_columns.sql and the matching deploy):
+       psql -d users -v ON_ERROR_STOP=1 -f partition_user_history.sql
+
+   Only step 6 takes an ACCESS EXCLUSIVE lock; it scans the active rows once to prove they
+   belong in their partition. Between steps 5 and 6 history reads miss the rows already moved.
+
+   Afterwards:
+     - users is partitioned: users_active (is_active) and users_history (NOT is_active), itself
+       split by month of valid_to. Deactivating a record moves it between partitions.
+     - Queries that name is_active are pruned to one side; UserRepository's as_of queries do so.
+     - indexes.sql targets the unpartitioned table; run its statements against users_active.
+     - Create future months ahead of time, e.g. monthly from cron:
+           SELECT users_history_add_partitions(current_date, (current_date + interval '12 months')::date);
+       Rows outside every month land in users_history_default. */
+
+-- 1. Link the records of each person written before person_id existed. Every version copies
+--    created_at and pan_num from its predecessor (UserService.successorWithManager), so those
+--    identify a person; versions are ordered inactive first, then by when they took effect.
+--    A PAN corrected after a manager change splits that person in two. Safe to rerun.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_history_backfill ON users (created_at, pan_num)
+    WHERE person_id IS NULL OR valid_from IS NULL OR (valid_to IS NULL AND NOT is_active);
+
+DO $$
+DECLARE
+    batch_rows integer;
+BEGIN
+    LOOP
+        WITH persons AS (
+            SELECT DISTINCT created_at, pan_num FROM users
+            WHERE person_id IS NULL OR valid_from IS NULL OR (valid_to IS NULL AND NOT is_active)
+            LIMIT 5000
+        ), ordered AS (
+            SELECT u.user_id, u.is_active, u.valid_to,
+                   first_value(u.user_id) OVER w AS first_id,
+                   row_number() OVER w AS version,
+                   coalesce(u.valid_from, CASE WHEN row_number() OVER w = 1 THEN u.created_at
+                                               ELSE coalesce(u.updated_at, u.created_at) END) AS version_from
+            FROM users u JOIN persons p ON u.created_at = p.created_at AND u.pan_num = p.pan_num
+            WINDOW w AS (PARTITION BY u.created_at, u.pan_num
+                         ORDER BY u.is_active, coalesce(u.valid_from, u.updated_at, u.created_at), u.user_id)
+        ), versions AS (
+            -- A history record ends where the next version starts.
+            SELECT user_id, first_id, version_from,
+                   CASE WHEN is_active THEN NULL
+                        ELSE coalesce(valid_to, lead(version_from) OVER (PARTITION BY first_id ORDER BY version), version_from)
+                   END AS version_to
+            FROM ordered
+        )
+        UPDATE users u
+        SET person_id = v.first_id, valid_from = v.version_from, valid_to = v.version_to
+        FROM versions v
+        WHERE u.user_id = v.user_id;
+        GET DIAGNOSTICS batch_rows = ROW_COUNT;
+        EXIT WHEN batch_rows = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+DROP INDEX CONCURRENTLY IF EXISTS users_history_backfill;
+
+-- 2. NOT NULL through validated constraints, so SET NOT NULL skips its full-table scan.
+ALTER TABLE users DROP CONSTRAINT IF EXISTS users_person_id_not_null;
+ALTER TABLE users ADD CONSTRAINT users_person_id_not_null CHECK (person_id IS NOT NULL AND valid_from IS NOT NULL) NOT VALID;
+ALTER TABLE users VALIDATE CONSTRAINT users_person_id_not_null;
+ALTER TABLE users ALTER COLUMN person_id SET NOT NULL;
+ALTER TABLE users ALTER COLUMN valid_from SET NOT NULL;
+ALTER TABLE users DROP CONSTRAINT users_person_id_not_null;
+
+-- 3. The history tree, empty for now. The CHECK lets step 6 attach it without a scan.
+--    Indexes cover the reads that still reach history: as_of by manager and person, delete
+--    and history by mob_num, lookups by any user_id, and keyset paging over all rows.
+CREATE TABLE IF NOT EXISTS users_history (
+    LIKE users INCLUDING DEFAULTS,
+    CONSTRAINT users_history_inactive CHECK (NOT is_active)
+) PARTITION BY RANGE (valid_to);
+CREATE TABLE IF NOT EXISTS users_history_default PARTITION OF users_history DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_users_history_user_id ON users_history (user_id);
+CREATE INDEX IF NOT EXISTS idx_users_history_person_id_valid_from ON users_history (person_id, valid_from);
+CREATE INDEX IF NOT EXISTS idx_users_history_manager_id_valid_to ON users_history (manager_id, valid_to);
+CREATE INDEX IF NOT EXISTS idx_users_history_mob_num ON users_history (mob_num);
+CREATE INDEX IF NOT EXISTS idx_users_history_created_at_user_id ON users_history (created_at, user_id);
+
+-- One partition per calendar month of valid_to, for every month touching [from_date, to_date].
+CREATE OR REPLACE FUNCTION users_history_add_partitions(from_date date, to_date date) RETURNS void AS $$
+DECLARE
+    month date := date_trunc('month', from_date)::date;
+BEGIN
+    WHILE month <= to_date LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF users_history FOR VALUES FROM (%L) TO (%L)',
+                       'users_history_' || to_char(month, 'YYYY_MM'), month, (month + interval '1 month')::date);
+        month := (month + interval '1 month')::date;
+    END LOOP;
+END
+$$ LANGUAGE plpgsql;
+
+SELECT users_history_add_partitions(
+           coalesce((SELECT min(valid_to) FROM users WHERE NOT is_active), current_timestamp)::date,
+           (current_date + interval '12 months')::date);
+
+-- 4. Makes finding the remaining history rows cheap while they are moved out in step 5.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_history_move ON users (user_id) WHERE NOT is_active;
+
+-- 5. Move history out in small committed batches. Safe to interrupt and rerun.
+DO $$
+DECLARE
+    batch_rows integer;
+BEGIN
+    LOOP
+        WITH moved AS (
+            DELETE FROM users
+            WHERE ctid IN (SELECT ctid FROM users WHERE NOT is_active LIMIT 10000)
+            RETURNING *
+        )
+        INSERT INTO users_history SELECT * FROM moved;
+        GET DIAGNOSTICS batch_rows = ROW_COUNT;
+        EXIT WHEN batch_rows = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+-- 6. Swap. Records deactivated since step 5 move with the lock held; the active table keeps
+--    its primary key and indexes and becomes the is_active partition.
+BEGIN;
+SET LOCAL lock_timeout = '5s';
+LOCK TABLE users IN ACCESS EXCLUSIVE MODE;
+
+WITH moved AS (DELETE FROM users WHERE NOT is_active RETURNING *)
+INSERT INTO users_history SELECT * FROM moved;
+
+ALTER TABLE users RENAME TO users_active;
+CREATE TABLE users (LIKE users_active INCLUDING DEFAULTS) PARTITION BY LIST (is_active);
+ALTER TABLE users ATTACH PARTITION users_active FOR VALUES IN (true);
+ALTER TABLE users ATTACH PARTITION users_history FOR VALUES IN (false);
+COMMIT;
+
+DROP INDEX CONCURRENTLY IF EXISTS users_history_move;
+
+ANALYZE users;
@@ -0,0 +1,5 @@
+-- Run after schema.sql when spring.sql.init.platform=h2, as in the tests.
+-- H2 has no partial indexes, so the unique index on active mobile numbers (see schema-postgresql.sql)
+-- is on a computed column that holds mob_num for active rows only; its nulls do not conflict.
+ALTER TABLE users ADD COLUMN active_mob_num VARCHAR(15) AS (CASE WHEN is_active THEN mob_num END);
+CREATE UNIQUE INDEX idx_users_mob_num_active_key ON users (active_mob_num);
@@ -0,0 +1,5 @@
+-- Run after schema.sql when spring.sql.init.platform=postgresql.
+-- At most one active user has a mobile number: createUser's ON CONFLICT DO NOTHING turns a duplicate
+-- (e.g. a retried create) into a no-op, and an import of a taken number fails. The same index as in
+-- db/postgresql/indexes.sql.
+CREATE UNIQUE INDEX idx_users_mob_num_active_key ON users (mob_num) WHERE is_active;
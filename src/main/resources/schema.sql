@@ -1,18 +1,62 @@
 DROP TABLE IF EXISTS users;
 CREATE TABLE users (
-    user_id VARCHAR(36) PRIMARY KEY,
-    manager_id VARCHAR(36),
+    user_id UUID PRIMARY KEY,
+    manager_id UUID,
     full_name VARCHAR(255) NOT NULL,
     mob_num VARCHAR(15) NOT NULL,
     pan_num VARCHAR(10) NOT NULL,
     created_at TIMESTAMP NOT NULL,
     updated_at TIMESTAMP,
-    is_active BOOLEAN NOT NULL
+    is_active BOOLEAN NOT NULL,
+    person_id UUID NOT NULL,
+    valid_from TIMESTAMP NOT NULL,
+    valid_to TIMESTAMP
+);
+CREATE INDEX idx_users_created_at_user_id ON users (created_at, user_id);
+CREATE INDEX idx_users_mob_num ON users (mob_num);
+CREATE INDEX idx_users_manager_id ON users (manager_id);
+CREATE INDEX idx_users_person_id_valid_from ON users (person_id, valid_from);
+-- The unique index on active mobile numbers is in schema-postgresql.sql and schema-h2.sql.
+
+-- Responses of requests sent with an Idempotency-Key header, replayed to retries until they expire.
+-- status_code is null while the first request is still running.
+DROP TABLE IF EXISTS idempotency_keys;
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    status_code INT,
+    response_body TEXT,
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX idx_idempotency_keys_created_at ON idempotency_keys (created_at);
+
+-- Outbox of user changes, written in the transaction of each change. seq is the publication
+-- order set by UserEventRelay, payload the user record as JSON when it was published.
+DROP TABLE IF EXISTS user_events;
+CREATE TABLE user_events (
+    event_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    user_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    seq BIGINT,
+    published_at TIMESTAMP,
+    payload TEXT
+);
+CREATE UNIQUE INDEX idx_user_events_seq ON user_events (seq);
+CREATE INDEX idx_user_events_published_at ON user_events (published_at);
+
+-- Change counters behind the /get_users ETags, one row per slot keys are hashed into (see UserVersions).
+-- Rows are created by the first change of their slot.
+DROP TABLE IF EXISTS user_versions;
+CREATE TABLE user_versions (
+    slot INT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    changed_at TIMESTAMP NOT NULL
 );
 
 DROP TABLE IF EXISTS managers;
 CREATE TABLE managers (
-    manager_id VARCHAR(36) PRIMARY KEY,
+    manager_id UUID PRIMARY KEY,
     full_name VARCHAR(255) NOT NULL,
     email VARCHAR(255) NOT NULL,
     is_active BOOLEAN NOT NULL,
@@ -0,0 +1,189 @@
+package com.company.project;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A throwaway PostgreSQL server from the io.zonky embedded-postgres-binaries jar on the class
+ * path, so the load test and the PostgreSQL tests need neither a database install nor network
+ * access. The binaries are
+ * unpacked once under the base directory; every run gets a fresh cluster on a free port and
+ * removes it on close. PostgreSQL refuses to run as root, so as root the server runs as
+ * {@code osUser} (nobody by default) through su, and the base directory must be one that user
+ * can reach, e.g. under /tmp.
+ */
+public final class EmbeddedPostgres implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedPostgres.class);
+    private static final String ARCHIVE = "postgres-linux-x86_64.txz";
+
+    private static final Set<PosixFilePermission> READABLE = EnumSet.of(
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE,
+            PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ);
+
+    private static final Set<PosixFilePermission> EXECUTABLE = EnumSet.of(
+            PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE,
+            PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_EXECUTE,
+            PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_EXECUTE);
+
+    private final Path binaries;
+    private final Path dataDir;
+    private final String osUser;
+    private final int port;
+
+    private EmbeddedPostgres(Path binaries, Path dataDir, String osUser, int port) {
+        this.binaries = binaries;
+        this.dataDir = dataDir;
+        this.osUser = osUser;
+        this.port = port;
+    }
+
+    public static EmbeddedPostgres start(Path baseDir, String osUser) throws IOException, InterruptedException {
+        Path binaries = unpack(baseDir.resolve("binaries"));
+        boolean root = "root".equals(System.getProperty("user.name"));
+        String runAs = root ? osUser : null;
+
+        Path dataDir = Files.createTempDirectory(Files.createDirectories(baseDir), "data-");
+        if (runAs != null) {
+            run(null, "chown", runAs, dataDir.toString());
+        }
+        EmbeddedPostgres postgres = new EmbeddedPostgres(binaries, dataDir, runAs, freePort());
+        postgres.pg("initdb", "-A", "trust", "-U", "postgres", "-E", "UTF8", "--locale=C", "-D", dataDir.toString());
+        // Durability is not under test; fsync would only measure the disk.
+        postgres.pg("pg_ctl", "-D", dataDir.toString(), "-w", "-t", "60", "-l", dataDir.resolve("postgres.log").toString(),
+                "-o", "-p " + postgres.port + " -k " + dataDir + " -c fsync=off -c synchronous_commit=off"
+                        + " -c full_page_writes=off -c max_connections=300 -c shared_buffers=256MB",
+                "start");
+        logger.info("PostgreSQL started on port {} with data in {}", postgres.port, dataDir);
+        return postgres;
+    }
+
+    public String jdbcUrl() {
+        return "jdbc:postgresql://localhost:" + port + "/postgres?user=postgres";
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            pg("pg_ctl", "-D", dataDir.toString(), "-w", "-m", "fast", "stop");
+        } catch (IOException | InterruptedException e) {
+            logger.warn("Stopping PostgreSQL failed: {}", e.getMessage());
+        } finally {
+            try (Stream<Path> paths = Files.walk(dataDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private void pg(String program, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(binaries.resolve("bin").resolve(program).toString());
+        command.addAll(Arrays.asList(args));
+        run(osUser, command.toArray(new String[0]));
+    }
+
+    private static void run(String osUser, String... command) throws IOException, InterruptedException {
+        List<String> line = new ArrayList<>();
+        if (osUser != null) {
+            StringBuilder shell = new StringBuilder();
+            for (String part : command) {
+                shell.append(" '").append(part.replace("'", "'\\''")).append('\'');
+            }
+            line.addAll(Arrays.asList("su", "-s", "/bin/sh", osUser, "-c", shell.toString().trim()));
+        } else {
+            line.addAll(Arrays.asList(command));
+        }
+        // A directory every user can enter; su keeps the working directory.
+        Process process = new ProcessBuilder(line)
+                .directory(new File(System.getProperty("java.io.tmpdir")))
+                .redirectErrorStream(true)
+                .start();
+        byte[] output = readAll(process.getInputStream());
+        if (!process.waitFor(5, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            throw new IOException(String.join(" ", command) + " failed:\n" + new String(output));
+        }
+    }
+
+    // Unpacks the archive unless a previous run already did.
+    private static Path unpack(Path target) throws IOException {
+        Path marker = target.resolve(".unpacked");
+        if (Files.exists(marker)) {
+            return target;
+        }
+        InputStream archive = EmbeddedPostgres.class.getClassLoader().getResourceAsStream(ARCHIVE);
+        if (archive == null) {
+            throw new IOException(ARCHIVE + " not found; add io.zonky.test.postgres:embedded-postgres-binaries-linux-amd64 to the class path");
+        }
+        logger.info("Unpacking PostgreSQL binaries to {}", target);
+        Files.createDirectories(target);
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new XZCompressorInputStream(new BufferedInputStream(archive)))) {
+            for (TarArchiveEntry entry; (entry = tar.getNextTarEntry()) != null; ) {
+                Path path = target.resolve(entry.getName()).normalize();
+                if (!path.startsWith(target)) {
+                    throw new IOException("Archive entry outside the target directory: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(path);
+                } else if (entry.isSymbolicLink()) {
+                    Files.createDirectories(path.getParent());
+                    Files.deleteIfExists(path);
+                    Files.createSymbolicLink(path, Paths.get(entry.getLinkName()));
+                } else {
+                    Files.createDirectories(path.getParent());
+                    Files.copy(tar, path, StandardCopyOption.REPLACE_EXISTING);
+                    Files.setPosixFilePermissions(path, (entry.getMode() & 0100) != 0 ? EXECUTABLE : READABLE);
+                }
+            }
+        }
+        // Parent directories must be reachable by the server's user.
+        try (Stream<Path> paths = Files.walk(target)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.setPosixFilePermissions(path, EXECUTABLE);
+                }
+            }
+        }
+        Files.createFile(marker);
+        return target;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) > 0; ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
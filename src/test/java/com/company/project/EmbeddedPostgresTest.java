@@ -0,0 +1,53 @@
+package com.company.project;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The server the load test and the PostgreSQL tests run against: it starts on a free port with the
+ * extensions the search needs, and leaves no data directory behind.
+ */
+@EnabledOnOs(OS.LINUX)
+@EnabledIfSystemProperty(named = "os.arch", matches = "amd64")
+class EmbeddedPostgresTest {
+
+    @Test
+    void startsAFreshClusterAndRemovesItOnClose() throws Exception {
+        Path baseDir = Paths.get(System.getProperty("java.io.tmpdir"), "users-test");
+        // The server the PostgreSQL tests share may be running under the same base directory.
+        long before = Files.isDirectory(baseDir) ? dataDirs(baseDir) : 0;
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start(baseDir, "nobody")) {
+            assertThat(dataDirs(baseDir)).isEqualTo(before + 1);
+            try (Connection connection = DriverManager.getConnection(postgres.jdbcUrl());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+                try (ResultSet rs = statement.executeQuery("SELECT similarity('Ramesh Kumar', 'Ramesh Kumaar') > 0.5,"
+                        + " current_setting('fsync')")) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getBoolean(1)).isTrue();
+                    assertThat(rs.getString(2)).isEqualTo("off");
+                }
+            }
+        }
+        assertThat(dataDirs(baseDir)).isEqualTo(before);
+    }
+
+    private static long dataDirs(Path baseDir) throws Exception {
+        try (Stream<Path> dirs = Files.list(baseDir)) {
+            return dirs.filter(dir -> dir.getFileName().toString().startsWith("data-")).count();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.company.project;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The PostgreSQL behind the tests that H2 cannot run: the server given by
+ * -Dusers.test.postgres-url (plus users.test.postgres-user and users.test.postgres-password), or
+ * else an {@link EmbeddedPostgres} started once per test JVM, so the default build runs them too.
+ * Those tests are annotated with {@code @EnabledIf(PostgresTestDatabase.AVAILABLE)} and use the
+ * same context, whose schema.sql and schema-postgresql.sql recreate the tables in the users_test
+ * schema.
+ */
+public final class PostgresTestDatabase {
+
+    public static final String URL_PROPERTY = "users.test.postgres-url";
+
+    /**
+     * Condition for {@code @EnabledIf}: a server was given, or the embedded one can run here.
+     */
+    public static final String AVAILABLE = "com.company.project.PostgresTestDatabase#available";
+
+    private static final String SCHEMA = "users_test";
+
+    private static EmbeddedPostgres embedded;
+
+    private PostgresTestDatabase() {
+    }
+
+    public static boolean available() {
+        return System.getProperty(URL_PROPERTY, "").length() > 0
+                || ("Linux".equals(System.getProperty("os.name")) && "amd64".equals(System.getProperty("os.arch"))
+                && PostgresTestDatabase.class.getClassLoader().getResource("postgres-linux-x86_64.txz") != null);
+    }
+
+    /**
+     * Points the datasource at the users_test schema, creating it if needed.
+     */
+    public static void register(DynamicPropertyRegistry registry) throws SQLException {
+        String url = System.getProperty(URL_PROPERTY, "");
+        if (url.isEmpty()) {
+            url = embedded().jdbcUrl();
+        }
+        String user = System.getProperty("users.test.postgres-user", "postgres");
+        String password = System.getProperty("users.test.postgres-password", "");
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        }
+        String schemaUrl = url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA;
+        registry.add("spring.datasource.url", () -> schemaUrl);
+        registry.add("spring.datasource.username", () -> user);
+        registry.add("spring.datasource.password", () -> password);
+        registry.add("spring.sql.init.platform", () -> "postgresql");
+    }
+
+    // Started on first use and stopped when the JVM exits; as root the server runs as nobody.
+    private static synchronized EmbeddedPostgres embedded() {
+        if (embedded == null) {
+            try {
+                embedded = EmbeddedPostgres.start(Paths.get(System.getProperty("java.io.tmpdir"), "users-test"),
+                        System.getProperty("users.test.postgres-os-user", "nobody"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while starting PostgreSQL", e);
+            }
+            EmbeddedPostgres started = embedded;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    started.close();
+                } catch (IOException e) {
+                    // The data directory is under the temporary directory anyway.
+                }
+            }));
+        }
+        return embedded;
+    }
+}
@@ -0,0 +1,22 @@
+package com.company.project;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test data shared by the application tests, which all use one database: mobile numbers no
+ * other test hands out, and the managers schema.sql creates.
+ */
+public final class TestUsers {
+
+    public static final String MANAGER_ONE = "11111111-1111-1111-1111-111111111111";
+    public static final String MANAGER_TWO = "22222222-2222-2222-2222-222222222222";
+
+    private static final AtomicLong mobiles = new AtomicLong(7_000_000_000L + (System.nanoTime() % 1_000_000) * 1000);
+
+    private TestUsers() {
+    }
+
+    public static String newMobile() {
+        return Long.toString(mobiles.incrementAndGet());
+    }
+}
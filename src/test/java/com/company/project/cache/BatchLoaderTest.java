@@ -0,0 +1,167 @@
+package com.company.project.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchLoaderTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Answers every key with "<key>#<query number>" and records the batches it was asked for.
+    private Function<Set<String>, Map<String, String>> recording() {
+        return keys -> {
+            batches.add(new HashSet<>(keys));
+            Map<String, String> values = new HashMap<>();
+            for (String key : keys) {
+                values.put(key, key + "#" + batches.size());
+            }
+            return values;
+        };
+    }
+
+    @Test
+    void concurrentLookupsShareOneQuery() throws Exception {
+        BatchLoader<String, String> loader = new BatchLoader<>(recording(), Duration.ofMillis(200), 100, TIMEOUT);
+        List<Future<String>> results = new ArrayList<>();
+        for (String key : Arrays.asList("a", "b", "a", "c", "b")) {
+            results.add(executor.submit(() -> loader.load(key)));
+        }
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).endsWith("#1");
+        }
+        assertThat(batches).containsExactly(new HashSet<>(Arrays.asList("a", "b", "c")));
+        assertThat(loader.batches().get()).isEqualTo(1);
+        assertThat(loader.keys().get()).isEqualTo(3);
+        assertThat(loader.coalesced().get()).isEqualTo(2);
+    }
+
+    @Test
+    void fullBatchIsDispatchedWithoutWaitingForTheWindow() {
+        BatchLoader<String, String> loader = new BatchLoader<>(recording(), Duration.ofMinutes(1), 2, TIMEOUT);
+        long start = System.nanoTime();
+        Map<String, String> values = loader.loadAll(Arrays.asList("a", "b", "c", "d"));
+        assertThat(values).containsOnlyKeys("a", "b", "c", "d");
+        assertThat(batches).hasSize(2);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void invalidationWhileBatchIsOpenDoesNotStrandEarlierCallers() throws Exception {
+        BatchLoader<String, String> loader = new BatchLoader<>(recording(), Duration.ofMillis(300), 100, TIMEOUT);
+        Future<String> first = executor.submit(() -> loader.load("a"));
+        // Let the first caller open the batch, then invalidate before it is dispatched.
+        TimeUnit.MILLISECONDS.sleep(50);
+        loader.forgetInFlight();
+        Future<String> second = executor.submit(() -> loader.load("a"));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a#1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("a#1");
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void invalidationWhileQueryRunsStartsANewLoad() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        BatchLoader<String, String> loader = new BatchLoader<>(keys -> {
+            int query = queries.incrementAndGet();
+            if (query == 1) {
+                started.countDown();
+                await(release);
+            }
+            Map<String, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, key + "#" + query));
+            return values;
+        }, Duration.ZERO, 100, TIMEOUT);
+
+        Future<String> before = executor.submit(() -> loader.load("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        loader.forgetInFlight();
+        // The write may not be visible to the running query, so this lookup must not join it.
+        assertThat(executor.submit(() -> loader.load("a")).get(5, TimeUnit.SECONDS)).isEqualTo("a#2");
+        release.countDown();
+        assertThat(before.get(5, TimeUnit.SECONDS)).isEqualTo("a#1");
+        // The first query finishing must not evict the newer load's bookkeeping or block later loads.
+        assertThat(loader.load("a")).isEqualTo("a#3");
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndIsNotCached() throws Exception {
+        AtomicInteger queries = new AtomicInteger();
+        BatchLoader<String, String> loader = new BatchLoader<>(keys -> {
+            if (queries.incrementAndGet() == 1) {
+                throw new IllegalStateException("database down");
+            }
+            Map<String, String> values = new HashMap<>();
+            keys.forEach(key -> values.put(key, key));
+            return values;
+        }, Duration.ofMillis(200), 100, TIMEOUT);
+
+        Future<String> first = executor.submit(() -> loader.load("a"));
+        Future<String> second = executor.submit(() -> loader.load("a"));
+        for (Future<String> result : Arrays.asList(first, second)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasStackTraceContaining("database down");
+        }
+        assertThat(queries.get()).isEqualTo(1);
+        assertThat(loader.load("a")).isEqualTo("a");
+    }
+
+    @Test
+    void waitersGiveUpAfterTheTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        BatchLoader<String, String> loader = new BatchLoader<>(keys -> {
+            await(release);
+            return new HashMap<>();
+        }, Duration.ZERO, 100, Duration.ofMillis(200));
+        try {
+            executor.submit(() -> loader.load("a"));
+            assertThatThrownBy(() -> {
+                // Joins the hung load rather than starting its own.
+                TimeUnit.MILLISECONDS.sleep(50);
+                loader.load("a");
+            }).isInstanceOf(QueryTimeoutException.class);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.company.project.cache;
+
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+
+/**
+ * A manager retired in the managers table stays accepted while cached, until
+ * /actuator/managercache drops the entry.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ManagerCacheEndpointTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void deletingOneEntryDropsThatManager() throws Exception {
+        UUID retired = createManager();
+        UUID other = createManager();
+        assertThat(userService.resolveManagerId(retired.toString())).isEqualTo(retired);
+        assertThat(userService.resolveManagerId(other.toString())).isEqualTo(other);
+        retire(retired);
+        retire(other);
+        assertThat(userService.resolveManagerId(retired.toString())).isEqualTo(retired);
+
+        int status = mockMvc.perform(delete("/actuator/managercache/" + retired)).andReturn().getResponse().getStatus();
+
+        assertThat(status).isEqualTo(204);
+        assertThat(userService.resolveManagerId(retired.toString())).isNull();
+        assertThat(userService.resolveManagerId(other.toString())).isEqualTo(other);
+    }
+
+    @Test
+    void deletingAllEntriesDropsEveryManager() throws Exception {
+        UUID retired = createManager();
+        assertThat(userService.resolveManagerId(retired.toString())).isEqualTo(retired);
+        retire(retired);
+
+        int status = mockMvc.perform(delete("/actuator/managercache")).andReturn().getResponse().getStatus();
+
+        assertThat(status).isEqualTo(204);
+        assertThat(userService.resolveManagerId(retired.toString())).isNull();
+    }
+
+    private UUID createManager() {
+        UUID managerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO managers (manager_id, full_name, email, is_active, created_at)"
+                + " VALUES (?, 'Cached Manager', 'cached.manager@example.com', true, CURRENT_TIMESTAMP)", managerId);
+        return managerId;
+    }
+
+    private void retire(UUID managerId) {
+        jdbcTemplate.update("UPDATE managers SET is_active = false WHERE manager_id = ?", managerId);
+    }
+}
@@ -0,0 +1,145 @@
+package com.company.project.cache;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.OrgTreeNode;
+import com.company.project.dto.OrgTreeRequest;
+import com.company.project.dto.OrgTreeResponse;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.service.UserService;
+import com.company.project.validation.UserValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /get_org_tree answered from the org tree index: head-counts and depth over users who are
+ * managers themselves, and the index following creates, manager changes and deletes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OrgTreeIndexTest {
+
+    @Autowired
+    private OrgTreeIndex orgTreeIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void returnsTheWholeSubtreeWithHeadcountsAndDepth() {
+        UUID manager = newManager(UUID.randomUUID());
+        UUID lead = create(manager);
+        UUID peer = create(manager);
+        // lead is also a manager, so its reports hang below it.
+        newManager(lead);
+        UUID report = create(lead);
+        create(lead);
+        newManager(report);
+        UUID nested = create(report);
+
+        OrgTreeResponse tree = orgTree(manager, null);
+        assertThat(tree.getError()).isNull();
+        assertThat(tree.getDirectReports()).isEqualTo(2);
+        assertThat(tree.getHeadcount()).isEqualTo(5);
+        assertThat(tree.getDepth()).isEqualTo(3);
+        assertThat(tree.getReports()).extracting(OrgTreeNode::getUserId).containsExactlyInAnyOrder(lead, peer);
+        OrgTreeNode leadNode = node(tree, lead);
+        assertThat(leadNode.getHeadcount()).isEqualTo(3);
+        OrgTreeNode reportNode = leadNode.getReports().stream().filter(n -> n.getUserId().equals(report)).findFirst().get();
+        assertThat(reportNode.getHeadcount()).isEqualTo(1);
+        assertThat(reportNode.getReports()).extracting(OrgTreeNode::getUserId).containsExactly(nested);
+
+        // max_depth cuts the listing, not the counts.
+        OrgTreeResponse shallow = orgTree(manager, 1);
+        assertThat(shallow.getHeadcount()).isEqualTo(5);
+        assertThat(shallow.getDepth()).isEqualTo(3);
+        assertThat(node(shallow, lead).getHeadcount()).isEqualTo(3);
+        assertThat(node(shallow, lead).getReports()).isEmpty();
+
+        // A rebuild from the table gives the tree the writes maintained.
+        orgTreeIndex.rebuild();
+        OrgTreeResponse rebuilt = orgTree(manager, null);
+        assertThat(rebuilt.getHeadcount()).isEqualTo(5);
+        assertThat(rebuilt.getDepth()).isEqualTo(3);
+        assertThat(node(rebuilt, lead).getHeadcount()).isEqualTo(3);
+    }
+
+    @Test
+    void followsManagerChangesAndDeletes() {
+        UUID manager = newManager(UUID.randomUUID());
+        UUID lead = create(manager);
+        newManager(lead);
+        UUID moved = create(lead);
+        UUID deleted = create(lead);
+        assertThat(orgTree(manager, null).getHeadcount()).isEqualTo(3);
+
+        UserUpdateData data = new UserUpdateData();
+        data.setManagerId(manager.toString());
+        UpdateUserRequest update = new UpdateUserRequest();
+        update.setUserIds(Collections.singletonList(moved.toString()));
+        update.setUpdateData(data);
+        assertThat(userService.updateUser(update).getError()).isNull();
+        UUID successor = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE person_id = ? AND is_active = true", UUID.class, moved);
+
+        OrgTreeResponse tree = orgTree(manager, null);
+        assertThat(tree.getReports()).extracting(OrgTreeNode::getUserId).containsExactlyInAnyOrder(lead, successor);
+        assertThat(node(tree, lead).getReports()).extracting(OrgTreeNode::getUserId).containsExactly(deleted);
+
+        DeleteUserRequest delete = new DeleteUserRequest();
+        delete.setUserId(deleted.toString());
+        assertThat(userService.deleteUser(delete).getError()).isNull();
+        tree = orgTree(manager, null);
+        assertThat(tree.getHeadcount()).isEqualTo(2);
+        assertThat(tree.getDepth()).isEqualTo(1);
+        assertThat(orgTree(lead, null).getHeadcount()).isZero();
+    }
+
+    @Test
+    void rejectsInvalidRequests() {
+        assertThat(orgTree("not-a-uuid", null).getError()).isEqualTo("Invalid manager_id.");
+        assertThat(orgTree(UUID.randomUUID().toString(), null).getError()).isEqualTo(UserValidator.INVALID_MANAGER);
+        assertThat(orgTree(TestUsers.MANAGER_ONE, -1).getError())
+                .isEqualTo("Invalid max_depth. It must be zero or a positive integer.");
+    }
+
+    private UUID newManager(UUID managerId) {
+        jdbcTemplate.update("INSERT INTO managers (manager_id, full_name, email, is_active, created_at) VALUES (?, ?, ?, true, ?)",
+                managerId, "Tree Manager", "tree.manager@example.com", new Timestamp(System.currentTimeMillis()));
+        return managerId;
+    }
+
+    private UUID create(UUID managerId) {
+        String mobile = TestUsers.newMobile();
+        assertThat(userService.createUser(new CreateUserRequest("Tree User", mobile, "ABCDE1234F", managerId.toString())).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private OrgTreeResponse orgTree(UUID managerId, Integer maxDepth) {
+        return orgTree(managerId.toString(), maxDepth);
+    }
+
+    private OrgTreeResponse orgTree(String managerId, Integer maxDepth) {
+        OrgTreeRequest request = new OrgTreeRequest();
+        request.setManagerId(managerId);
+        request.setMaxDepth(maxDepth);
+        return userService.getOrgTree(request);
+    }
+
+    private static OrgTreeNode node(OrgTreeResponse tree, UUID userId) {
+        return tree.getReports().stream().filter(node -> node.getUserId().equals(userId)).findFirst().get();
+    }
+}
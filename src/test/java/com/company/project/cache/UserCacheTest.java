@@ -0,0 +1,102 @@
+package com.company.project.cache;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.model.User;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The user cache serves repeated reads by user_id and mob_num without the database, and every
+ * write through UserService drops what it changed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCacheTest {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void servesCachedUsersUntilAWriteThroughTheService() {
+        String mobile = TestUsers.newMobile();
+        UUID userId = create(mobile);
+        assertThat(userCache.getUserById(userId).getFullName()).isEqualTo("Cached User");
+        assertThat(userCache.getUserByMob(mobile).getUserId()).isEqualTo(userId);
+
+        // A change behind the cache's back is not seen: both keys are served from memory.
+        jdbcTemplate.update("UPDATE users SET full_name = 'Changed Behind' WHERE user_id = ?", userId);
+        assertThat(userCache.getUserById(userId).getFullName()).isEqualTo("Cached User");
+        assertThat(userCache.getUserByMob(mobile).getFullName()).isEqualTo("Cached User");
+
+        UserUpdateData data = new UserUpdateData();
+        data.setFullName("Renamed User");
+        assertThat(userService.updateUser(update(userId, data)).getError()).isNull();
+        assertThat(userCache.getUserById(userId).getFullName()).isEqualTo("Renamed User");
+        assertThat(userCache.getUserByMob(mobile).getFullName()).isEqualTo("Renamed User");
+    }
+
+    @Test
+    void mobileChangeAndDeleteDropBothKeys() {
+        String mobile = TestUsers.newMobile();
+        UUID userId = create(mobile);
+        assertThat(userCache.getUserByMob(mobile)).isNotNull();
+
+        String newMobile = TestUsers.newMobile();
+        UserUpdateData data = new UserUpdateData();
+        data.setMobNum(newMobile);
+        assertThat(userService.updateUser(update(userId, data)).getError()).isNull();
+        assertThat(userCache.getUserByMob(mobile)).isNull();
+        assertThat(userCache.getUserByMob(newMobile).getUserId()).isEqualTo(userId);
+        assertThat(userCache.getUserById(userId).getMobNum()).isEqualTo(newMobile);
+
+        DeleteUserRequest delete = new DeleteUserRequest();
+        delete.setUserId(userId.toString());
+        assertThat(userService.deleteUser(delete).getError()).isNull();
+        assertThat(userCache.getUserById(userId)).isNull();
+        assertThat(userCache.getUserByMob(newMobile)).isNull();
+    }
+
+    @Test
+    void handsOutCopies() {
+        String mobile = TestUsers.newMobile();
+        UUID userId = create(mobile);
+
+        userCache.getUserById(userId).setFullName("Mutated");
+
+        assertThat(userCache.getUserById(userId).getFullName()).isEqualTo("Cached User");
+        assertThat(userCache.getUsersByIds(Arrays.asList(userId, UUID.randomUUID())))
+                .extracting(User::getFullName).containsExactly("Cached User");
+    }
+
+    private UUID create(String mobile) {
+        assertThat(userService.createUser(new CreateUserRequest("Cached User", mobile, "ABCDE1234F", null)).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private static UpdateUserRequest update(UUID userId, UserUpdateData data) {
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setUserIds(Collections.singletonList(userId.toString()));
+        request.setUpdateData(data);
+        return request;
+    }
+}
@@ -0,0 +1,128 @@
+package com.company.project.cache;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.repository.UserVersionRepository;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ETag versions are database state: a write through one instance changes the ETags another
+ * instance hands out as soon as it commits, and a rolled-back write changes nothing.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserVersionsTest {
+
+    @Autowired
+    private UserVersions userVersions;
+
+    @Autowired
+    private UserVersionRepository userVersionRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void writeThroughAnyInstanceChangesTheEtag() {
+        UserVersions otherInstance = instance();
+        String mobile = TestUsers.newMobile();
+        UUID userId = create(mobile);
+        String userEtag = otherInstance.userEtag(userId);
+        String mobileEtag = otherInstance.mobileEtag(mobile);
+        String teamEtag = otherInstance.teamEtag(UUID.fromString(TestUsers.MANAGER_ONE));
+        assertThat(userVersions.userEtag(userId)).isEqualTo(userEtag);
+        assertThat(otherInstance.userEtag(userId)).isEqualTo(userEtag);
+
+        UserUpdateData data = new UserUpdateData();
+        data.setFullName("Renamed User");
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setUserIds(Collections.singletonList(userId.toString()));
+        request.setUpdateData(data);
+        assertThat(userService.updateUser(request).getError()).isNull();
+
+        assertThat(otherInstance.userEtag(userId)).isNotEqualTo(userEtag);
+        assertThat(otherInstance.mobileEtag(mobile)).isNotEqualTo(mobileEtag);
+        assertThat(otherInstance.teamEtag(UUID.fromString(TestUsers.MANAGER_ONE))).isNotEqualTo(teamEtag);
+        assertThat(userVersions.userEtag(userId)).isEqualTo(otherInstance.userEtag(userId));
+    }
+
+    @Test
+    void rolledBackWriteKeepsTheEtag() {
+        UUID userId = UUID.randomUUID();
+        String etag = userVersions.userEtag(userId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userVersions.changed(userId, null, null);
+            status.setRollbackOnly();
+        });
+        assertThat(userVersions.userEtag(userId)).isEqualTo(etag);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> userVersions.changed(userId, null, null));
+        assertThat(userVersions.userEtag(userId)).isNotEqualTo(etag);
+    }
+
+    @Test
+    void changedAllChangesEveryEtag() {
+        UUID userId = UUID.randomUUID();
+        String mobile = TestUsers.newMobile();
+        String userEtag = userVersions.userEtag(userId);
+        String mobileEtag = userVersions.mobileEtag(mobile);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> userVersions.changedAll());
+
+        assertThat(userVersions.userEtag(userId)).isNotEqualTo(userEtag);
+        assertThat(userVersions.mobileEtag(mobile)).isNotEqualTo(mobileEtag);
+    }
+
+    @Test
+    void noEtagWhileReplicasMayLag() {
+        UserVersions withReplicas = instance();
+        ReflectionTestUtils.setField(withReplicas, "replicas", Collections.singletonList("jdbc:postgresql://replica/users"));
+        UUID userId = UUID.randomUUID();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> withReplicas.changed(userId, null, null));
+
+        assertThat(withReplicas.userEtag(userId)).isNull();
+        assertThat(userVersions.userEtag(userId)).isNotNull();
+        ReflectionTestUtils.setField(withReplicas, "replicaMaxLag", Duration.ZERO);
+        assertThat(withReplicas.userEtag(userId)).isEqualTo(userVersions.userEtag(userId));
+    }
+
+    // Another instance of the application, sharing only the database.
+    private UserVersions instance() {
+        UserVersions instance = new UserVersions();
+        ReflectionTestUtils.setField(instance, "userVersionRepository", userVersionRepository);
+        ReflectionTestUtils.setField(instance, "slotCount", 65536);
+        ReflectionTestUtils.setField(instance, "replicas", Collections.emptyList());
+        ReflectionTestUtils.setField(instance, "replicaMaxLag", Duration.ofSeconds(5));
+        instance.init();
+        return instance;
+    }
+
+    private UUID create(String mobile) {
+        assertThat(userService.createUser(new CreateUserRequest("Versioned User", mobile, "ABCDE1234F", TestUsers.MANAGER_ONE)).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+}
@@ -0,0 +1,20 @@
+package com.company.project.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIf;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * users.execution.mode=virtual on a JVM without virtual threads fails at startup, saying why.
+ */
+class ExecutionConfigTest {
+
+    @Test
+    @DisabledIf("com.company.project.config.VirtualExecutionSmokeTest#virtualThreadsAvailable")
+    void virtualModeNeedsJava21() {
+        assertThatThrownBy(ExecutionConfig::new)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("needs Java 21");
+    }
+}
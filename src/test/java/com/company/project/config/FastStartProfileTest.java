@@ -0,0 +1,105 @@
+package com.company.project.config;
+
+import com.company.project.TestUsers;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.beans.BeansEndpoint;
+import org.springframework.boot.sql.init.AbstractScriptDatabaseInitializer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.multipart.MultipartResolver;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application with the fast-start profile on a real port: the trimmed
+ * auto-configuration and actuator endpoints, Swagger scanning on the first /v2/api-docs request,
+ * and the startup gauges. The profile does not run schema.sql, so this test creates its own
+ * database from it first.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "users.api-docs.enabled=true")
+@ActiveProfiles({"test", "fast-start"})
+class FastStartProfileTest {
+
+    private static final String URL = "jdbc:h2:mem:faststart;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "")) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-h2.sql"));
+        }
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void leavesOutUnusedAutoConfiguration() {
+        assertThat(context.getBeanNamesForType(AbstractScriptDatabaseInitializer.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(RestTemplateBuilder.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(TaskScheduler.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(MultipartResolver.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(BeansEndpoint.class)).isEmpty();
+
+        assertThat(rest.getForEntity("/actuator/health", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rest.exchange("/actuator/managercache/" + TestUsers.MANAGER_ONE, HttpMethod.DELETE, null, String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+    }
+
+    @Test
+    void scansControllersOnTheFirstApiDocsRequest() {
+        DocumentationPluginsBootstrapper bootstrapper = context.getBean(DocumentationPluginsBootstrapper.class);
+        assertThat(bootstrapper.isRunning()).isFalse();
+
+        ResponseEntity<String> docs = rest.getForEntity("/v2/api-docs", String.class);
+        assertThat(docs.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(docs.getBody()).contains("/create_user");
+        assertThat(bootstrapper.isRunning()).isTrue();
+    }
+
+    @Test
+    void servesRequestsAndReportsStartup() {
+        String mobile = TestUsers.newMobile();
+        ResponseEntity<String> created = rest.postForEntity("/create_user",
+                json("{'full_name':'Fast Start User','mob_num':'" + mobile + "','pan_num':'ABCDE1234F'}"), String.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rest.postForEntity("/get_users", json("{'mob_num':'" + mobile + "'}"), String.class).getBody()).contains(mobile);
+
+        assertThat(meterRegistry.get("users.startup.time").timeGauge().value()).isPositive();
+        assertThat(meterRegistry.find("users.process.rss").gauge()).isNotNull();
+    }
+
+    private static HttpEntity<String> json(String singleQuoted) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(singleQuoted.replace('\'', '"'), headers);
+    }
+}
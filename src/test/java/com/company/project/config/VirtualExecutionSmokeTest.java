@@ -0,0 +1,62 @@
+package com.company.project.config;
+
+import com.company.project.TestUsers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application with users.execution.mode=virtual on a real port and serves a write and
+ * a read. Runs only on a JVM with virtual threads (Java 21 or later); it has its own database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "users.execution.mode=virtual",
+        "spring.datasource.url=jdbc:h2:mem:virtual;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("test")
+@EnabledIf("virtualThreadsAvailable")
+class VirtualExecutionSmokeTest {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void servesRequestsOnVirtualThreads() {
+        String mobile = TestUsers.newMobile();
+        ResponseEntity<String> created = rest.postForEntity("/create_user",
+                json("{'full_name':'Virtual User','mob_num':'" + mobile + "','pan_num':'ABCDE1234F'}"), String.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        ResponseEntity<String> read = rest.postForEntity("/get_users", json("{'mob_num':'" + mobile + "'}"), String.class);
+        assertThat(read.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(read.getBody()).contains(mobile);
+    }
+
+    static boolean virtualThreadsAvailable() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            executor.shutdown();
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static HttpEntity<String> json(String singleQuoted) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(singleQuoted.replace('\'', '"'), headers);
+    }
+}
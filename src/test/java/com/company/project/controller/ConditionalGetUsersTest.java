@@ -0,0 +1,101 @@
+package com.company.project.controller;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UserUpdateData;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * /get_users with If-None-Match: 304 with no body while the user is unchanged, and a full answer
+ * with a new ETag once it changed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConditionalGetUsersTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void answersNotModifiedUntilTheUserChanges() throws Exception {
+        String mobile = TestUsers.newMobile();
+        UUID userId = create(mobile);
+        String body = "{\"mob_num\": \"" + mobile + "\"}";
+
+        MvcResult first = getUsers(body, null);
+        assertThat(first.getResponse().getStatus()).isEqualTo(200);
+        assertThat(first.getResponse().getContentAsString()).contains(mobile);
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"");
+
+        MvcResult unchanged = getUsers(body, etag);
+        assertThat(unchanged.getResponse().getStatus()).isEqualTo(304);
+        assertThat(unchanged.getResponse().getContentAsByteArray()).isEmpty();
+        assertThat(unchanged.getResponse().getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+
+        rename(userId);
+        MvcResult changed = getUsers(body, etag);
+        assertThat(changed.getResponse().getStatus()).isEqualTo(200);
+        assertThat(changed.getResponse().getContentAsString()).contains("Renamed User");
+        assertThat(changed.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    }
+
+    private MvcResult getUsers(String body, String ifNoneMatch) throws Exception {
+        MockHttpServletRequestBuilder request = post("/get_users")
+                .contentType(MediaType.APPLICATION_JSON).content(body);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        // In ASYNC execution mode the handler completes on a worker thread.
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)).andReturn() : result;
+    }
+
+    private UUID create(String mobile) {
+        assertThat(userService.createUser(new CreateUserRequest("Conditional User", mobile, "ABCDE1234F", null)).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private void rename(UUID userId) {
+        UserUpdateData data = new UserUpdateData();
+        data.setFullName("Renamed User");
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setUserIds(Collections.singletonList(userId.toString()));
+        request.setUpdateData(data);
+        assertThat(userService.updateUser(request).getError()).isNull();
+    }
+}
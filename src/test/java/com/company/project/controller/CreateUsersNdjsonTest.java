@@ -0,0 +1,89 @@
+package com.company.project.controller;
+
+import com.company.project.TestUsers;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * /create_users with Accept: application/x-ndjson answers one line per row, with the created
+ * user's id or the row's error, followed by the summary.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CreateUsersNdjsonTest {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void streamsEachRowsOutcomeAndTheSummary() throws Exception {
+        String mobile = TestUsers.newMobile();
+        String body = row(mobile) + "\n" + row("12345") + "\n";
+
+        MvcResult result = mockMvc.perform(post("/create_users").contentType(NDJSON).header(HttpHeaders.ACCEPT, NDJSON)
+                .content(body)).andReturn();
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getContentType()).startsWith(NDJSON);
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(3);
+        JsonNode created = objectMapper.readTree(lines[0]);
+        UUID userId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+        assertThat(created.get("row").asInt()).isZero();
+        assertThat(created.get("user_id").asText()).isEqualTo(userId.toString());
+        assertThat(created.has("error")).isFalse();
+        JsonNode failed = objectMapper.readTree(lines[1]);
+        assertThat(failed.get("row").asInt()).isEqualTo(1);
+        assertThat(failed.has("user_id")).isFalse();
+        assertThat(failed.get("error").asText()).isNotEmpty();
+        JsonNode summary = objectMapper.readTree(lines[2]);
+        assertThat(summary.get("created").asInt()).isEqualTo(1);
+        assertThat(summary.get("failed").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void answersJsonToAnyOtherAccept() throws Exception {
+        MvcResult result = mockMvc.perform(post("/create_users").contentType(NDJSON).header(HttpHeaders.ACCEPT, "*/*")
+                .content(row(TestUsers.newMobile()))).andReturn();
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        JsonNode response = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(response.get("created").asInt()).isEqualTo(1);
+        assertThat(response.get("errors").isArray()).isTrue();
+    }
+
+    private static String row(String mobile) {
+        return "{\"full_name\": \"Ndjson User\", \"mob_num\": \"" + mobile + "\", \"pan_num\": \"ABCDE1234F\"}";
+    }
+}
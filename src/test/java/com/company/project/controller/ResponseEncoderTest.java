@@ -0,0 +1,105 @@
+package com.company.project.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * If-None-Match matching and gzip of /get_users bodies.
+ */
+class ResponseEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ResponseEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        encoder = new ResponseEncoder();
+        ReflectionTestUtils.setField(encoder, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(encoder, "compressionEnabled", true);
+        ReflectionTestUtils.setField(encoder, "minSize", DataSize.ofKilobytes(2));
+        ReflectionTestUtils.setField(encoder, "level", 1);
+        encoder.init();
+    }
+
+    @Test
+    void matchesWeakAndListedEtags() {
+        String etag = "W/\"1a-0-5\"";
+        assertThat(encoder.matches("W/\"1a-0-5\"", etag)).isTrue();
+        assertThat(encoder.matches("\"1a-0-5\"", etag)).isTrue();
+        assertThat(encoder.matches("W/\"1a-0-4\", W/\"1a-0-5\"", etag)).isTrue();
+        assertThat(encoder.matches("*", etag)).isTrue();
+        assertThat(encoder.matches("W/\"1a-0-4\"", etag)).isFalse();
+        assertThat(encoder.matches(null, etag)).isFalse();
+        assertThat(encoder.matches("*", null)).isFalse();
+    }
+
+    @Test
+    void notModifiedHasTheEtagAndNoBody() {
+        ResponseEntity<?> response = encoder.notModified("W/\"1a-0-5\"");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"1a-0-5\"");
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void gzipsLargeBodiesForClientsThatAcceptIt() throws IOException {
+        Map<String, String> body = Collections.singletonMap("users", repeat("Ramesh Kumar 9876543210 ", 200));
+
+        ResponseEntity<byte[]> response = encoder.ok(body, "W/\"1a-0-5\"", "br;q=1.0, gzip;q=0.8", encoder.start());
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeaders().getETag()).isEqualTo("W/\"1a-0-5\"");
+        assertThat(response.getBody().length).isLessThan(objectMapper.writeValueAsBytes(body).length / 4);
+        assertThat(gunzip(response.getBody())).isEqualTo(objectMapper.writeValueAsBytes(body));
+    }
+
+    @Test
+    void sendsSmallBodiesAndRefusedGzipAsIs() throws IOException {
+        Map<String, String> small = Collections.singletonMap("users", "Ramesh Kumar");
+        Map<String, String> large = Collections.singletonMap("users", repeat("Ramesh Kumar 9876543210 ", 200));
+
+        assertThat(encoder.ok(small, null, "gzip", encoder.start()).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(encoder.ok(large, null, "gzip;q=0", encoder.start()).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(encoder.ok(large, null, "*;q=0.5, gzip;q=0", encoder.start()).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(encoder.ok(large, null, null, encoder.start()).getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        ResponseEntity<byte[]> wildcard = encoder.ok(large, null, "*", encoder.start());
+        assertThat(wildcard.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(wildcard.getHeaders().getETag()).isNull();
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
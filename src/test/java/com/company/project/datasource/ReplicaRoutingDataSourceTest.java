@@ -0,0 +1,128 @@
+package com.company.project.datasource;
+
+import com.company.project.config.MetricsConfig;
+import com.company.project.metrics.SlowQueryDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between a local primary and replica, two in-memory H2 databases told apart by their URL.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final Duration HEALTH_CHECK_INTERVAL = Duration.ofMillis(50);
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        primary = pool("primary");
+        replica = pool("replica");
+        routing = new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), HEALTH_CHECK_INTERVAL);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        routing.close();
+    }
+
+    @Test
+    void routesReplicaReadsToTheReplica() {
+        assertThat(database(routing)).isEqualTo("primary");
+
+        AtomicReference<String> read = new AtomicReference<>();
+        ReadRouting.onReplica(() -> read.set(database(routing)));
+        assertThat(read.get()).isEqualTo("replica");
+
+        ReadRouting.onReplica(() -> read.set(ReadRouting.onPrimary(() -> database(routing))));
+        assertThat(read.get()).isEqualTo("primary");
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhileTheReplicaIsDown() {
+        replica.close();
+
+        AtomicReference<String> read = new AtomicReference<>();
+        ReadRouting.onReplica(() -> read.set(database(routing)));
+        assertThat(read.get()).isEqualTo("primary");
+        assertThat(routing.healthyReplicas()).isZero();
+    }
+
+    @Test
+    void closeStopsHealthChecksAndClosesPools() {
+        assertThat(healthCheckThreads()).isPositive();
+
+        routing.close();
+
+        assertThat(primary.isClosed()).isTrue();
+        assertThat(replica.isClosed()).isTrue();
+        awaitNoHealthCheckThreads();
+    }
+
+    @Test
+    void containerClosesItThroughTheSlowQueryWrapper() {
+        routing.close();
+        primary = pool("primary");
+        replica = pool("replica");
+        routing = new ReplicaRoutingDataSource(primary, Collections.singletonList(replica), HEALTH_CHECK_INTERVAL);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(MetricsConfig.class);
+            context.registerBean("dataSource", DataSource.class, () -> routing,
+                    definition -> definition.setInitMethodName("afterPropertiesSet"));
+            context.refresh();
+            assertThat(context.getBean(DataSource.class)).isInstanceOf(SlowQueryDataSource.class);
+        }
+
+        assertThat(primary.isClosed()).isTrue();
+        assertThat(replica.isClosed()).isTrue();
+        awaitNoHealthCheckThreads();
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+
+    private static String database(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length(), url.indexOf(';') > 0 ? url.indexOf(';') : url.length());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long healthCheckThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("replica-health-") && thread.isAlive())
+                .count();
+    }
+
+    private static void awaitNoHealthCheckThreads() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (healthCheckThreads() > 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertThat(healthCheckThreads()).isZero();
+    }
+}
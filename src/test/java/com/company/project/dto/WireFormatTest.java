@@ -0,0 +1,112 @@
+package com.company.project.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the JSON of the request and response bodies, as written and read by the application's
+ * ObjectMapper, so that a renamed, added or dropped property shows up here first.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class WireFormatTest {
+
+    private static final UUID ID = UUID.fromString("3f1c1d8e-7a4b-4c5d-9e6f-0a1b2c3d4e5f");
+    private static final UUID MANAGER = UUID.fromString("11111111-1111-1111-1111-111111111111");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void createUserResponse() throws Exception {
+        assertJson(CreateUserResponse.message("User created successfully."), "{'message':'User created successfully.'}");
+        assertJson(CreateUserResponse.error("Full name must not be empty."), "{'error':'Full name must not be empty.'}");
+    }
+
+    @Test
+    void deleteUserResponse() throws Exception {
+        assertJson(DeleteUserResponse.message("User deleted successfully."), "{'message':'User deleted successfully.'}");
+        assertJson(DeleteUserResponse.error("User with provided user_id not found."),
+                "{'error':'User with provided user_id not found.'}");
+    }
+
+    @Test
+    void updateUserResponse() throws Exception {
+        UpdateUserResponse single = new UpdateUserResponse();
+        single.setMessage("User(s) updated successfully.");
+        assertJson(single, "{'message':'User(s) updated successfully.'}");
+
+        UpdateUserResult updated = new UpdateUserResult("a");
+        updated.setStatus("updated");
+        updated.setNewUserId(ID);
+        UpdateUserResult unchanged = new UpdateUserResult("b");
+        unchanged.setStatus("unchanged");
+        UpdateUserResult failed = new UpdateUserResult("c");
+        failed.setError("User with user_id c not found.");
+        UpdateUserResponse bulk = new UpdateUserResponse();
+        bulk.setMessage("User(s) updated successfully.");
+        bulk.setError("1 of 3 user(s) could not be updated.");
+        bulk.setResults(Arrays.asList(updated, unchanged, failed));
+        assertJson(bulk, "{'message':'User(s) updated successfully.','error':'1 of 3 user(s) could not be updated.','results':["
+                + "{'user_id':'a','status':'updated','new_user_id':'" + ID + "'},"
+                + "{'user_id':'b','status':'unchanged'},"
+                + "{'user_id':'c','error':'User with user_id c not found.'}]}");
+    }
+
+    @Test
+    void userProperties() throws Exception {
+        Timestamp time = new Timestamp(0);
+        UserDto user = new UserDto(ID, MANAGER, "Full Name", "9876543210", "ABCDE1234F", time, time, true, ID, time, null);
+        JsonNode json = objectMapper.valueToTree(user);
+
+        List<String> names = new ArrayList<>();
+        json.fieldNames().forEachRemaining(names::add);
+        assertThat(names).containsExactly("userId", "managerId", "fullName", "mobNum", "panNum", "createdAt",
+                "updatedAt", "isActive", "active", "personId", "validFrom", "validTo");
+        assertThat(json.get("isActive").asBoolean()).isTrue();
+        assertThat(json.get("active").asBoolean()).isTrue();
+        assertThat(json.get("userId").asText()).isEqualTo(ID.toString());
+    }
+
+    @Test
+    void writeRequests() throws Exception {
+        CreateUserRequest create = objectMapper.readValue(json(
+                "{'full_name':'Full Name','mob_num':'9876543210','pan_num':'ABCDE1234F','manager_id':'" + MANAGER + "'}"),
+                CreateUserRequest.class);
+        assertThat(create).isEqualTo(new CreateUserRequest("Full Name", "9876543210", "ABCDE1234F", MANAGER.toString()));
+
+        DeleteUserRequest delete = objectMapper.readValue(json("{'user_id':'" + ID + "','mob_num':'9876543210'}"),
+                DeleteUserRequest.class);
+        assertThat(delete.getUserId()).isEqualTo(ID.toString());
+        assertThat(delete.getMobNum()).isEqualTo("9876543210");
+
+        UpdateUserRequest update = objectMapper.readValue(json(
+                "{'user_ids':['" + ID + "'],'update_data':{'full_name':'New Name','manager_id':null}}"), UpdateUserRequest.class);
+        assertThat(update.getUserIds()).containsExactly(ID.toString());
+        assertThat(update.getUpdateData().getFullName()).isEqualTo("New Name");
+        assertThat(update.getUpdateData().containsKey("full_name")).isTrue();
+        assertThat(update.getUpdateData().containsKey("manager_id")).isTrue();
+        assertThat(update.getUpdateData().containsKey("mob_num")).isFalse();
+    }
+
+    // Compares the exact text, so property order counts too.
+    private void assertJson(Object value, String expected) throws Exception {
+        assertThat(objectMapper.writeValueAsString(value)).isEqualTo(json(expected));
+    }
+
+    private static String json(String singleQuoted) {
+        return singleQuoted.replace('\'', '"');
+    }
+}
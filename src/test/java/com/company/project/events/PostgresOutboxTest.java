@@ -0,0 +1,133 @@
+package com.company.project.events;
+
+import com.company.project.PostgresTestDatabase;
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.repository.UserEventRepository;
+import com.company.project.service.UserCopyService;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Outbox behaviour that H2 cannot show: COPY imports and the relay's advisory lock. Runs against
+ * the {@link PostgresTestDatabase}; skipped where there is none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf(PostgresTestDatabase.AVAILABLE)
+class PostgresOutboxTest {
+
+    @Autowired
+    private UserCopyService userCopyService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserEventRelay relay;
+
+    @Autowired
+    private UserEventRepository userEventRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Test
+    void importAppendsOneCreatedEventPerImportedUser() {
+        // Users that were not part of an import, or were part of an earlier one, get no event from it.
+        List<String> mobiles = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("full_name,mob_num,pan_num\n");
+        for (int i = 0; i < 3; i++) {
+            String mobile = TestUsers.newMobile();
+            mobiles.add(mobile);
+            csv.append("Imported User,").append(mobile).append(",ABCDE1234F\n");
+        }
+        String existing = TestUsers.newMobile();
+        createUser(existing);
+
+        Map<String, Object> first = userCopyService.importUsers(new StringReader(csv.toString()), false);
+        assertThat(first.get("imported")).isEqualTo(3L);
+        String second = TestUsers.newMobile();
+        userCopyService.importUsers(new StringReader("full_name,mob_num,pan_num\nImported User," + second + ",ABCDE1234F\n"), false);
+        mobiles.add(second);
+
+        for (String mobile : mobiles) {
+            assertThat(createdEvents(mobile)).as(mobile).isEqualTo(1);
+        }
+        assertThat(createdEvents(existing)).isEqualTo(1);
+    }
+
+    @Test
+    void onlyOneRelayRunsAtATime() throws InterruptedException {
+        relay.relay();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        boolean[] acquired = new boolean[1];
+        Thread other = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            acquired[0] = userEventRepository.tryLockRelay();
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        other.start();
+        try {
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(acquired[0]).isTrue();
+            UUID userId = createUser(TestUsers.newMobile());
+
+            assertThat(relay.relay()).isZero();
+            assertThat(unpublished(userId)).isEqualTo(1);
+        } finally {
+            release.countDown();
+            other.join();
+        }
+        assertThat(relay.relay()).isPositive();
+    }
+
+    private UUID createUser(String mobile) {
+        CreateUserResponse response = userService.createUser(new CreateUserRequest("Outbox User", mobile, "ABCDE1234F", null));
+        assertThat(response.getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private int createdEvents(String mobile) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_events e JOIN users u ON u.user_id = e.user_id"
+                + " WHERE u.mob_num = ? AND e.event_type = 'created'", Integer.class, mobile);
+    }
+
+    private int unpublished(UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_events WHERE user_id = ? AND seq IS NULL", Integer.class, userId);
+    }
+}
@@ -0,0 +1,109 @@
+package com.company.project.events;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.model.UserEvent;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The outbox relay: events are published once, in seq order, and a batch the sink rejects stays
+ * unpublished and is delivered again by the next run.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserEventRelayTest {
+
+    @Autowired
+    private UserEventRelay relay;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void removeSink() {
+        setSink(null);
+    }
+
+    @Test
+    void publishesEachEventOnceInSeqOrder() {
+        List<UserEvent> published = new ArrayList<>();
+        setSink(published::addAll);
+        UUID first = createUser();
+        UUID second = createUser();
+
+        assertThat(relay.relay()).isGreaterThanOrEqualTo(2);
+
+        List<UserEvent> ours = eventsFor(published, first, second);
+        assertThat(ours).extracting(UserEvent::getUserId).containsExactly(first, second);
+        assertThat(ours).extracting(UserEvent::getEventType).containsOnly(UserEvent.CREATED);
+        assertThat(ours.get(1).getSeq()).isGreaterThan(ours.get(0).getSeq());
+        assertThat(ours.get(0).getPayload()).contains(first.toString());
+        List<Long> seqs = published.stream().map(UserEvent::getSeq).collect(Collectors.toList());
+        assertThat(seqs).isSorted().doesNotHaveDuplicates();
+
+        assertThat(relay.relay()).isZero();
+        assertThat(eventsFor(published, first, second)).hasSize(2);
+    }
+
+    @Test
+    void rejectedBatchIsDeliveredAgain() {
+        List<UserEvent> rejected = new ArrayList<>();
+        setSink(events -> {
+            rejected.addAll(events);
+            throw new IOException("sink unavailable");
+        });
+        UUID userId = createUser();
+
+        assertThat(relay.relay()).isZero();
+        assertThat(eventsFor(rejected, userId)).hasSize(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_events WHERE user_id = ? AND seq IS NULL", Integer.class, userId)).isEqualTo(1);
+
+        List<UserEvent> published = new ArrayList<>();
+        setSink(published::addAll);
+        assertThat(relay.relay()).isPositive();
+
+        List<UserEvent> delivered = eventsFor(published, userId);
+        assertThat(delivered).hasSize(1);
+        assertThat(delivered.get(0).getEventId()).isEqualTo(eventsFor(rejected, userId).get(0).getEventId());
+        assertThat(delivered.get(0).getSeq()).isNotNull();
+    }
+
+    private UUID createUser() {
+        String mobile = TestUsers.newMobile();
+        CreateUserResponse response = userService.createUser(new CreateUserRequest("Relay User", mobile, "ABCDE1234F", null));
+        assertThat(response.getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private void setSink(UserEventSink sink) {
+        UserEventRelay target = AopTestUtils.getTargetObject(relay);
+        ReflectionTestUtils.setField(target, "sink", sink);
+    }
+
+    private static List<UserEvent> eventsFor(List<UserEvent> events, UUID... userIds) {
+        List<UUID> ids = Arrays.asList(userIds);
+        return events.stream().filter(event -> ids.contains(event.getUserId())).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+package com.company.project.execution;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Where handlers run in ASYNC mode, and that every path goes through the same limit.
+ */
+class RequestExecutionTest {
+
+    private RequestExecution execution;
+
+    @AfterEach
+    void tearDown() {
+        if (execution != null) execution.shutdown();
+    }
+
+    @Test
+    void runHandsOffToTheWorkerPool() throws Exception {
+        execution = async(2);
+
+        Object result = execution.run(() -> ResponseEntity.ok(Thread.currentThread().getName()));
+
+        assertThat(result).isInstanceOf(CompletableFuture.class);
+        ResponseEntity<?> response = (ResponseEntity<?>) ((CompletableFuture<?>) result).get(5, TimeUnit.SECONDS);
+        assertThat((String) response.getBody()).startsWith("user-request-");
+    }
+
+    @Test
+    void bodyReadingHandlersStayOnTheCallingThread() throws Exception {
+        execution = async(2);
+
+        ResponseEntity<?> response = execution.runOnRequestThread(() -> ResponseEntity.ok(Thread.currentThread().getName()));
+
+        assertThat(response.getBody()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    void requestThreadHandlersShareTheLimit() throws Exception {
+        execution = async(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<?> holder = (CompletableFuture<?>) execution.run(() -> {
+            started.countDown();
+            release.await();
+            return ResponseEntity.ok("done");
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        ResponseEntity<?> busy = execution.runOnRequestThread(() -> ResponseEntity.ok("ran"));
+
+        assertThat(busy.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertThat(execution.runOnRequestThread(() -> ResponseEntity.ok("ran")).getBody()).isEqualTo("ran");
+    }
+
+    private static RequestExecution async(int maxConcurrent) {
+        RequestExecution execution = new RequestExecution();
+        ReflectionTestUtils.setField(execution, "mode", ExecutionMode.ASYNC);
+        ReflectionTestUtils.setField(execution, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(execution, "acquireTimeout", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(execution, "queueCapacity", 10);
+        execution.init();
+        return execution;
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.project.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Repository calls are timed and counted on meters built once per method.
+ */
+class RepositoryMetricsAspectTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RepositoryMetricsAspect aspect = new RepositoryMetricsAspect();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(aspect, "meterRegistry", registry);
+    }
+
+    @Test
+    void recordsCallsAndRowsOnOneSetOfMeters() throws Throwable {
+        ProceedingJoinPoint call = joinPoint("findAll");
+        when(call.proceed()).thenReturn(Arrays.asList(1, 2, 3));
+
+        aspect.record(call);
+        Timer timer = registry.get("users.repository.calls").tag("method", "findAll").tag("outcome", "success").timer();
+        aspect.record(call);
+
+        assertThat(registry.get("users.repository.calls").tag("method", "findAll").tag("outcome", "success").timer())
+                .isSameAs(timer);
+        assertThat(timer.count()).isEqualTo(2);
+        DistributionSummary rows = registry.get("users.repository.rows").tag("method", "findAll").summary();
+        assertThat(rows.count()).isEqualTo(2);
+        assertThat(rows.totalAmount()).isEqualTo(6);
+    }
+
+    @Test
+    void recordsFailures() throws Throwable {
+        ProceedingJoinPoint call = joinPoint("findAll");
+        when(call.proceed()).thenThrow(new IllegalStateException("down"));
+
+        assertThatThrownBy(() -> aspect.record(call)).hasMessage("down");
+
+        assertThat(registry.get("users.repository.calls").tag("outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(registry.get("users.repository.calls").tag("outcome", "success").timer().count()).isZero();
+        assertThat(registry.get("users.repository.rows").summary().count()).isZero();
+    }
+
+    private static ProceedingJoinPoint joinPoint(String methodName) throws NoSuchMethodException {
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(Repository.class.getMethod(methodName));
+        when(signature.getDeclaringType()).thenReturn(Repository.class);
+        when(signature.getName()).thenReturn(methodName);
+        when(signature.getReturnType()).thenReturn(List.class);
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        return joinPoint;
+    }
+
+    interface Repository {
+        List<Integer> findAll();
+    }
+}
@@ -0,0 +1,189 @@
+package com.company.project.repository;
+
+import com.company.project.PostgresTestDatabase;
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The native uuid key columns: their types, lookups by id in any case, and
+ * db/postgresql/migrate_uuid_columns.sql converting a populated VARCHAR(36) schema. Runs against
+ * the {@link PostgresTestDatabase}; skipped where there is none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf(PostgresTestDatabase.AVAILABLE)
+class UuidColumnsPostgresTest {
+
+    private static final String LEGACY_SCHEMA = "users_uuid_migration";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Test
+    void keyColumnsAreUuid() {
+        assertThat(dataType("users_test", "users", "user_id")).isEqualTo("uuid");
+        assertThat(dataType("users_test", "users", "manager_id")).isEqualTo("uuid");
+        assertThat(dataType("users_test", "users", "person_id")).isEqualTo("uuid");
+        assertThat(dataType("users_test", "managers", "manager_id")).isEqualTo("uuid");
+    }
+
+    @Test
+    void findsUsersByIdInAnyCase() {
+        String mobile = TestUsers.newMobile();
+        assertThat(userService.createUser(new CreateUserRequest("Uuid Case User", mobile, "ABCDE1234F",
+                TestUsers.MANAGER_ONE.toUpperCase(Locale.ROOT))).getError()).isNull();
+        UUID userId = jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active", UUID.class, mobile);
+        String upperCase = userId.toString().toUpperCase(Locale.ROOT);
+
+        assertThat(userService.getUsers(byId(upperCase)).getUsers()).extracting("userId").containsExactly(userId);
+        GetUsersRequest byManager = new GetUsersRequest();
+        byManager.setManagerId(TestUsers.MANAGER_ONE.toUpperCase(Locale.ROOT));
+        assertThat(userService.getUsers(byManager).getUsers()).extracting("userId").contains(userId);
+        // Malformed ids are never bound, so they find nothing instead of failing the cast.
+        assertThat(userService.getUsers(byId("1-2-3-4-5")).getUsers()).isEmpty();
+        assertThat(userService.getUsers(byId("not-a-uuid")).getError()).isNull();
+
+        DeleteUserRequest delete = new DeleteUserRequest();
+        delete.setUserId(upperCase);
+        assertThat(userService.deleteUser(delete).getError()).isNull();
+        assertThat(userService.getUsers(byId(userId.toString())).getUsers()).isEmpty();
+    }
+
+    @Test
+    void migrationConvertsPopulatedVarcharColumns() throws Exception {
+        String userId = UUID.randomUUID().toString();
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + LEGACY_SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + LEGACY_SCHEMA);
+            connection.setSchema(LEGACY_SCHEMA);
+            // The tables as schema.sql created them before the uuid columns.
+            statement.execute("CREATE TABLE users (user_id VARCHAR(36) PRIMARY KEY, manager_id VARCHAR(36), "
+                    + "full_name VARCHAR(255) NOT NULL, mob_num VARCHAR(15) NOT NULL, pan_num VARCHAR(10) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP, is_active BOOLEAN NOT NULL)");
+            statement.execute("CREATE TABLE managers (manager_id VARCHAR(36) PRIMARY KEY, full_name VARCHAR(255) NOT NULL, "
+                    + "email VARCHAR(255) NOT NULL, is_active BOOLEAN NOT NULL, created_at TIMESTAMP NOT NULL)");
+            statement.execute("INSERT INTO managers VALUES ('" + TestUsers.MANAGER_ONE + "', 'Manager One', "
+                    + "'manager.one@example.com', true, CURRENT_TIMESTAMP)");
+            statement.execute("INSERT INTO users SELECT gen_random_uuid()::text, "
+                    + "CASE WHEN i % 2 = 0 THEN '" + TestUsers.MANAGER_ONE + "' END, 'Legacy User ' || i, "
+                    + "(9000000000 + i)::text, 'ABCDE1234F', CURRENT_TIMESTAMP, NULL, true FROM generate_series(1, 25000) i");
+            statement.execute("INSERT INTO users VALUES ('" + userId + "', '" + TestUsers.MANAGER_ONE + "', 'Legacy Known', "
+                    + "'8999999999', 'ABCDE1234F', CURRENT_TIMESTAMP, NULL, true)");
+
+            // Autocommit, one statement at a time, as psql runs it.
+            for (String sql : statements(new ClassPathResource("db/postgresql/migrate_uuid_columns.sql"))) {
+                statement.execute(sql);
+            }
+
+            assertThat(dataType(LEGACY_SCHEMA, "users", "user_id")).isEqualTo("uuid");
+            assertThat(dataType(LEGACY_SCHEMA, "users", "manager_id")).isEqualTo("uuid");
+            assertThat(dataType(LEGACY_SCHEMA, "managers", "manager_id")).isEqualTo("uuid");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM " + LEGACY_SCHEMA + ".users", Integer.class)).isEqualTo(25001);
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM " + LEGACY_SCHEMA + ".users WHERE manager_id = ?",
+                    Integer.class, UUID.fromString(TestUsers.MANAGER_ONE))).isEqualTo(12501);
+            assertThat(jdbcTemplate.queryForObject("SELECT full_name FROM " + LEGACY_SCHEMA + ".users WHERE user_id = ?",
+                    String.class, UUID.fromString(userId))).isEqualTo("Legacy Known");
+            assertThat(jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes WHERE schemaname = ? AND tablename = 'users'",
+                    String.class, LEGACY_SCHEMA)).containsExactlyInAnyOrder(
+                    "users_pkey", "idx_users_created_at_user_id", "idx_users_manager_id_active", "idx_users_mob_num");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+                    + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND NOT i.indisvalid",
+                    Integer.class, LEGACY_SCHEMA)).isZero();
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM pg_trigger t JOIN pg_class c ON c.oid = t.tgrelid "
+                    + "JOIN pg_namespace n ON n.oid = c.relnamespace WHERE n.nspname = ? AND NOT t.tgisinternal",
+                    Integer.class, LEGACY_SCHEMA)).isZero();
+        } finally {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + LEGACY_SCHEMA + " CASCADE");
+        }
+    }
+
+    private String dataType(String schema, String table, String column) {
+        return jdbcTemplate.queryForObject("SELECT data_type FROM information_schema.columns "
+                + "WHERE table_schema = ? AND table_name = ? AND column_name = ?", String.class, schema, table, column);
+    }
+
+    private static GetUsersRequest byId(String userId) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setUserId(userId);
+        return request;
+    }
+
+    // Splits a psql script at the semicolons outside comments, quotes and $$ bodies.
+    private static List<String> statements(ClassPathResource script) throws IOException {
+        String sql = StreamUtils.copyToString(script.getInputStream(), StandardCharsets.UTF_8);
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        while (i < sql.length()) {
+            int end;
+            if (sql.startsWith("--", i)) {
+                end = sql.indexOf('\n', i);
+                i = end < 0 ? sql.length() : end;
+                continue;
+            } else if (sql.startsWith("/*", i)) {
+                i = sql.indexOf("*/", i) + 2;
+                continue;
+            } else if (sql.startsWith("$$", i)) {
+                end = sql.indexOf("$$", i + 2) + 2;
+            } else if (sql.charAt(i) == '\'') {
+                end = sql.indexOf('\'', i + 1) + 1;
+            } else if (sql.charAt(i) == ';') {
+                if (current.toString().trim().length() > 0) statements.add(current.toString().trim());
+                current.setLength(0);
+                i++;
+                continue;
+            } else {
+                end = i + 1;
+            }
+            current.append(sql, i, end);
+            i = end;
+        }
+        if (current.toString().trim().length() > 0) statements.add(current.toString().trim());
+        return statements;
+    }
+}
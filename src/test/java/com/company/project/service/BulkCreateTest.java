@@ -0,0 +1,131 @@
+package com.company.project.service;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserResult;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.UserDto;
+import com.company.project.validation.UserValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /create_users with small chunks: the response stays bounded, and rows before malformed input
+ * stay committed and are counted.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkCreateTest {
+
+    @Autowired
+    private UserService userService;
+
+    @BeforeEach
+    void useSmallChunks() {
+        Object target = AopTestUtils.getTargetObject(userService);
+        ReflectionTestUtils.setField(target, "bulkBatchSize", 2);
+        ReflectionTestUtils.setField(target, "bulkMaxReportedErrors", 2);
+    }
+
+    @AfterEach
+    void restoreChunks() {
+        Object target = AopTestUtils.getTargetObject(userService);
+        ReflectionTestUtils.setField(target, "bulkBatchSize", 1000);
+        ReflectionTestUtils.setField(target, "bulkMaxReportedErrors", 100);
+    }
+
+    @Test
+    void reportsCountsAndBoundedErrors() throws IOException {
+        String body = "["
+                + row(TestUsers.newMobile()) + ","
+                + row("12345") + ","
+                + row(TestUsers.newMobile()) + ","
+                + row("54321") + ","
+                + row("99")
+                + "]";
+
+        Map<String, Object> response = userService.createUsers(stream(body));
+
+        assertThat(response).doesNotContainKeys("error", "results");
+        assertThat(response).containsEntry("total", 5).containsEntry("created", 2).containsEntry("failed", 3);
+        List<Map<String, Object>> errors = errors(response);
+        assertThat(errors).hasSize(2);
+        assertThat(errors.get(0)).containsEntry("row", 1);
+        assertThat(errors.get(1)).containsEntry("row", 3);
+    }
+
+    @Test
+    void rejectsRowsWithUnknownManagers() throws IOException {
+        String body = row(TestUsers.newMobile()) + "\n"
+                + row(TestUsers.newMobile()).replace(TestUsers.MANAGER_ONE, "99999999-9999-9999-9999-999999999999");
+
+        Map<String, Object> response = userService.createUsers(stream(body));
+
+        assertThat(response).containsEntry("created", 1).containsEntry("failed", 1);
+        assertThat(errors(response).get(0)).containsEntry("row", 1).containsEntry("error", UserValidator.INVALID_MANAGER);
+    }
+
+    @Test
+    void keepsRowsBeforeMalformedInput() throws IOException {
+        String[] mobiles = {TestUsers.newMobile(), TestUsers.newMobile(), TestUsers.newMobile()};
+        String body = row(mobiles[0]) + "\n" + row(mobiles[1]) + "\n" + row(mobiles[2]) + "\n{\"full_name\": ";
+
+        Map<String, Object> response = userService.createUsers(stream(body));
+
+        assertThat((String) response.get("error")).startsWith("Malformed input after row 3");
+        assertThat(response).containsEntry("total", 3).containsEntry("created", 3).containsEntry("failed", 0);
+        for (String mobile : mobiles) {
+            GetUsersRequest request = new GetUsersRequest();
+            request.setMobNum(mobile);
+            assertThat(userService.getUsers(request).getUsers()).hasSize(1);
+        }
+    }
+
+    @Test
+    void passesEveryRowsOutcomeToTheListener() throws IOException {
+        String mobile = TestUsers.newMobile();
+        String body = row(mobile) + "\n" + row("12345") + "\n" + row(TestUsers.newMobile());
+        List<CreateUserResult> results = new ArrayList<>();
+
+        Map<String, Object> response = userService.createUsers(stream(body), results::add);
+
+        assertThat(response).doesNotContainKey("errors").containsEntry("created", 2).containsEntry("failed", 1);
+        assertThat(results).extracting(CreateUserResult::getRow).containsExactly(0, 1, 2);
+        assertThat(results.get(1).getUserId()).isNull();
+        assertThat(results.get(1).getError()).isNotNull();
+        GetUsersRequest request = new GetUsersRequest();
+        request.setMobNum(mobile);
+        UserDto created = userService.getUsers(request).getUsers().get(0);
+        assertThat(results.get(0).getUserId()).isEqualTo(created.getUserId());
+        assertThat(results.get(0).getError()).isNull();
+        assertThat(results.get(2).getUserId()).isNotNull();
+    }
+
+    private static String row(String mobile) {
+        return "{\"full_name\": \"Bulk User\", \"mob_num\": \"" + mobile + "\", \"pan_num\": \"ABCDE1234F\", \"manager_id\": \""
+                + TestUsers.MANAGER_ONE + "\"}";
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> errors(Map<String, Object> response) {
+        return (List<Map<String, Object>>) response.get("errors");
+    }
+}
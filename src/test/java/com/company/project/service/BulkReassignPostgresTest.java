@@ -0,0 +1,97 @@
+package com.company.project.service;
+
+import com.company.project.PostgresTestDatabase;
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A bulk manager change racing a field update of one of its users: the successor record must
+ * carry the update, not the values from before it. Runs against the {@link PostgresTestDatabase};
+ * skipped where there is none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf(PostgresTestDatabase.AVAILABLE)
+class BulkReassignPostgresTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Test
+    void concurrentUpdateIsNotReverted() throws Exception {
+        UUID renamed = create(TestUsers.newMobile());
+        UUID other = create(TestUsers.newMobile());
+        CountDownLatch updated = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        // Renames the user and holds the row lock until told to commit.
+        CompletableFuture<Void> rename = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE users SET full_name = 'Renamed User' WHERE user_id = ?", renamed);
+            updated.countDown();
+            try {
+                commit.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(updated.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<UpdateUserResponse> move = CompletableFuture.supplyAsync(() -> userService.updateUser(
+                BulkReassignTest.update(Arrays.asList(renamed.toString(), other.toString()), TestUsers.MANAGER_TWO)));
+        awaitLockWait();
+        commit.countDown();
+        rename.get(10, TimeUnit.SECONDS);
+        UpdateUserResponse response = move.get(10, TimeUnit.SECONDS);
+
+        assertThat(response.getError()).isNull();
+        UUID successor = response.getResults().get(0).getNewUserId();
+        assertThat(jdbcTemplate.queryForObject("SELECT full_name FROM users WHERE user_id = ?", String.class, successor))
+                .isEqualTo("Renamed User");
+        assertThat(jdbcTemplate.queryForObject("SELECT manager_id FROM users WHERE user_id = ?", UUID.class, successor))
+                .hasToString(TestUsers.MANAGER_TWO);
+    }
+
+    // Until the bulk change is blocked on the renamed row.
+    private void awaitLockWait() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class) == 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private UUID create(String mobile) {
+        assertThat(userService.createUser(new CreateUserRequest("Bulk Move User", mobile, "ABCDE1234F", TestUsers.MANAGER_ONE)).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+}
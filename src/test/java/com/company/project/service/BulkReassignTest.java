@@ -0,0 +1,102 @@
+package com.company.project.service;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.dto.UpdateUserResult;
+import com.company.project.dto.UserUpdateData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /update_user with several user_ids and a manager_id: one result per requested id, and every
+ * moved user gets a successor record carrying its current fields.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class BulkReassignTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reportsAResultPerRequestedId() {
+        UUID moved = create(TestUsers.newMobile(), TestUsers.MANAGER_ONE);
+        UUID stays = create(TestUsers.newMobile(), TestUsers.MANAGER_TWO);
+        String unknown = UUID.randomUUID().toString();
+
+        UpdateUserResponse response = userService.updateUser(update(Arrays.asList(
+                moved.toString(), stays.toString().toUpperCase(), stays.toString(), unknown, "not-a-uuid"), TestUsers.MANAGER_TWO));
+
+        assertThat(response.getError()).isEqualTo("2 of 4 user(s) could not be updated.");
+        List<UpdateUserResult> results = response.getResults();
+        assertThat(results).extracting(UpdateUserResult::getUserId)
+                .containsExactly(moved.toString(), stays.toString().toUpperCase(), unknown, "not-a-uuid");
+        assertThat(results.get(0).getStatus()).isEqualTo("updated");
+        assertThat(results.get(1).getStatus()).isEqualTo("unchanged");
+        assertThat(results.get(2).getError()).isEqualTo("User with user_id " + unknown + " not found.");
+        assertThat(results.get(3).getError()).isEqualTo("User with user_id not-a-uuid not found.");
+
+        UUID successor = results.get(0).getNewUserId();
+        Map<String, Object> previous = row(moved);
+        Map<String, Object> current = row(successor);
+        assertThat(previous.get("is_active")).isEqualTo(false);
+        assertThat(previous.get("valid_to")).isEqualTo(current.get("valid_from"));
+        assertThat(current.get("is_active")).isEqualTo(true);
+        assertThat(current.get("manager_id")).isEqualTo(UUID.fromString(TestUsers.MANAGER_TWO));
+        assertThat(current.get("person_id")).isEqualTo(previous.get("person_id"));
+        assertThat(current.get("mob_num")).isEqualTo(previous.get("mob_num"));
+        assertThat(events("deactivated", moved)).isEqualTo(1);
+        assertThat(events("manager_changed", successor)).isEqualTo(1);
+        assertThat(row(stays).get("is_active")).isEqualTo(true);
+    }
+
+    @Test
+    void rejectsAnUnknownManagerWithoutChangingAnyone() {
+        UUID userId = create(TestUsers.newMobile(), TestUsers.MANAGER_ONE);
+
+        UpdateUserResponse response = userService.updateUser(update(Arrays.asList(
+                userId.toString(), UUID.randomUUID().toString()), "99999999-9999-9999-9999-999999999999"));
+
+        assertThat(response.getError()).isNotNull();
+        assertThat(response.getResults()).isNull();
+        assertThat(row(userId).get("is_active")).isEqualTo(true);
+    }
+
+    private UUID create(String mobile, String managerId) {
+        assertThat(userService.createUser(new CreateUserRequest("Bulk Move User", mobile, "ABCDE1234F", managerId)).getError()).isNull();
+        return jdbcTemplate.queryForObject("SELECT user_id FROM users WHERE mob_num = ? AND is_active = true", UUID.class, mobile);
+    }
+
+    private Map<String, Object> row(UUID userId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM users WHERE user_id = ?", userId);
+    }
+
+    private int events(String eventType, UUID userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_events WHERE event_type = ? AND user_id = ?",
+                Integer.class, eventType, userId);
+    }
+
+    static UpdateUserRequest update(List<String> userIds, String managerId) {
+        UserUpdateData data = new UserUpdateData();
+        data.setManagerId(managerId);
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setUserIds(userIds);
+        request.setUpdateData(data);
+        return request;
+    }
+}
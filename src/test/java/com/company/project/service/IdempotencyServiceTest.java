@@ -0,0 +1,139 @@
+package com.company.project.service;
+
+import com.company.project.model.IdempotencyRecord;
+import com.company.project.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Requests sharing an Idempotency-Key: a finished one is replayed, a different body is rejected,
+ * one still running is refused, and an abandoned one is taken over without the first request
+ * later overwriting or deleting the new claim.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    void replaysTheStoredResponse() throws Exception {
+        String key = newKey();
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<?> first = idempotencyService.run(key, "test", "body", () -> ok(runs.incrementAndGet()));
+        ResponseEntity<?> second = idempotencyService.run(key, "test", "body", () -> ok(runs.incrementAndGet()));
+
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(second.getStatusCodeValue()).isEqualTo(200);
+        assertThat(second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(second.getBody().toString()).contains("\"run\":1");
+    }
+
+    @Test
+    void rejectsTheKeyWithADifferentRequest() throws Exception {
+        String key = newKey();
+        idempotencyService.run(key, "test", "body", () -> ok(1));
+
+        ResponseEntity<?> otherBody = idempotencyService.run(key, "test", "other body", () -> ok(2));
+        ResponseEntity<?> otherOperation = idempotencyService.run(key, "other", "body", () -> ok(3));
+
+        assertThat(otherBody.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(otherOperation.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    void refusesTheKeyWhileItsRequestRuns() throws Exception {
+        String key = newKey();
+        ResponseEntity<?>[] nested = new ResponseEntity<?>[1];
+
+        idempotencyService.run(key, "test", "body", () -> {
+            nested[0] = idempotencyService.run(key, "test", "body", () -> ok(2));
+            return ok(1);
+        });
+
+        assertThat(nested[0].getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(idempotencyKeyRepository.find(key).getStatusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void takesOverAnAbandonedRequest() throws Exception {
+        String key = newKey();
+        IdempotencyRecord abandoned = claimAbandoned(key);
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<?> response = idempotencyService.run(key, "test", "body", () -> ok(runs.incrementAndGet()));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(runs.get()).isEqualTo(1);
+        // The request that made the first claim finishing late changes nothing.
+        assertThat(idempotencyKeyRepository.complete(key, abandoned.getCreatedAt(), 201, "{}")).isFalse();
+        idempotencyKeyRepository.release(key, abandoned.getCreatedAt());
+        IdempotencyRecord record = idempotencyKeyRepository.find(key);
+        assertThat(record.getStatusCode()).isEqualTo(200);
+        assertThat(record.getResponseBody()).contains("\"run\":1");
+    }
+
+    @Test
+    void keepsTheClaimOfARequestThatTookOver() throws Exception {
+        String key = newKey();
+        ResponseEntity<?> response = idempotencyService.run(key, "test", "body", () -> {
+            takeOver(key);
+            return ok(1);
+        });
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(idempotencyKeyRepository.find(key).getStatusCode()).isNull();
+
+        String failedKey = newKey();
+        assertThatThrownBy(() -> idempotencyService.run(failedKey, "test", "body", () -> {
+            takeOver(failedKey);
+            throw new IllegalStateException("failed");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(idempotencyKeyRepository.find(failedKey)).isNotNull();
+    }
+
+    // Another request taking the key over while the first one still runs.
+    private void takeOver(String key) {
+        IdempotencyRecord record = idempotencyKeyRepository.find(key);
+        Timestamp later = new Timestamp(record.getCreatedAt().getTime() + 1000);
+        assertThat(idempotencyKeyRepository.takeOver(key, record.getRequestHash(), record.getCreatedAt(), later)).isTrue();
+    }
+
+    private IdempotencyRecord claimAbandoned(String key) throws Exception {
+        // Claim the key through the service to get the request hash, then age the claim.
+        idempotencyService.run(key, "test", "body", () -> {
+            IdempotencyRecord record = idempotencyKeyRepository.find(key);
+            Timestamp old = new Timestamp(System.currentTimeMillis() - 10 * 60 * 1000);
+            assertThat(idempotencyKeyRepository.takeOver(key, record.getRequestHash(), record.getCreatedAt(), old)).isTrue();
+            return ok(0);
+        });
+        IdempotencyRecord record = idempotencyKeyRepository.find(key);
+        assertThat(record.getStatusCode()).isNull();
+        return record;
+    }
+
+    private static ResponseEntity<?> ok(int run) {
+        return ResponseEntity.ok(Collections.singletonMap("run", run));
+    }
+
+    private static String newKey() {
+        return "test-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,90 @@
+package com.company.project.service;
+
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.validation.UserValidator;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Which R2DBC write failures the reactive endpoints answer with the duplicate mobile error, and
+ * which /get_users requests they reject with the servlet stack's 400 errors.
+ */
+class ReactiveUserServiceTest {
+
+    private final ReactiveUserService userService = new ReactiveUserService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(userService, "userValidator", new UserValidator());
+        ReflectionTestUtils.setField(userService, "maxLookupKeys", 2);
+    }
+
+    @Test
+    void uniqueViolationsAreRecognised() {
+        assertThat(ReactiveUserService.isUniqueViolation(new DuplicateKeyException("duplicate"))).isTrue();
+        assertThat(ReactiveUserService.isUniqueViolation(new DataIntegrityViolationException("insert failed",
+                new R2dbcDataIntegrityViolationException("duplicate key value violates unique constraint", "23505")))).isTrue();
+    }
+
+    @Test
+    void otherFailuresAreNot() {
+        assertThat(ReactiveUserService.isUniqueViolation(new DataIntegrityViolationException("insert failed",
+                new R2dbcDataIntegrityViolationException("violates check constraint", "23514")))).isFalse();
+        assertThat(ReactiveUserService.isUniqueViolation(new IllegalStateException("connection closed"))).isFalse();
+    }
+
+    @Test
+    void invalidGetUsersRequestsGetTheServletErrors() {
+        GetUsersRequest history = new GetUsersRequest();
+        history.setHistory(true);
+        assertThat(userService.validateGetUsers(history)).isEqualTo("history needs user_id or mob_num.");
+
+        GetUsersRequest asOf = new GetUsersRequest();
+        asOf.setUserId(UUID.randomUUID().toString());
+        asOf.setAsOf("yesterday");
+        assertThat(userService.validateGetUsers(asOf)).isEqualTo("Invalid as_of. Use an ISO-8601 date or date-time.");
+
+        GetUsersRequest search = new GetUsersRequest();
+        search.setSearch("a");
+        assertThat(userService.validateGetUsers(search)).isEqualTo("Name search needs at least 2 characters.");
+        search.setSearch("Ramesh");
+        search.setLimit(0);
+        assertThat(userService.validateGetUsers(search)).isEqualTo("Invalid limit. It must be a positive integer.");
+
+        GetUsersRequest keys = new GetUsersRequest();
+        keys.setMobNums(Arrays.asList("9876543210", "9876543211", "9876543212"));
+        assertThat(userService.validateGetUsers(keys)).isEqualTo("mob_nums may list at most 2 values.");
+
+        assertThatThrownBy(() -> userService.getUsers(history).collectList().block())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("history needs user_id or mob_num.");
+    }
+
+    @Test
+    void malformedIdsAreNotErrors() {
+        // As on the servlet stack, they find nobody.
+        GetUsersRequest byId = new GetUsersRequest();
+        byId.setUserId("not-a-uuid");
+        assertThat(userService.validateGetUsers(byId)).isNull();
+        assertThat(userService.getUsers(byId).collectList().block()).isEmpty();
+
+        GetUsersRequest byIds = new GetUsersRequest();
+        byIds.setUserIds(Collections.singletonList("not-a-uuid"));
+        assertThat(userService.getUsers(byIds).collectList().block()).isEmpty();
+
+        GetUsersRequest byManager = new GetUsersRequest();
+        byManager.setManagerId("not-a-uuid");
+        assertThat(userService.getUsers(byManager).collectList().block()).isEmpty();
+    }
+}
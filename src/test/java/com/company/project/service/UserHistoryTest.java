@@ -0,0 +1,139 @@
+package com.company.project.service;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.CreateUserResponse;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.UpdateUserRequest;
+import com.company.project.dto.UpdateUserResponse;
+import com.company.project.dto.UserDto;
+import com.company.project.dto.UserUpdateData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Point-in-time reads around manager changes: the record a user had before a change must still
+ * be what as_of returns for earlier instants, and a first manager keeps the user's user_id.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserHistoryTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void firstManagerAssignmentKeepsEarlierHistory() throws InterruptedException {
+        String mobile = TestUsers.newMobile();
+        UserDto created = create(mobile, null);
+        String beforeAssignment = instantAfterPause();
+
+        UpdateUserResponse response = userService.updateUser(update(Collections.singletonList(created.getUserId().toString()), TestUsers.MANAGER_ONE));
+        assertThat(response.getError()).isNull();
+
+        // The record as it was is kept under a new id; the user keeps its user_id.
+        UserDto then = asOfByMobile(mobile, beforeAssignment);
+        assertThat(then).isNotNull();
+        assertThat(then.getPersonId()).isEqualTo(created.getPersonId());
+        assertThat(then.getManagerId()).isNull();
+        assertThat(then.getValidFrom()).isEqualTo(created.getValidFrom());
+        assertThat(teamAsOf(TestUsers.MANAGER_ONE, beforeAssignment)).doesNotContain(created.getUserId());
+
+        UserDto now = current(mobile);
+        assertThat(now.getUserId()).isEqualTo(created.getUserId());
+        assertThat(now.getManagerId()).hasToString(TestUsers.MANAGER_ONE);
+        assertThat(now.getPersonId()).isEqualTo(created.getPersonId());
+        assertThat(teamAsOf(TestUsers.MANAGER_ONE, instantAfterPause())).contains(created.getUserId());
+        assertThat(history(mobile)).hasSize(2);
+    }
+
+    @Test
+    void bulkFirstManagerAssignmentKeepsEarlierHistory() throws InterruptedException {
+        String first = TestUsers.newMobile();
+        String second = TestUsers.newMobile();
+        UserDto withoutManager = create(first, null);
+        UserDto withManager = create(second, TestUsers.MANAGER_ONE);
+        String beforeMove = instantAfterPause();
+
+        UpdateUserResponse response = userService.updateUser(update(Arrays.asList(
+                withoutManager.getUserId().toString(), withManager.getUserId().toString()), TestUsers.MANAGER_TWO));
+        assertThat(response.getError()).isNull();
+        assertThat(response.getResults().get(0).getNewUserId()).isEqualTo(withoutManager.getUserId());
+        assertThat(response.getResults().get(1).getNewUserId()).isNotEqualTo(withManager.getUserId());
+
+        assertThat(asOfByMobile(first, beforeMove).getManagerId()).isNull();
+        assertThat(asOfByMobile(second, beforeMove).getManagerId()).hasToString(TestUsers.MANAGER_ONE);
+        assertThat(teamAsOf(TestUsers.MANAGER_ONE, beforeMove)).contains(withManager.getUserId());
+        assertThat(teamAsOf(TestUsers.MANAGER_TWO, beforeMove))
+                .doesNotContain(withoutManager.getUserId(), withManager.getUserId());
+        assertThat(current(first).getUserId()).isEqualTo(withoutManager.getUserId());
+        assertThat(current(first).getManagerId()).hasToString(TestUsers.MANAGER_TWO);
+        assertThat(current(second).getManagerId()).hasToString(TestUsers.MANAGER_TWO);
+        assertThat(teamAsOf(TestUsers.MANAGER_TWO, instantAfterPause())).contains(withoutManager.getUserId());
+        assertThat(history(first)).hasSize(2);
+    }
+
+    private List<UserDto> history(String mobile) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setMobNum(mobile);
+        request.setHistory(true);
+        return userService.getUsers(request).getUsers();
+    }
+
+    private UserDto create(String mobile, String managerId) {
+        CreateUserResponse response = userService.createUser(new CreateUserRequest("History User", mobile, "ABCDE1234F", managerId));
+        assertThat(response.getError()).isNull();
+        return current(mobile);
+    }
+
+    private UserDto current(String mobile) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setMobNum(mobile);
+        List<UserDto> users = userService.getUsers(request).getUsers();
+        assertThat(users).hasSize(1);
+        return users.get(0);
+    }
+
+    private UserDto asOfByMobile(String mobile, String asOf) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setMobNum(mobile);
+        request.setAsOf(asOf);
+        List<UserDto> users = userService.getUsers(request).getUsers();
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    private List<UUID> teamAsOf(String managerId, String asOf) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setManagerId(managerId);
+        request.setAsOf(asOf);
+        return userService.getUsers(request).getUsers().stream().map(UserDto::getUserId).collect(Collectors.toList());
+    }
+
+    private static UpdateUserRequest update(List<String> userIds, String managerId) {
+        UserUpdateData data = new UserUpdateData();
+        data.setManagerId(managerId);
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setUserIds(userIds);
+        request.setUpdateData(data);
+        return request;
+    }
+
+    // Timestamps have millisecond precision; keep the instant clear of the writes around it.
+    private static String instantAfterPause() throws InterruptedException {
+        Thread.sleep(20);
+        String instant = Instant.now().toString();
+        Thread.sleep(20);
+        return instant;
+    }
+}
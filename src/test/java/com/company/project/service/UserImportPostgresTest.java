@@ -0,0 +1,108 @@
+package com.company.project.service;
+
+import com.company.project.PostgresTestDatabase;
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.validation.UserValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Constraint violations raised by a COPY import: the whole import is rejected with a validation
+ * error, never a server error. Runs against the {@link PostgresTestDatabase}; skipped where there is none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf(PostgresTestDatabase.AVAILABLE)
+class UserImportPostgresTest {
+
+    @Autowired
+    private UserCopyService userCopyService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @Test
+    void mobileOfAnActiveUserRejectsTheImport() {
+        String taken = TestUsers.newMobile();
+        assertThat(userService.createUser(new CreateUserRequest("Existing User", taken, "ABCDE1234F", null)).getError()).isNull();
+        String fresh = TestUsers.newMobile();
+
+        Map<String, Object> response = importCsv("Imported User," + fresh + ",ABCDE1234F\nImported User," + taken + ",ABCDE1234F\n");
+
+        assertThat((String) response.get("error"))
+                .startsWith("Import rejected, nothing was imported: " + UserValidator.DUPLICATE_MOBILE)
+                .contains(taken);
+        assertThat(rowsWithMobile(fresh)).isZero();
+        assertThat(rowsWithMobile(taken)).isEqualTo(1);
+    }
+
+    @Test
+    void checkViolationRejectsTheImport() {
+        jdbcTemplate.execute("ALTER TABLE users ADD CONSTRAINT users_pan_num_test_check CHECK (pan_num <> 'ZZZZZ9999Z')");
+        try {
+            String mobile = TestUsers.newMobile();
+
+            Map<String, Object> response = importCsv("Imported User," + mobile + ",ZZZZZ9999Z\n");
+
+            assertThat((String) response.get("error"))
+                    .startsWith("Import rejected, nothing was imported: ")
+                    .contains("users_pan_num_test_check");
+            assertThat(rowsWithMobile(mobile)).isZero();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE users DROP CONSTRAINT users_pan_num_test_check");
+        }
+    }
+
+    @Test
+    void rowsWithAManagerNotYetCachedAreImported() {
+        // Inserted behind the manager cache's back, so nothing but the import looks it up.
+        UUID managerId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO managers (manager_id, full_name, email, is_active, created_at)"
+                + " VALUES (?, 'Manager Three', 'manager.three@example.com', true, CURRENT_TIMESTAMP)", managerId);
+        UUID inactiveId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO managers (manager_id, full_name, email, is_active, created_at)"
+                + " VALUES (?, 'Manager Four', 'manager.four@example.com', false, CURRENT_TIMESTAMP)", inactiveId);
+        String mobile = TestUsers.newMobile();
+        String rejected = TestUsers.newMobile();
+
+        Map<String, Object> response = userCopyService.importUsers(new StringReader("full_name,mob_num,pan_num,manager_id\n"
+                + "Imported User," + mobile + ",ABCDE1234F," + managerId + "\n"
+                + "Imported User," + rejected + ",ABCDE1234F," + inactiveId + "\n"), false);
+
+        assertThat(response.get("error")).isNull();
+        assertThat(response.get("imported")).isEqualTo(1L);
+        assertThat(response.get("failed")).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT manager_id FROM users WHERE mob_num = ?", UUID.class, mobile)).isEqualTo(managerId);
+        assertThat(rowsWithMobile(rejected)).isZero();
+    }
+
+    private Map<String, Object> importCsv(String rows) {
+        return userCopyService.importUsers(new StringReader("full_name,mob_num,pan_num\n" + rows), false);
+    }
+
+    private int rowsWithMobile(String mobile) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE mob_num = ?", Integer.class, mobile);
+    }
+}
@@ -0,0 +1,113 @@
+package com.company.project.service;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.UserDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unfiltered /get_users pages and /stream_users: every row is returned exactly once, in
+ * (created_at, user_id) order, also when rows share a created_at.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserPagingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void pagesReturnEveryUserOnceInKeysetOrder() {
+        Set<UUID> tied = insertUsersCreatedAt(new Timestamp(System.currentTimeMillis()), 4);
+
+        List<UserDto> all = new ArrayList<>();
+        GetUsersRequest request = new GetUsersRequest();
+        request.setPageSize(3);
+        GetUsersResponse page;
+        do {
+            page = userService.getUsers(request);
+            assertThat(page.getError()).isNull();
+            assertThat(page.getUsers()).hasSizeLessThanOrEqualTo(3);
+            all.addAll(page.getUsers());
+            request.setPageToken(page.getNextPageToken());
+        } while (page.getNextPageToken() != null);
+
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            assertThat(ids.add(all.get(i).getUserId())).as("returned twice: %s", all.get(i).getUserId()).isTrue();
+            if (i > 0) {
+                UserDto previous = all.get(i - 1);
+                UserDto current = all.get(i);
+                int byTime = previous.getCreatedAt().compareTo(current.getCreatedAt());
+                assertThat(byTime < 0 || byTime == 0 && previous.getUserId().compareTo(current.getUserId()) < 0)
+                        .as("%s before %s", previous.getUserId(), current.getUserId()).isTrue();
+            }
+        }
+        assertThat(ids).containsAll(tied);
+        assertThat(all).hasSize(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+
+    @Test
+    void rejectsInvalidPageSizeAndToken() {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setPageSize(0);
+        assertThat(userService.getUsers(request).getError()).isEqualTo("Invalid page_size. It must be a positive integer.");
+
+        request.setPageSize(null);
+        request.setPageToken("not-a-token");
+        assertThat(userService.getUsers(request).getError()).isEqualTo("Invalid page_token.");
+    }
+
+    @Test
+    void streamWritesOneLinePerUser() throws IOException {
+        insertUsersCreatedAt(new Timestamp(System.currentTimeMillis()), 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userService.streamUsers(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        Set<UUID> ids = new HashSet<>();
+        for (String line : lines) {
+            ids.add(objectMapper.readValue(line, UserDto.class).getUserId());
+        }
+        int count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+        assertThat(lines).hasSize(count);
+        assertThat(ids).hasSize(count);
+    }
+
+    // Users sharing one created_at, so only user_id orders them.
+    private Set<UUID> insertUsersCreatedAt(Timestamp createdAt, int count) {
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            UUID userId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO users (user_id, full_name, mob_num, pan_num, created_at, is_active, person_id, valid_from)"
+                    + " VALUES (?, 'Paged User', ?, 'ABCDE1234F', ?, true, ?, ?)", userId, TestUsers.newMobile(), createdAt, userId, createdAt);
+            ids.add(userId);
+        }
+        return ids;
+    }
+}
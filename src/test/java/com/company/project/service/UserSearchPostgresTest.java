@@ -0,0 +1,85 @@
+package com.company.project.service;
+
+import com.company.project.PostgresTestDatabase;
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.UserDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The fuzzy name search of /get_users (users.search.fuzzy=true) on pg_trgm: prefix matches
+ * first, then names similar to the term, misspellings included. Runs against the
+ * {@link PostgresTestDatabase}; skipped where there is none.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@EnabledIf(PostgresTestDatabase.AVAILABLE)
+class UserSearchPostgresTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) throws SQLException {
+        PostgresTestDatabase.register(registry);
+    }
+
+    @BeforeEach
+    void enableFuzzySearch() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        UserService target = AopTestUtils.getTargetObject(userService);
+        ReflectionTestUtils.setField(target, "fuzzySearch", true);
+    }
+
+    @AfterEach
+    void restoreSearch() {
+        UserService target = AopTestUtils.getTargetObject(userService);
+        ReflectionTestUtils.setField(target, "fuzzySearch", false);
+    }
+
+    @Test
+    void findsMisspelledNamesAfterPrefixMatches() {
+        String token = UserSearchTest.token();
+        create("Ramesh Kumaar " + token + " Senior");
+        create("Ramesh Kumar " + token);
+        create("Suresh Iyer " + token);
+
+        String term = "ramesh kumaar " + token.toLowerCase(Locale.ROOT);
+        // The prefix match, then by similarity: the misspelling ranks above a name sharing only the token.
+        assertThat(search(term, null))
+                .containsExactly("Ramesh Kumaar " + token + " Senior", "Ramesh Kumar " + token, "Suresh Iyer " + token);
+        assertThat(search(term, 1)).containsExactly("Ramesh Kumaar " + token + " Senior");
+        // Too short for trigrams: prefix matches only.
+        assertThat(search("zq", null)).isEmpty();
+    }
+
+    private void create(String fullName) {
+        assertThat(userService.createUser(new CreateUserRequest(fullName, TestUsers.newMobile(), "ABCDE1234F", TestUsers.MANAGER_ONE)).getError()).isNull();
+    }
+
+    private String[] search(String term, Integer limit) {
+        GetUsersResponse response = userService.getUsers(UserSearchTest.request(term, limit));
+        assertThat(response.getError()).isNull();
+        return response.getUsers().stream().map(UserDto::getFullName).toArray(String[]::new);
+    }
+}
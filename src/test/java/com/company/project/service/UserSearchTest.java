@@ -0,0 +1,99 @@
+package com.company.project.service;
+
+import com.company.project.TestUsers;
+import com.company.project.dto.CreateUserRequest;
+import com.company.project.dto.DeleteUserRequest;
+import com.company.project.dto.GetUsersRequest;
+import com.company.project.dto.GetUsersResponse;
+import com.company.project.dto.UserDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The search filter of /get_users without pg_trgm (users.search.fuzzy=false in the test
+ * profile): names by prefix first, then by substring, mobile numbers by any run of digits,
+ * active users only. UserSearchPostgresTest covers the fuzzy matching.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserSearchTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void ranksNamePrefixMatchesBeforeSubstringMatches() {
+        String token = token();
+        create("Bala " + token, TestUsers.newMobile());
+        create(token + " Anil", TestUsers.newMobile());
+        create(token + " Anand", TestUsers.newMobile());
+
+        assertThat(search(token.toLowerCase(Locale.ROOT), null))
+                .containsExactly(token + " Anand", token + " Anil", "Bala " + token);
+        assertThat(search(token.toUpperCase(Locale.ROOT) + " AN", null)).containsExactly(token + " Anand", token + " Anil");
+        assertThat(search(token, 1)).containsExactly(token + " Anand");
+        // LIKE wildcards in the term are matched literally.
+        assertThat(search(token.substring(0, 2) + "%", null)).isEmpty();
+    }
+
+    @Test
+    void matchesAnyPartOfTheMobileNumber() {
+        String token = token();
+        String mobile = TestUsers.newMobile();
+        create(token + " Mobile", mobile);
+
+        assertThat(search(mobile.substring(3, 9), null)).contains(token + " Mobile");
+        assertThat(search("+91 " + mobile.substring(0, 5) + "-" + mobile.substring(5), null)).containsExactly(token + " Mobile");
+
+        DeleteUserRequest delete = new DeleteUserRequest();
+        delete.setMobNum(mobile);
+        assertThat(userService.deleteUser(delete).getError()).isNull();
+        assertThat(search(mobile, null)).isEmpty();
+        assertThat(search(token, null)).isEmpty();
+    }
+
+    @Test
+    void rejectsShortTermsAndInvalidLimits() {
+        assertThat(searchError("a", null)).isEqualTo("Name search needs at least 2 characters.");
+        assertThat(searchError(" 98 ", null)).isEqualTo("Mobile number search needs at least 3 digits.");
+        assertThat(searchError("Anand", 0)).isEqualTo("Invalid limit. It must be a positive integer.");
+    }
+
+    // Letters only, so the names are not taken for mobile searches and match no other test's users.
+    static String token() {
+        Random random = new Random();
+        StringBuilder token = new StringBuilder("Q");
+        for (int i = 0; i < 7; i++) {
+            token.append((char) ('a' + random.nextInt(26)));
+        }
+        return token.toString();
+    }
+
+    private void create(String fullName, String mobile) {
+        assertThat(userService.createUser(new CreateUserRequest(fullName, mobile, "ABCDE1234F", TestUsers.MANAGER_ONE)).getError()).isNull();
+    }
+
+    private String[] search(String term, Integer limit) {
+        GetUsersResponse response = userService.getUsers(request(term, limit));
+        assertThat(response.getError()).isNull();
+        return response.getUsers().stream().map(UserDto::getFullName).toArray(String[]::new);
+    }
+
+    private String searchError(String term, Integer limit) {
+        return userService.getUsers(request(term, limit)).getError();
+    }
+
+    static GetUsersRequest request(String term, Integer limit) {
+        GetUsersRequest request = new GetUsersRequest();
+        request.setSearch(term);
+        request.setLimit(limit);
+        return request;
+    }
+}
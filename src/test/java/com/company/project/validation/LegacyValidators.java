@@ -0,0 +1,43 @@
+package com.company.project.validation;
+
+import org.springframework.util.StringUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex-based validators {@link UserValidator} replaced, kept as the reference for
+ * {@link UserValidatorTest} and as the baseline of ValidatorBenchmark.
+ */
+final class LegacyValidators {
+
+    private LegacyValidators() {
+    }
+
+    // The original UserService.validateAndFormatMobile.
+    static String mobile(String mobNum) {
+        if (!StringUtils.hasText(mobNum)) return null;
+        if (mobNum.startsWith("+91")) {
+            mobNum = mobNum.substring(3);
+        } else if (mobNum.startsWith("0")) {
+            mobNum = mobNum.substring(1);
+        }
+        mobNum = mobNum.replaceAll("[\\s-]", "");
+        if (mobNum.matches("\\d{10}")) {
+            return mobNum;
+        }
+        return null;
+    }
+
+    // The original UserService.validateAndFormatPan.
+    static String pan(String panNum) {
+        if (!StringUtils.hasText(panNum)) return null;
+        panNum = panNum.toUpperCase();
+        Pattern pattern = Pattern.compile("[A-Z]{5}[0-9]{4}[A-Z]{1}");
+        Matcher matcher = pattern.matcher(panNum);
+        if (matcher.matches()) {
+            return panNum;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.company.project.validation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link UserValidator} must accept, reject and normalise exactly like the regex validators it
+ * replaced ({@link LegacyValidators}), including for odd whitespace and non-ASCII letters.
+ */
+class UserValidatorTest {
+
+    static final String[] MOBILES = {
+            "9876543210", "+919876543210", "09876543210", "98765 43210", "98765-43210", "+91 98765-432 10",
+            "987654321", "98765432100", "98765a4321", "+9198765", "", "   ", "0", "+91", "0 98765\t43210",
+            "+91+919876543210", "００９８７６５４３２１０", "98765 43210", null
+    };
+
+    static final String[] PANS = {
+            "ABCDE1234F", "abcde1234f", "AbCdE1234f", "ABCDE12345", "ABCD12345F", "ABCDE1234", "ABCDE1234FG",
+            "1BCDE1234F", "ABCDE123FF", "", " ", "ABCDE 1234F", "ſBCDE1234F", "ßBCD1234F", "ÀBCDE1234F", null
+    };
+
+    private static final String RANDOM_ALPHABET = "0123456789+- \t\nabcxyzABCXYZſà";
+
+    private final UserValidator validator = new UserValidator();
+
+    static Stream<String> mobiles() {
+        return Arrays.stream(MOBILES);
+    }
+
+    static Stream<String> pans() {
+        return Arrays.stream(PANS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("mobiles")
+    void mobileMatchesLegacy(String mobile) {
+        assertThat(validator.validateAndFormatMobile(mobile)).isEqualTo(LegacyValidators.mobile(mobile));
+    }
+
+    @ParameterizedTest
+    @MethodSource("pans")
+    void panMatchesLegacy(String pan) {
+        assertThat(validator.validateAndFormatPan(pan)).isEqualTo(LegacyValidators.pan(pan));
+    }
+
+    @Test
+    void normalisesAcceptedForms() {
+        assertThat(validator.validateAndFormatMobile("+91 98765-432 10")).isEqualTo("9876543210");
+        assertThat(validator.validateAndFormatMobile("09876543210")).isEqualTo("9876543210");
+        assertThat(validator.validateAndFormatPan("abcde1234f")).isEqualTo("ABCDE1234F");
+    }
+
+    @Test
+    void randomInputsMatchLegacy() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            String value = randomString(random, i % 16);
+            assertThat(validator.validateAndFormatMobile(value)).as("mobile [%s]", value).isEqualTo(LegacyValidators.mobile(value));
+            assertThat(validator.validateAndFormatPan(value)).as("PAN [%s]", value).isEqualTo(LegacyValidators.pan(value));
+        }
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder value = new StringBuilder(length);
+        if (random.nextInt(4) == 0) value.append("+91");
+        for (int i = 0; i < length; i++) {
+            value.append(RANDOM_ALPHABET.charAt(random.nextInt(RANDOM_ALPHABET.length())));
+        }
+        return value.toString();
+    }
+}